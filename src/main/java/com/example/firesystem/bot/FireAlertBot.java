@@ -3,6 +3,7 @@ package com.example.firesystem.bot;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,9 +19,11 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import com.example.firesystem.cache.SensorRegistry;
 import com.example.firesystem.enums.EventType;
 import com.example.firesystem.enums.StatusType;
 import com.example.firesystem.model.Alert;
+import com.example.firesystem.model.Sensor;
 import com.example.firesystem.service.UserService;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -28,6 +31,7 @@ import jakarta.persistence.EntityNotFoundException;
 @Service
 public class FireAlertBot extends TelegramLongPollingBot {
     private final UserService userService;
+    private final SensorRegistry sensorRegistry;
     private static final Logger logger = LoggerFactory.getLogger(FireAlertBot.class);
     private final String botName;
     private final Long adminChatID;
@@ -36,11 +40,13 @@ public class FireAlertBot extends TelegramLongPollingBot {
             @Value("${telegram.bot.name}") String botName,
             @Value("${telegram.bot.token}") String botToken,
             @Value("${telegram.bot.chat-id}") Long adminChatID,
-            @Lazy UserService userService) {
+            @Lazy UserService userService,
+            SensorRegistry sensorRegistry) {
         super(botToken);
         this.botName = botName;
         this.adminChatID = adminChatID;
         this.userService = userService;
+        this.sensorRegistry = sensorRegistry;
     }
 
     @Override
@@ -260,7 +266,15 @@ public class FireAlertBot extends TelegramLongPollingBot {
     private String formatAlertMessage(Alert alert) {
         String eventType = translateEventType(alert.getType());
         String status = translateStatus(alert.getStatus());
-        String location = alert.getSensor() != null ? alert.getSensor().getLocation() : "Не указано";
+        // Местоположение из снимка реестра: сенсор оповещения может быть незагруженной ссылкой
+        Sensor sensor = alert.getSensor();
+        String location = sensor != null ? sensorRegistry.location(sensor.getId()) : null;
+        if (location == null && sensor != null && Hibernate.isInitialized(sensor)) {
+            location = sensor.getLocation();
+        }
+        if (location == null) {
+            location = "Не указано";
+        }
         String assignedTo = alert.getAssignedTo() != null ? alert.getAssignedTo().getUsername() : "Не назначено";
 
         return String.format("""
@@ -291,6 +305,10 @@ public class FireAlertBot extends TelegramLongPollingBot {
             case accident -> "🔥 ПОЖАР";
             case hard_braking -> "⚠️ ТРЕВОГА";
             case button -> "🛠️ ОБСЛУЖИВАНИЕ";
+            case sensor_offline -> "📡 ДАТЧИК НЕ НА СВЯЗИ";
+            case high_temperature -> "🌡️ ВЫСОКАЯ ТЕМПЕРАТУРА";
+            case smoke -> "💨 ЗАДЫМЛЕНИЕ";
+            case co_leak -> "☠️ УГАРНЫЙ ГАЗ";
             default -> eventType.toString();
         };
     }
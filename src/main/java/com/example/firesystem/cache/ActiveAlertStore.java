@@ -0,0 +1,217 @@
+package com.example.firesystem.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.example.firesystem.mapper.AlertMapper;
+import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.AlertView;
+import com.example.firesystem.util.LongObjectMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Все открытые оповещения (new_status и in_progress) в памяти процесса,
+ * проиндексированные по id, статусу и сенсору. Решённые оповещения из хранилища выпадают,
+ * поэтому его размер ограничен числом открытых инцидентов, а не всей историей.
+ * Синхронизируется событиями AlertService после фиксации транзакции.
+ */
+@Slf4j
+@Component
+public class ActiveAlertStore {
+
+    private static final Comparator<AlertDto> BY_ID = Comparator.comparing(AlertDto::id);
+
+    private final AlertRepository alertRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongObjectMap<AlertDto> byId = new LongObjectMap<>(1024);
+    private final Map<StatusType, LongObjectMap<AlertDto>> byStatus = new EnumMap<>(StatusType.class);
+    private final LongObjectMap<LongObjectMap<AlertDto>> bySensor = new LongObjectMap<>(1024);
+    // Отсортированный список статуса живёт до первого изменения в нём: повторные чтения получают
+    // тот же экземпляр, и по нему же EncodedResponseCache узнаёт, что готовый JSON ещё актуален
+    private final Map<StatusType, List<AlertDto>> sortedByStatus = new ConcurrentHashMap<>();
+
+    // Изменения, пришедшие во время загрузки, применяются поверх неё
+    private List<AlertChange> pendingChanges = new ArrayList<>();
+    private volatile boolean ready;
+
+    public ActiveAlertStore(AlertRepository alertRepository, PlatformTransactionManager transactionManager) {
+        this.alertRepository = alertRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        byStatus.put(StatusType.new_status, new LongObjectMap<>(1024));
+        byStatus.put(StatusType.in_progress, new LongObjectMap<>(1024));
+    }
+
+    public static boolean isOpen(StatusType status) {
+        return status == StatusType.new_status || status == StatusType.in_progress;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Загружает открытые оповещения из базы. Повторный вызов (уведомления от других узлов могли потеряться)
+     * перестраивает хранилище целиком; до конца загрузки читатели видят прежнее состояние.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        log.info("Загрузка открытых оповещений в память");
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges == null) {
+                pendingChanges = new ArrayList<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<AlertDto> loaded = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<AlertView> views = alertRepository.streamOpenViews()) {
+                views.map(AlertMapper::alertViewToAlertDto).forEach(loaded::add);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byStatus.values().forEach(LongObjectMap::clear);
+            bySensor.clear();
+            sortedByStatus.clear();
+            loaded.forEach(this::index);
+            pendingChanges.forEach(this::apply);
+            pendingChanges = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("В памяти {} открытых оповещений, загрузка заняла {} мс", size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.addAll(event.changes());
+                return;
+            }
+            event.changes().forEach(this::apply);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public AlertDto get(long id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<AlertDto> getByStatus(StatusType status) {
+        lock.readLock().lock();
+        try {
+            LongObjectMap<AlertDto> alerts = byStatus.get(status);
+            if (alerts == null) {
+                return List.of();
+            }
+            // Под блокировкой чтения: изменения идут под блокировкой записи и не пересекаются с вычислением
+            return sortedByStatus.computeIfAbsent(status, key -> List.copyOf(sorted(alerts)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<AlertDto> getBySensor(long sensorId) {
+        lock.readLock().lock();
+        try {
+            LongObjectMap<AlertDto> alerts = bySensor.get(sensorId);
+            return alerts != null ? sorted(alerts) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(AlertChange change) {
+        if (change.before() != null) {
+            unindex(change.before().id());
+        }
+        if (change.after() != null && isOpen(change.after().status())) {
+            index(change.after());
+        }
+    }
+
+    private void index(AlertDto alert) {
+        unindex(alert.id());
+        byId.put(alert.id(), alert);
+        byStatus.get(alert.status()).put(alert.id(), alert);
+        sortedByStatus.remove(alert.status());
+        if (alert.sensorId() != null) {
+            LongObjectMap<AlertDto> sensorAlerts = bySensor.get(alert.sensorId());
+            if (sensorAlerts == null) {
+                sensorAlerts = new LongObjectMap<>(4);
+                bySensor.put(alert.sensorId(), sensorAlerts);
+            }
+            sensorAlerts.put(alert.id(), alert);
+        }
+    }
+
+    private void unindex(long id) {
+        AlertDto previous = byId.remove(id);
+        if (previous == null) {
+            return;
+        }
+        byStatus.get(previous.status()).remove(id);
+        sortedByStatus.remove(previous.status());
+        if (previous.sensorId() != null) {
+            LongObjectMap<AlertDto> sensorAlerts = bySensor.get(previous.sensorId());
+            if (sensorAlerts != null) {
+                sensorAlerts.remove(id);
+                if (sensorAlerts.isEmpty()) {
+                    bySensor.remove(previous.sensorId());
+                }
+            }
+        }
+    }
+
+    private static List<AlertDto> sorted(LongObjectMap<AlertDto> alerts) {
+        List<AlertDto> result = new ArrayList<>(alerts.size());
+        alerts.forEachValue(result::add);
+        result.sort(BY_ID);
+        return result;
+    }
+}
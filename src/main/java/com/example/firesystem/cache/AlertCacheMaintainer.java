@@ -0,0 +1,236 @@
+package com.example.firesystem.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.AlertPageDto;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Поддерживает кэши оповещений в актуальном состоянии без сброса allEntries.
+ * Каждое зафиксированное изменение применяется к закэшированным коллекциям как дельта:
+ * оповещение переносится между корзинами статусов, патчится список сенсора
+ * и те страницы keyset-пагинации, в диапазон которых попадает его id.
+ * Незакэшированные ключи не трогаем - их загрузит следующее чтение.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertCacheMaintainer {
+
+    private static final Comparator<AlertDto> BY_ID = Comparator.comparing(AlertDto::id);
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAlertChanged(AlertChangedEvent event) {
+        try {
+            applyToAlert(event.changes());
+            applyToBuckets(cacheManager.getCache("alertsByStatus"), event.changes(), AlertDto::status);
+            applyToBuckets(cacheManager.getCache("alertsBySensor"), event.changes(), AlertDto::sensorId);
+            applyToPages(event.changes());
+        } catch (RuntimeException e) {
+            // Кэш не должен расходиться с БД: при любой ошибке откатываемся к полному сбросу
+            log.error("Не удалось применить изменения оповещений к кэшам, кэши будут очищены", e);
+            clear("alert", "alerts", "alertsByStatus", "alertsBySensor");
+        }
+    }
+
+    private void applyToAlert(List<AlertChange> changes) {
+        Cache cache = cacheManager.getCache("alert");
+        if (cache == null) {
+            return;
+        }
+        for (AlertChange change : changes) {
+            if (change.after() != null) {
+                cache.put(change.after().id(), change.after());
+            } else {
+                cache.evict(change.before().id());
+            }
+        }
+    }
+
+    private <K> void applyToBuckets(Cache cache, List<AlertChange> changes,
+            Function<AlertDto, K> bucketOf) {
+        if (cache == null) {
+            return;
+        }
+        // Изменения собираются по корзинам, чтобы каждый закэшированный список переписать один раз
+        Map<K, Map<Long, AlertDto>> touched = new LinkedHashMap<>();
+        for (AlertChange change : changes) {
+            K oldBucket = change.before() != null ? bucketOf.apply(change.before()) : null;
+            K newBucket = change.after() != null ? bucketOf.apply(change.after()) : null;
+            if (oldBucket != null && !Objects.equals(oldBucket, newBucket)) {
+                touched.computeIfAbsent(oldBucket, k -> new LinkedHashMap<>()).put(change.before().id(), null);
+            }
+            if (newBucket != null) {
+                touched.computeIfAbsent(newBucket, k -> new LinkedHashMap<>())
+                        .put(change.after().id(), change.after());
+            }
+        }
+        touched.forEach((key, bucketChanges) -> update(cache, key, cached -> {
+            @SuppressWarnings("unchecked")
+            List<AlertDto> bucket = (List<AlertDto>) cached;
+            return patch(bucket, bucketChanges, false, Integer.MAX_VALUE);
+        }));
+    }
+
+    /**
+     * Страницы кэша alerts хранятся под ключом "after:limit". Изменение затрагивает страницу,
+     * только если id лежит в её диапазоне (after, последний id], а для хвостовой страницы - выше after.
+     */
+    private void applyToPages(List<AlertChange> changes) {
+        Cache cache = cacheManager.getCache("alerts");
+        if (cache == null) {
+            return;
+        }
+        Collection<Object> keys = keysOf(cache);
+        if (keys == null) {
+            cache.clear();
+            return;
+        }
+        for (Object key : keys) {
+            String[] cursor = key.toString().split(":");
+            long after = Long.parseLong(cursor[0]);
+            int limit = Integer.parseInt(cursor[1]);
+            update(cache, key, cached -> patchPage((AlertPageDto) cached, after, limit, changes));
+        }
+    }
+
+    // Та же страница, если изменения её не касаются; null, если её нужно вытеснить
+    private static AlertPageDto patchPage(AlertPageDto page, long after, int limit, List<AlertChange> changes) {
+        boolean full = page.nextAfter() != null;
+        Map<Long, AlertDto> pageChanges = new LinkedHashMap<>();
+        for (AlertChange change : changes) {
+            long id = change.alertId();
+            if (id <= after || (full && id > page.nextAfter())) {
+                continue;
+            }
+            if (change.after() != null) {
+                pageChanges.put(id, change.after());
+            } else if (pageChanges.containsKey(id) || indexOf(page.alerts(), id) >= 0) {
+                if (full) {
+                    // из полной страницы выпала строка, а следующая за ней нам неизвестна
+                    return null;
+                }
+                pageChanges.put(id, null);
+            }
+        }
+        if (pageChanges.isEmpty()) {
+            return page;
+        }
+        List<AlertDto> alerts = patch(page.alerts(), pageChanges, true, limit);
+        if (alerts == page.alerts()) {
+            return page;
+        }
+        Long nextAfter = alerts.size() < limit ? null : alerts.get(alerts.size() - 1).id();
+        return new AlertPageDto(alerts, nextAfter);
+    }
+
+    /**
+     * Список после изменений по id (null - удаление). Список вне кучи патчится по байтам записей
+     * без полного декодирования; если изменения его не затронули, возвращается он сам.
+     */
+    private static List<AlertDto> patch(List<AlertDto> alerts, Map<Long, AlertDto> changes,
+            boolean sorted, int limit) {
+        if (alerts instanceof OffHeapAlertList offHeap) {
+            return offHeap.patch(changes, sorted, limit);
+        }
+        List<AlertDto> patched = new ArrayList<>(alerts);
+        changes.forEach((id, alert) -> {
+            int index = indexOf(patched, id);
+            if (alert == null) {
+                if (index >= 0) {
+                    patched.remove(index);
+                }
+            } else if (index >= 0) {
+                patched.set(index, alert);
+            } else {
+                patched.add(alert);
+            }
+        });
+        if (sorted) {
+            patched.sort(BY_ID);
+        }
+        return List.copyOf(patched.size() > limit ? patched.subList(0, limit) : patched);
+    }
+
+    private static int indexOf(List<AlertDto> alerts, long id) {
+        if (alerts instanceof OffHeapAlertList offHeap) {
+            return offHeap.indexOfId(id);
+        }
+        for (int i = 0; i < alerts.size(); i++) {
+            if (alerts.get(i).id() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Collection<Object> keysOf(Cache cache) {
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            return new ArrayList<>(caffeine.asMap().keySet());
+        }
+        if (cache.getNativeCache() instanceof ConcurrentMap<?, ?> map) {
+            return new ArrayList<>(map.keySet());
+        }
+        return null;
+    }
+
+    /**
+     * Меняет только уже закэшированное значение: незакэшированный ключ загрузит следующее чтение.
+     * У Caffeine - через computeIfPresent, атомарно относительно загрузки @Cacheable(sync = true)
+     * и фонового перечитывания: отдельные чтение и put могли бы затереть свежую загрузку
+     * значением, собранным из прежнего. patcher возвращает то же значение, если менять нечего,
+     * и null, чтобы вытеснить ключ.
+     */
+    private void update(Cache cache, Object key, UnaryOperator<Object> patcher) {
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            @SuppressWarnings("unchecked")
+            ConcurrentMap<Object, Object> map = (ConcurrentMap<Object, Object>) caffeine.asMap();
+            // Запись мимо toStoreValue: кэшу вне кучи значение отдаётся уже закодированным
+            map.computeIfPresent(key, (k, cached) -> cache instanceof OffHeapAlertCache
+                    ? OffHeapAlertCache.encode(patcher.apply(cached))
+                    : patcher.apply(cached));
+            return;
+        }
+        Cache.ValueWrapper wrapper = cache.get(key);
+        Object cached = wrapper != null ? wrapper.get() : null;
+        if (cached == null) {
+            return;
+        }
+        Object updated = patcher.apply(cached);
+        if (updated == null) {
+            cache.evict(key);
+        } else if (updated != cached) {
+            cache.put(key, updated);
+        }
+    }
+
+    private void clear(String... names) {
+        for (String name : names) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.firesystem.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.enums.AlertChangeType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.example.firesystem.event.SensorChangedEvent;
+import com.example.firesystem.event.UserChangedEvent;
+import com.example.firesystem.mapper.AlertMapper;
+import com.example.firesystem.mapper.SensorMapper;
+import com.example.firesystem.model.Sensor;
+import com.example.firesystem.model.User;
+import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.rules.RuleEngine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Согласованность локальных кэшей между узлами через LISTEN/NOTIFY Postgres.
+ * Узел копит id изменённых оповещений и сенсоров за короткое окно, схлопывает повторы и рассылает
+ * их одним или несколькими NOTIFY. Остальные узлы перечитывают эти строки одним запросом и применяют
+ * их как дельты к своим кэшам Spring и хранилищам в памяти. Доменные события при этом не публикуются,
+ * поэтому уведомления, сводки и дедупликация не срабатывают второй раз.
+ * Для оповещений вместе с id передаётся прежний статус и сенсор: по ним получатель убирает оповещение
+ * из старых корзин, даже если сам его не видел. Изменённые сенсоры и пользователи вытесняются и из
+ * кэша второго уровня Hibernate, а после изменения пользователей - и кэш запросов: он локальный,
+ * и запись на другом узле его не сбрасывает. После переподключения слушателя (уведомления могли
+ * потеряться) кэши очищаются целиком, а хранилища в памяти (открытые оповещения, реестр и индекс
+ * местоположений сенсоров) перечитываются из базы.
+ *
+ * Первый LISTEN выполняется при создании бина, до загрузки хранилищ по ApplicationReadyEvent, поэтому
+ * они видят либо запись другого узла, либо уведомление о ней. Бины, которые читают базу раньше
+ * (снимок кэшей в @PostConstruct), этой гарантии не имеют: изменения других узлов между их чтением
+ * и первым LISTEN доходят только по сроку жизни кэшей. Если первый LISTEN не удался, после подключения
+ * выполняется та же полная пересинхронизация, что и после переподключения.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "caches.coherence", name = "enabled", havingValue = "true")
+public class CacheCoherence {
+
+    // Postgres ограничивает payload 8000 байтами
+    private static final int MAX_PAYLOAD = 7000;
+    private static final String NONE = "-";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final AlertRepository alertRepository;
+    private final SensorRepository sensorRepository;
+    private final ActiveAlertStore activeAlertStore;
+    private final AlertCacheMaintainer alertCacheMaintainer;
+    private final SensorRegistry sensorRegistry;
+    private final SensorLocationIndex sensorLocationIndex;
+    private final RuleEngine ruleEngine;
+    private final EntityManagerFactory entityManagerFactory;
+    private final String channel;
+    private final long batchWindowMillis;
+    private final long reconnectDelayMillis;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    // Исходящие изменения до следующей рассылки; для оповещения хранится самое раннее прежнее состояние
+    private final Object outboxLock = new Object();
+    private Map<Long, String> outboxAlerts = new LinkedHashMap<>();
+    private Set<Long> outboxSensors = new LinkedHashSet<>();
+    private Set<Long> outboxUsers = new LinkedHashSet<>();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private volatile boolean running = true;
+    private Thread publisher;
+    private Thread listener;
+
+    public CacheCoherence(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            CacheManager cacheManager,
+            AlertRepository alertRepository,
+            SensorRepository sensorRepository,
+            ActiveAlertStore activeAlertStore,
+            AlertCacheMaintainer alertCacheMaintainer,
+            SensorRegistry sensorRegistry,
+            SensorLocationIndex sensorLocationIndex,
+            RuleEngine ruleEngine,
+            EntityManagerFactory entityManagerFactory,
+            MeterRegistry meterRegistry,
+            @Value("${caches.coherence.channel:firesystem_cache}") String channel,
+            @Value("${caches.coherence.batch-window:20ms}") Duration batchWindow,
+            @Value("${caches.coherence.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.alertRepository = alertRepository;
+        this.sensorRepository = sensorRepository;
+        this.activeAlertStore = activeAlertStore;
+        this.alertCacheMaintainer = alertCacheMaintainer;
+        this.sensorRegistry = sensorRegistry;
+        this.sensorLocationIndex = sensorLocationIndex;
+        this.ruleEngine = ruleEngine;
+        this.entityManagerFactory = entityManagerFactory;
+        this.channel = channel;
+        this.batchWindowMillis = Math.max(1, batchWindow.toMillis());
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+
+        Gauge.builder("caches.coherence.sent", sent, AtomicLong::get)
+                .description("Изменения, разосланные другим узлам")
+                .register(meterRegistry);
+        Gauge.builder("caches.coherence.received", received, AtomicLong::get)
+                .description("Изменения, полученные от других узлов")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        Connection initial = null;
+        try {
+            initial = listen();
+        } catch (SQLException e) {
+            log.error("Не удалось подписаться на канал {}, повтор в фоне", channel, e);
+        }
+        publisher = new Thread(this::publishLoop, "cache-coherence-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+        Connection connection = initial;
+        listener = new Thread(() -> listenLoop(connection), "cache-coherence-listener");
+        listener.setDaemon(true);
+        listener.start();
+        log.info("Согласование кэшей через канал {} включено, узел {}", channel, nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        publisher.interrupt();
+        listener.interrupt();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertChangedEvent event) {
+        synchronized (outboxLock) {
+            for (AlertChange change : event.changes()) {
+                AlertDto before = change.before();
+                outboxAlerts.putIfAbsent(change.alertId(), before == null ? NONE
+                        : (before.status() != null ? String.valueOf(before.status().ordinal()) : NONE) + ","
+                                + (before.sensorId() != null ? before.sensorId() : NONE));
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent event) {
+        synchronized (outboxLock) {
+            outboxSensors.add(event.sensorId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (outboxLock) {
+            outboxUsers.add(event.userId());
+        }
+    }
+
+    private void publishLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(batchWindowMillis);
+                Map<Long, String> alerts;
+                Set<Long> sensors;
+                Set<Long> users;
+                synchronized (outboxLock) {
+                    if (outboxAlerts.isEmpty() && outboxSensors.isEmpty() && outboxUsers.isEmpty()) {
+                        continue;
+                    }
+                    alerts = outboxAlerts;
+                    sensors = outboxSensors;
+                    users = outboxUsers;
+                    outboxAlerts = new LinkedHashMap<>();
+                    outboxSensors = new LinkedHashSet<>();
+                    outboxUsers = new LinkedHashSet<>();
+                }
+                publish(alerts, sensors, users);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Другие узлы останутся со старыми данными до истечения срока жизни кэшей
+                log.error("Не удалось разослать изменения кэшей другим узлам", e);
+            }
+        }
+    }
+
+    // Формат: узел|a<id>:<статус до>,<сенсор до>;s<id>;u<id>;...
+    private void publish(Map<Long, String> alerts, Set<Long> sensors, Set<Long> users) {
+        List<String> items = new ArrayList<>(alerts.size() + sensors.size() + users.size());
+        alerts.forEach((id, before) -> items.add("a" + id + ":" + before));
+        sensors.forEach(id -> items.add("s" + id));
+        users.forEach(id -> items.add("u" + id));
+
+        StringBuilder payload = new StringBuilder(MAX_PAYLOAD + 64);
+        for (String item : items) {
+            if (payload.length() > 0 && payload.length() + item.length() + 1 > MAX_PAYLOAD) {
+                notify(payload);
+                payload.setLength(0);
+            }
+            payload.append(payload.length() == 0 ? nodeId + "|" : ";").append(item);
+        }
+        if (payload.length() > 0) {
+            notify(payload);
+        }
+        sent.addAndGet(items.size());
+    }
+
+    private void notify(CharSequence payload) {
+        jdbcTemplate.query("select pg_notify(?, ?)", resultSet -> null, channel, payload.toString());
+    }
+
+    private void listenLoop(Connection initial) {
+        Connection connection = initial;
+        boolean resync = initial == null;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = listen();
+                }
+                if (resync && !resync()) {
+                    TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+                    continue;
+                }
+                resync = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null && notifications.length > 0) {
+                        receive(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.error("Соединение слушателя кэшей потеряно, повтор через {} мс", reconnectDelayMillis, e);
+                connection = close(connection);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(reconnectDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // Соединение живо, но пачка могла примениться частично
+                log.error("Ошибка применения изменений от других узлов", e);
+            }
+        }
+        close(connection);
+    }
+
+    private Connection listen() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + channel);
+        } catch (SQLException e) {
+            close(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private static Connection close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Ошибка закрытия соединения слушателя кэшей", e);
+            }
+        }
+        return null;
+    }
+
+    // Пропущенные уведомления не восстановить: всё локальное перечитывается из базы.
+    // false, если перечитать не удалось: попытка повторится на том же соединении
+    private boolean resync() {
+        log.warn("Слушатель кэшей переподключён, локальные кэши очищаются, хранилища в памяти перечитываются");
+        try {
+            cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+            entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictAllRegions();
+            activeAlertStore.rebuild();
+            sensorRegistry.rebuild();
+            sensorLocationIndex.rebuild();
+            ruleEngine.resetLocations();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Не удалось перечитать локальные данные после переподключения", e);
+            return false;
+        }
+    }
+
+    // Все уведомления пачки применяются вместе: оповещения и сенсоры перечитываются одним запросом каждые
+    private void receive(PGNotification[] notifications) {
+        Map<Long, String> alerts = new LinkedHashMap<>();
+        Set<Long> sensors = new LinkedHashSet<>();
+        Set<Long> users = new LinkedHashSet<>();
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            int separator = payload.indexOf('|');
+            if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+                continue;
+            }
+            for (String item : payload.substring(separator + 1).split(";")) {
+                if (item.startsWith("a")) {
+                    int colon = item.indexOf(':');
+                    alerts.putIfAbsent(Long.parseLong(item.substring(1, colon)), item.substring(colon + 1));
+                } else if (item.startsWith("s")) {
+                    sensors.add(Long.parseLong(item.substring(1)));
+                } else if (item.startsWith("u")) {
+                    users.add(Long.parseLong(item.substring(1)));
+                }
+            }
+        }
+        if (!alerts.isEmpty()) {
+            applyAlerts(alerts);
+        }
+        // Пользователи до сенсоров: сенсор ссылается на назначенного пользователя
+        if (!users.isEmpty()) {
+            applyUsers(users);
+        }
+        if (!sensors.isEmpty()) {
+            applySensors(sensors);
+        }
+        received.addAndGet(alerts.size() + sensors.size() + users.size());
+    }
+
+    private void applyAlerts(Map<Long, String> alerts) {
+        Map<Long, AlertDto> current = alertRepository.findViewsByIdIn(alerts.keySet()).stream()
+                .map(AlertMapper::alertViewToAlertDto)
+                .collect(Collectors.toMap(AlertDto::id, Function.identity()));
+        List<AlertChange> changes = new ArrayList<>(alerts.size());
+        alerts.forEach((id, encodedBefore) -> {
+            AlertDto before = before(id, encodedBefore);
+            AlertDto after = current.get(id);
+            if (before == null && after == null) {
+                return;
+            }
+            AlertChangeType type = before == null ? AlertChangeType.CREATED
+                    : after == null ? AlertChangeType.DELETED : AlertChangeType.UPDATED;
+            changes.add(new AlertChange(type, before, after));
+        });
+        if (changes.isEmpty()) {
+            return;
+        }
+        AlertChangedEvent event = new AlertChangedEvent(changes);
+        activeAlertStore.onAlertChanged(event);
+        alertCacheMaintainer.onAlertChanged(event);
+    }
+
+    // Получателю нужны только id, статус и сенсор прежнего состояния - по ним он находит старые корзины
+    private static AlertDto before(long id, String encoded) {
+        if (encoded.equals(NONE)) {
+            return null;
+        }
+        String[] fields = encoded.split(",");
+        StatusType status = fields[0].equals(NONE) ? null : StatusType.values()[Integer.parseInt(fields[0])];
+        Long sensorId = fields[1].equals(NONE) ? null : Long.valueOf(fields[1]);
+        return new AlertDto(id, sensorId, null, null, null, status, null, null, null);
+    }
+
+    private void applySensors(Set<Long> sensors) {
+        // Иначе findAllById вернёт копии из кэша второго уровня, записанные до изменения
+        jakarta.persistence.Cache secondLevel = entityManagerFactory.getCache();
+        sensors.forEach(id -> secondLevel.evict(Sensor.class, id));
+        Map<Long, SensorResponseDto> current = new HashMap<>();
+        sensorRepository.findAllById(sensors)
+                .forEach(sensor -> current.put(sensor.getId(), SensorMapper.sensorToSensorDto(sensor)));
+        Cache sensorCache = cacheManager.getCache("sensor");
+        Cache sensorsCache = cacheManager.getCache("sensors");
+        for (Long id : sensors) {
+            // Прежнее состояние неизвестно: индексы переиндексируют сенсор, правила перечитают местоположение
+            SensorChangedEvent event = new SensorChangedEvent(id, null, current.get(id));
+            sensorRegistry.onSensorChanged(event);
+            sensorLocationIndex.onSensorChanged(event);
+            ruleEngine.onSensorChanged(event);
+            if (sensorCache != null) {
+                sensorCache.evict(id);
+            }
+        }
+        if (sensorsCache != null) {
+            sensorsCache.clear();
+        }
+    }
+
+    private void applyUsers(Set<Long> users) {
+        jakarta.persistence.Cache secondLevel = entityManagerFactory.getCache();
+        users.forEach(id -> secondLevel.evict(User.class, id));
+        // Результаты запросов по пользователям (например, пустой поиск по имени до регистрации)
+        secondLevel.unwrap(org.hibernate.Cache.class).evictDefaultQueryRegion();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.firesystem.cache;
+
+/**
+ * Загружает значение кэша в обход самого кэша. CacheConfig вызывает его при промахе и для
+ * фонового обновления (refreshAfterWrite) кэшей, у которых оно настроено.
+ */
+public interface CacheReloader {
+
+    boolean reloads(String cacheName);
+
+    // null - значение не загружено, тогда промах обработает сам кэшируемый метод
+    Object reload(String cacheName, Object key);
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.example.firesystem.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.SensorListDto;
+import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.mapper.AlertMapper;
+import com.example.firesystem.mapper.SensorMapper;
+import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.repository.SensorTombstoneRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Снимок кэшей sensor, sensors и alert в локальном файле для тёплого перезапуска.
+ * Пишется периодически и при штатной остановке, читается при старте до приёма запросов.
+ * Сенсоры проверяются по версии реестра: если база ушла вперёд, изменённые после снимка сенсоры
+ * берутся из базы одним запросом, удалённые выбрасываются. Снимок новее базы (база восстановлена)
+ * отбрасывается целиком. У оповещений версии нет, поэтому из снимка берётся только набор горячих id:
+ * после старта они перечитываются из базы пачками и кладутся в кэш alert.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "caches.snapshot", name = "enabled", havingValue = "true")
+public class CacheSnapshot {
+
+    private static final int ALERT_BATCH = 1000;
+
+    private final CacheManager cacheManager;
+    private final SensorRepository sensorRepository;
+    private final SensorTombstoneRepository sensorTombstoneRepository;
+    private final AlertRepository alertRepository;
+    private final Path path;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+
+    // id из снимка, ждущие перечитывания после старта
+    private long[] restoredAlertIds = new long[0];
+
+    public CacheSnapshot(
+            CacheManager cacheManager,
+            SensorRepository sensorRepository,
+            SensorTombstoneRepository sensorTombstoneRepository,
+            AlertRepository alertRepository,
+            @Value("${caches.snapshot.path:data/cache/snapshot.bin}") String path,
+            @Value("${caches.snapshot.interval:5m}") Duration interval) {
+        this.cacheManager = cacheManager;
+        this.sensorRepository = sensorRepository;
+        this.sensorTombstoneRepository = sensorTombstoneRepository;
+        this.alertRepository = alertRepository;
+        this.path = Path.of(path);
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void restore() {
+        long start = System.currentTimeMillis();
+        try {
+            CacheSnapshotFile.Contents contents = CacheSnapshotFile.read(path);
+            if (contents == null) {
+                log.info("Снимка кэшей {} нет, кэши стартуют пустыми", path);
+            } else {
+                int sensors = restoreSensors(contents);
+                restoredAlertIds = contents.alertIds();
+                log.info("Снимок кэшей загружен за {} мс: сенсоров {}, оповещений к перечитыванию {}, возраст {} с",
+                        System.currentTimeMillis() - start, sensors, restoredAlertIds.length,
+                        (System.currentTimeMillis() - contents.writtenAt()) / 1000);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Без снимка кэши просто заполнятся с первых запросов
+            log.warn("Не удалось загрузить снимок кэшей {}", path, e);
+        }
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreAlerts() {
+        long[] ids = restoredAlertIds;
+        restoredAlertIds = new long[0];
+        if (ids.length > 0) {
+            scheduler.execute(() -> warmAlerts(ids));
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        saveQuietly();
+    }
+
+    /**
+     * Записывает снимок. Версия реестра читается до копирования записей: сенсор, изменённый между ними,
+     * при загрузке попадёт в дельту и будет перечитан.
+     */
+    public synchronized void save() throws IOException {
+        long start = System.currentTimeMillis();
+        long registryVersion = sensorRepository.currentRegistryVersion();
+
+        List<SensorResponseDto> sensors = new ArrayList<>();
+        entries("sensor").values().forEach(value -> {
+            if (value instanceof SensorResponseDto sensor) {
+                sensors.add(sensor);
+            }
+        });
+        List<SensorResponseDto> all = null;
+        if (entries("sensors").get("all") instanceof SensorListDto list) {
+            all = new ArrayList<>(list.sensors());
+            // Закэшированный список может отставать от базы: дельта при загрузке пойдёт от его версии
+            registryVersion = Math.min(registryVersion, list.version());
+        }
+        long[] alertIds = entries("alert").keySet().stream()
+                .filter(Long.class::isInstance)
+                .mapToLong(Long.class::cast)
+                .toArray();
+
+        CacheSnapshotFile.write(path, new CacheSnapshotFile.Contents(start, registryVersion, sensors, all, alertIds));
+        log.debug("Снимок кэшей записан за {} мс: сенсоров {}, оповещений {}",
+                System.currentTimeMillis() - start, sensors.size(), alertIds.length);
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось записать снимок кэшей {}", path, e);
+        }
+    }
+
+    private int restoreSensors(CacheSnapshotFile.Contents contents) {
+        long current = sensorRepository.currentRegistryVersion();
+        if (contents.registryVersion() > current) {
+            log.warn("Снимок кэшей новее базы (версия реестра {} > {}), сенсоры из него не загружаются",
+                    contents.registryVersion(), current);
+            return 0;
+        }
+        Map<Long, SensorResponseDto> changed = new LinkedHashMap<>();
+        Set<Long> deleted = new HashSet<>();
+        if (contents.registryVersion() < current) {
+            sensorRepository.findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderById(
+                    contents.registryVersion(), current)
+                    .forEach(sensor -> changed.put(sensor.getId(), SensorMapper.sensorToSensorDto(sensor)));
+            sensorTombstoneRepository.findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderBySensorId(
+                    contents.registryVersion(), current)
+                    .forEach(tombstone -> deleted.add(tombstone.getSensorId()));
+            log.info("Снимок кэшей отстаёт от базы на {} версий реестра: изменено {}, удалено {}",
+                    current - contents.registryVersion(), changed.size(), deleted.size());
+        }
+
+        int restored = 0;
+        Cache sensorCache = cacheManager.getCache("sensor");
+        if (sensorCache != null) {
+            for (SensorResponseDto sensor : contents.sensors()) {
+                if (!deleted.contains(sensor.id())) {
+                    sensorCache.putIfAbsent(sensor.id(), changed.getOrDefault(sensor.id(), sensor));
+                    restored++;
+                }
+            }
+        }
+        Cache sensorsCache = cacheManager.getCache("sensors");
+        if (sensorsCache != null && contents.all() != null) {
+            // Порядок снимка сохраняется, созданные после него сенсоры дописываются в конец
+            Map<Long, SensorResponseDto> added = new LinkedHashMap<>(changed);
+            List<SensorResponseDto> all = new ArrayList<>(contents.all().size() + changed.size());
+            for (SensorResponseDto sensor : contents.all()) {
+                if (!deleted.contains(sensor.id())) {
+                    SensorResponseDto fresh = added.remove(sensor.id());
+                    all.add(fresh != null ? fresh : sensor);
+                }
+            }
+            all.addAll(added.values());
+            sensorsCache.putIfAbsent("all", new SensorListDto(current, all));
+            restored += all.size();
+        }
+        return restored;
+    }
+
+    private void warmAlerts(long[] ids) {
+        Cache cache = cacheManager.getCache("alert");
+        if (cache == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int warmed = 0;
+        try {
+            for (int from = 0; from < ids.length; from += ALERT_BATCH) {
+                List<Long> batch = new ArrayList<>(ALERT_BATCH);
+                for (int i = from; i < Math.min(ids.length, from + ALERT_BATCH); i++) {
+                    batch.add(ids[i]);
+                }
+                // putIfAbsent: значение, положенное записью после старта, новее прочитанного здесь
+                for (AlertDto alert : alertRepository.findViewsByIdIn(batch).stream()
+                        .map(AlertMapper::alertViewToAlertDto)
+                        .toList()) {
+                    cache.putIfAbsent(alert.id(), alert);
+                    warmed++;
+                }
+            }
+            log.info("Кэш alert прогрет по снимку: {} из {} оповещений за {} мс", warmed, ids.length,
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Прогрев кэша alert прерван после {} оповещений", warmed, e);
+        }
+    }
+
+    // Записи кэша без загрузки: get у LoadingCache загрузил бы отсутствующий ключ
+    private Map<?, ?> entries(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null
+                && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            return caffeine.asMap();
+        }
+        return Map.of();
+    }
+}
\ No newline at end of file
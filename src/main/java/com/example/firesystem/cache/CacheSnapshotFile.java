@@ -0,0 +1,154 @@
+package com.example.firesystem.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.example.firesystem.dto.SensorResponseDto;
+
+/**
+ * Двоичный формат снимка кэшей. Файл пишется во временный и подменяется атомарным переименованием,
+ * читается через отображение в память.
+ *
+ * magic(int) format(int) writtenAt(long) registryVersion(long),
+ * затем сенсоры кэша sensor: count(int) и записи, список sensors 'all': count(int, -1 - не был закэширован)
+ * и записи, id кэша alert: count(int) и id(long), в конце crc32(long) всего предыдущего.
+ * Запись сенсора: id(long) model location locationPath assignedTo(long, 0 - не назначен);
+ * строка - длина в байтах UTF-8 (int, -1 - null) и байты.
+ */
+final class CacheSnapshotFile {
+
+    static final int MAGIC = 0x46534353;
+    static final int FORMAT = 1;
+
+    record Contents(long writtenAt, long registryVersion, List<SensorResponseDto> sensors,
+            List<SensorResponseDto> all, long[] alertIds) {
+    }
+
+    private CacheSnapshotFile() {
+    }
+
+    static void write(Path path, Contents contents) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(contents.writtenAt());
+            out.writeLong(contents.registryVersion());
+            writeSensors(out, contents.sensors());
+            if (contents.all() == null) {
+                out.writeInt(-1);
+            } else {
+                writeSensors(out, contents.all());
+            }
+            out.writeInt(contents.alertIds().length);
+            for (long id : contents.alertIds()) {
+                out.writeLong(id);
+            }
+            // Контрольная сумма не входит сама в себя: берётся до её записи
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // null, если файла нет; IOException, если он повреждён или другого формата
+    static Contents read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 32 || size > Integer.MAX_VALUE) {
+                throw new IOException("Неверный размер снимка кэшей: " + size);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int body = (int) size - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, body));
+            if (crc.getValue() != buffer.getLong(body)) {
+                throw new IOException("Контрольная сумма снимка кэшей не совпадает");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("Неизвестный формат снимка кэшей");
+            }
+            try {
+                long writtenAt = buffer.getLong();
+                long registryVersion = buffer.getLong();
+                List<SensorResponseDto> sensors = readSensors(buffer, buffer.getInt());
+                int allCount = buffer.getInt();
+                List<SensorResponseDto> all = allCount < 0 ? null : readSensors(buffer, allCount);
+                long[] alertIds = new long[buffer.getInt()];
+                for (int i = 0; i < alertIds.length; i++) {
+                    alertIds[i] = buffer.getLong();
+                }
+                return new Contents(writtenAt, registryVersion, sensors, all, alertIds);
+            } catch (RuntimeException e) {
+                throw new IOException("Снимок кэшей повреждён", e);
+            }
+        }
+    }
+
+    private static void writeSensors(DataOutputStream out, List<SensorResponseDto> sensors) throws IOException {
+        out.writeInt(sensors.size());
+        for (SensorResponseDto sensor : sensors) {
+            out.writeLong(sensor.id());
+            writeString(out, sensor.model());
+            writeString(out, sensor.location());
+            writeString(out, sensor.locationPath());
+            out.writeLong(sensor.assignedToUserId() != null ? sensor.assignedToUserId() : 0);
+        }
+    }
+
+    private static List<SensorResponseDto> readSensors(ByteBuffer buffer, int count) {
+        List<SensorResponseDto> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = buffer.getLong();
+            String model = readString(buffer);
+            String location = readString(buffer);
+            String locationPath = readString(buffer);
+            long assignedTo = buffer.getLong();
+            sensors.add(new SensorResponseDto(id, model, location, locationPath,
+                    assignedTo != 0 ? assignedTo : null));
+        }
+        return sensors;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
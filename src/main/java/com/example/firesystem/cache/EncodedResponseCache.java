@@ -0,0 +1,140 @@
+package com.example.firesystem.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Готовые ответы списков: JSON в байтах, его gzip и ETag по содержимому.
+ * Ключ - сам экземпляр значения из кэша сервиса (сравнение по ссылке, слабые ключи). Пока сервис
+ * отдаёт тот же экземпляр, байты актуальны и пишутся в ответ без повторной сериализации. Любой сброс,
+ * патч или перечитывание кэша сервиса даёт новый экземпляр, поэтому отдельная инвалидация не нужна,
+ * а старая запись уходит вместе со сборкой мусора своего ключа.
+ */
+@Slf4j
+@Component
+public class EncodedResponseCache {
+
+    private static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+    private final Cache<Object, EncodedResponse> responses;
+
+    public EncodedResponseCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${caches.responses.max-size:64MB}") DataSize maxSize,
+            @Value("${caches.responses.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = (int) gzipMinSize.toBytes();
+        this.responses = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Object key, EncodedResponse response) -> response.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "encodedResponses");
+    }
+
+    /**
+     * Ответ с ETag по содержимому; 304, если If-None-Match совпал.
+     */
+    public ResponseEntity<byte[]> respond(Object body, WebRequest request) {
+        EncodedResponse encoded = encoded(body);
+        String etag = variantEtag(encoded.etag(), request);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ok(encoded, etag, request);
+    }
+
+    /**
+     * Ответ с заранее известным ETag (например, версией реестра): при совпадении If-None-Match
+     * тело даже не запрашивается.
+     */
+    public ResponseEntity<byte[]> respond(String etag, Supplier<?> body, WebRequest request) {
+        String variant = variantEtag(etag, request);
+        if (request.checkNotModified(variant)) {
+            return null;
+        }
+        return ok(encoded(body.get()), variant, request);
+    }
+
+    private ResponseEntity<byte[]> ok(EncodedResponse encoded, String etag, WebRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.gzip() != null && acceptsGzip(request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(encoded.gzip());
+        }
+        return response.body(encoded.json());
+    }
+
+    private EncodedResponse encoded(Object body) {
+        return responses.get(body, this::encode);
+    }
+
+    private EncodedResponse encode(Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = json.length >= gzipMinBytes ? gzip(json) : null;
+            String etag = "\"0" + DigestUtils.md5DigestAsHex(json) + "\"";
+            log.debug("Ответ {} закодирован: JSON {} байт, gzip {} байт", body.getClass().getSimpleName(),
+                    json.length, gzip != null ? gzip.length : 0);
+            return new EncodedResponse(json, gzip, etag);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Клиенту, принимающему gzip, свой ETag: сжатое представление - другие байты.
+    // Маленькие ответы он получает несжатыми под тем же ETag, это безопасно
+    private static String variantEtag(String etag, WebRequest request) {
+        return acceptsGzip(request) ? etag.substring(0, etag.length() - 1) + "-" + GZIP + "\"" : etag;
+    }
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains(GZIP);
+    }
+
+    record EncodedResponse(byte[] json, byte[] gzip, String etag) {
+
+        int size() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+}
\ No newline at end of file
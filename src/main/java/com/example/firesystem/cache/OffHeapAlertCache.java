@@ -0,0 +1,115 @@
+package com.example.firesystem.cache;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.AlertPageDto;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+/**
+ * Кэш коллекций оповещений, хранящий их вне кучи (см. OffHeapAlertList).
+ * Списки и страницы кодируются при записи в кэш - через put, @Cacheable и фоновое перечитывание.
+ * Читатель получает копию в куче: буфер не выходит за пределы кэша, поэтому его можно освободить
+ * сразу, как только запись удалена или заменена (removalListener из CacheConfig вызывает release).
+ * Вес записи - байты буфера, поэтому maximumWeight кэша задаёт бюджет памяти вне кучи.
+ */
+public class OffHeapAlertCache extends CaffeineCache {
+
+    private static final Object RELEASED = new Object();
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache;
+    private final boolean staleWhileRevalidate;
+
+    public OffHeapAlertCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+            boolean allowNullValues, boolean staleWhileRevalidate) {
+        super(name, cache, allowNullValues);
+        this.cache = cache;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    /**
+     * Значение в том виде, в каком оно хранится: список оповещений - OffHeapAlertList,
+     * страница - страница с таким списком, остальное без изменений.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object encode(Object value) {
+        if (value instanceof OffHeapAlertList) {
+            return value;
+        }
+        if (value instanceof List<?> list && list.stream().allMatch(AlertDto.class::isInstance)) {
+            return OffHeapAlertList.of((List<AlertDto>) list);
+        }
+        if (value instanceof AlertPageDto page && !(page.alerts() instanceof OffHeapAlertList)) {
+            return new AlertPageDto(OffHeapAlertList.of(page.alerts()), page.nextAfter());
+        }
+        return value;
+    }
+
+    public static int weigh(Object key, Object value) {
+        if (value instanceof OffHeapAlertList list) {
+            return list.byteSize();
+        }
+        if (value instanceof AlertPageDto page && page.alerts() instanceof OffHeapAlertList list) {
+            return list.byteSize();
+        }
+        return 1;
+    }
+
+    // Ссылка кэша на буфер удалённой или заменённой записи
+    public static void release(Object value) {
+        if (value instanceof OffHeapAlertList list) {
+            list.release();
+        } else if (value instanceof AlertPageDto page && page.alerts() instanceof OffHeapAlertList list) {
+            list.release();
+        }
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        return super.toStoreValue(encode(userValue));
+    }
+
+    // Буфер могли освободить между чтением записи и копированием - тогда ключ уже с новым значением или пуст
+    @Override
+    protected Object lookup(Object key) {
+        Object value;
+        do {
+            value = toHeap(super.lookup(key));
+        } while (value == RELEASED);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value;
+        do {
+            value = toHeap(super.get(key, valueLoader));
+        } while (value == RELEASED);
+        return (T) value;
+    }
+
+    private static Object toHeap(Object value) {
+        if (value instanceof OffHeapAlertList list) {
+            List<AlertDto> alerts = list.toHeap();
+            return alerts != null ? alerts : RELEASED;
+        }
+        if (value instanceof AlertPageDto page && page.alerts() instanceof OffHeapAlertList list) {
+            List<AlertDto> alerts = list.toHeap();
+            return alerts != null ? new AlertPageDto(alerts, page.nextAfter()) : RELEASED;
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        if (staleWhileRevalidate && cache instanceof LoadingCache<Object, Object> loading) {
+            StaleWhileRevalidateCache.revalidate(loading);
+        } else {
+            super.clear();
+        }
+    }
+}
\ No newline at end of file
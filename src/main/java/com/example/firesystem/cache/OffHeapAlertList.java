@@ -0,0 +1,411 @@
+package com.example.firesystem.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+
+/**
+ * Неизменяемый список оповещений, записанный в direct-буфер вне кучи.
+ * На куче остаются только сам список и буфер; AlertDto собирается при обращении к элементу
+ * и сразу становится мусором молодого поколения.
+ *
+ * Память освобождается явно, по счётчику ссылок: одну держит кэш и отдаёт через release()
+ * при удалении или замене записи, остальные берут читатели на время декодирования. Когда счётчик
+ * доходит до нуля, буфер освобождается сразу, не дожидаясь сборщика; Cleaner остаётся
+ * подстраховкой для списков, которые так и не попали в кэш.
+ *
+ * Раскладка: count(int), смещения записей count * int, затем записи
+ * id(long) sensorId(long) type(byte) timestamp status(byte) occurrences(int) lastSeen description
+ * photoUrls(count int и строки). null: long - Long.MIN_VALUE, byte - -1, int - Integer.MIN_VALUE,
+ * строка и список - длина -1. Время - секунды UTC (long) и наносекунды (int).
+ */
+public final class OffHeapAlertList extends AbstractList<AlertDto> implements RandomAccess {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final EventType[] TYPES = EventType.values();
+    private static final StatusType[] STATUSES = StatusType.values();
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+    private static final Consumer<ByteBuffer> FREE = directFree();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final Cleaner.Cleanable cleanable;
+
+    private OffHeapAlertList(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(0);
+        ALLOCATED.addAndGet(buffer.capacity());
+        this.cleanable = CLEANER.register(this, new Free(buffer));
+    }
+
+    public static OffHeapAlertList of(List<AlertDto> alerts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + alerts.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        int[] offsets = new int[alerts.size()];
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = out.size();
+                write(out, alerts.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int header = 4 + offsets.length * 4;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(header + bytes.size());
+        buffer.putInt(offsets.length);
+        for (int offset : offsets) {
+            buffer.putInt(header + offset);
+        }
+        buffer.put(bytes.toByteArray());
+        buffer.clear();
+        return new OffHeapAlertList(buffer);
+    }
+
+    // Занято всеми ещё не освобождёнными списками
+    public static long allocatedBytes() {
+        return ALLOCATED.get();
+    }
+
+    // Ссылка читателя; false, если буфер уже освобождён и читать его нельзя
+    boolean retain() {
+        while (true) {
+            int current = references.get();
+            if (current == 0) {
+                return false;
+            }
+            if (references.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * Копия списка в куче для отдачи читателю; null, если буфер уже освобождён.
+     * Все элементы декодируются под одной ссылкой, поэтому копия согласована.
+     */
+    public List<AlertDto> toHeap() {
+        if (!retain()) {
+            return null;
+        }
+        try {
+            AlertDto[] alerts = new AlertDto[size];
+            for (int i = 0; i < size; i++) {
+                alerts[i] = decode(i);
+            }
+            return List.of(alerts);
+        } finally {
+            release();
+        }
+    }
+
+    // Поиск по id читает только первое поле записей, не собирая AlertDto
+    public int indexOfId(long id) {
+        retainOrFail();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (idAt(i) == id) {
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Новый список с изменениями по id: значение - новая версия оповещения, null - удаление.
+     * Нетронутые записи копируются байтами из этого буфера без декодирования, кодируются
+     * только новые версии. Оповещения, которых в списке нет, вставляются по возрастанию id,
+     * если sorted, иначе в конец; результат обрезается до limit записей.
+     * Если ни одно изменение список не затронуло, возвращается он сам.
+     */
+    public OffHeapAlertList patch(Map<Long, AlertDto> changes, boolean sorted, int limit) {
+        retainOrFail();
+        try {
+            NavigableMap<Long, AlertDto> ordered = new TreeMap<>();
+            Map<Long, AlertDto> inserts = sorted ? ordered : new LinkedHashMap<>();
+            changes.forEach((id, alert) -> {
+                if (alert != null) {
+                    inserts.put(id, alert);
+                }
+            });
+            // Части результата по порядку: Integer - индекс записи этого буфера, byte[] - новая запись
+            List<Object> parts = new ArrayList<>(size + inserts.size());
+            boolean changed = false;
+            for (int i = 0; i < size; i++) {
+                long id = idAt(i);
+                while (sorted && !ordered.isEmpty() && ordered.firstKey() < id) {
+                    parts.add(encode(ordered.pollFirstEntry().getValue()));
+                    changed = true;
+                }
+                if (changes.containsKey(id)) {
+                    AlertDto replacement = inserts.remove(id);
+                    if (replacement != null) {
+                        parts.add(encode(replacement));
+                    }
+                    changed = true;
+                } else {
+                    parts.add(i);
+                }
+            }
+            for (AlertDto alert : inserts.values()) {
+                parts.add(encode(alert));
+                changed = true;
+            }
+            if (parts.size() > limit) {
+                parts = parts.subList(0, limit);
+                changed = true;
+            }
+            return changed ? assemble(parts) : this;
+        } finally {
+            release();
+        }
+    }
+
+    public int byteSize() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public AlertDto get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        retainOrFail();
+        try {
+            return decode(index);
+        } finally {
+            release();
+        }
+    }
+
+    private void retainOrFail() {
+        if (!retain()) {
+            throw new IllegalStateException("Список оповещений уже освобождён");
+        }
+    }
+
+    private OffHeapAlertList assemble(List<Object> parts) {
+        int header = 4 + parts.size() * 4;
+        int length = header;
+        for (Object part : parts) {
+            length += part instanceof byte[] record ? record.length : recordLength((Integer) part);
+        }
+        ByteBuffer target = ByteBuffer.allocateDirect(length);
+        target.putInt(0, parts.size());
+        int at = header;
+        for (int i = 0; i < parts.size(); i++) {
+            target.putInt(4 + i * 4, at);
+            if (parts.get(i) instanceof byte[] record) {
+                target.put(at, record);
+                at += record.length;
+            } else {
+                int index = (Integer) parts.get(i);
+                int recordLength = recordLength(index);
+                target.put(at, buffer, recordOffset(index), recordLength);
+                at += recordLength;
+            }
+        }
+        return new OffHeapAlertList(target);
+    }
+
+    private static byte[] encode(AlertDto alert) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            write(new DataOutputStream(bytes), alert);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int recordOffset(int index) {
+        return buffer.getInt(4 + index * 4);
+    }
+
+    private int recordLength(int index) {
+        int end = index + 1 < size ? recordOffset(index + 1) : buffer.capacity();
+        return end - recordOffset(index);
+    }
+
+    private long idAt(int index) {
+        return buffer.getLong(recordOffset(index));
+    }
+
+    // Только абсолютные чтения: позиция буфера общая, а список читают одновременно
+    private AlertDto decode(int index) {
+        int[] at = {recordOffset(index)};
+        long id = readLong(at);
+        long sensorId = readLong(at);
+        byte type = readByte(at);
+        LocalDateTime timestamp = readTime(at);
+        byte status = readByte(at);
+        int occurrences = readInt(at);
+        LocalDateTime lastSeen = readTime(at);
+        String description = readString(at);
+        int photoCount = readInt(at);
+        List<String> photoUrls = null;
+        if (photoCount >= 0) {
+            photoUrls = new ArrayList<>(photoCount);
+            for (int i = 0; i < photoCount; i++) {
+                photoUrls.add(readString(at));
+            }
+        }
+        return new AlertDto(
+                id == NULL_LONG ? null : id,
+                sensorId == NULL_LONG ? null : sensorId,
+                type < 0 ? null : TYPES[type],
+                timestamp,
+                description,
+                status < 0 ? null : STATUSES[status],
+                photoUrls,
+                occurrences == NULL_INT ? null : occurrences,
+                lastSeen);
+    }
+
+    private static void write(DataOutputStream out, AlertDto alert) throws IOException {
+        out.writeLong(alert.id() != null ? alert.id() : NULL_LONG);
+        out.writeLong(alert.sensorId() != null ? alert.sensorId() : NULL_LONG);
+        out.writeByte(alert.type() != null ? alert.type().ordinal() : -1);
+        writeTime(out, alert.timestamp());
+        out.writeByte(alert.status() != null ? alert.status().ordinal() : -1);
+        out.writeInt(alert.occurrences() != null ? alert.occurrences() : NULL_INT);
+        writeTime(out, alert.lastSeen());
+        writeString(out, alert.description());
+        if (alert.photoUrls() == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(alert.photoUrls().size());
+            for (String url : alert.photoUrls()) {
+                writeString(out, url);
+            }
+        }
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        if (time == null) {
+            out.writeLong(NULL_LONG);
+            out.writeInt(0);
+        } else {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private long readLong(int[] at) {
+        long value = buffer.getLong(at[0]);
+        at[0] += 8;
+        return value;
+    }
+
+    private int readInt(int[] at) {
+        int value = buffer.getInt(at[0]);
+        at[0] += 4;
+        return value;
+    }
+
+    private byte readByte(int[] at) {
+        return buffer.get(at[0]++);
+    }
+
+    private LocalDateTime readTime(int[] at) {
+        long seconds = readLong(at);
+        int nanos = readInt(at);
+        return seconds == NULL_LONG ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private String readString(int[] at) {
+        int length = readInt(at);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(at[0], bytes);
+        at[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // sun.misc.Unsafe.invokeCleaner освобождает память direct-буфера сразу; без него остаётся сборщик
+    private static Consumer<ByteBuffer> directFree() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            MethodHandle invokeCleaner = MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+            return buffer -> {
+                try {
+                    invokeCleaner.invokeExact(buffer);
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Не удалось освободить буфер вне кучи", e);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> {
+            };
+        }
+    }
+
+    // Не ссылается на список, иначе Cleaner никогда бы не сработал
+    private record Free(ByteBuffer buffer) implements Runnable {
+
+        @Override
+        public void run() {
+            ALLOCATED.addAndGet(-buffer.capacity());
+            FREE.accept(buffer);
+        }
+    }
+}
\ No newline at end of file
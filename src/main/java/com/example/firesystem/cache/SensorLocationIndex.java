@@ -0,0 +1,204 @@
+package com.example.firesystem.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.event.SensorChangedEvent;
+import com.example.firesystem.mapper.SensorMapper;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.util.LocationPath;
+import com.example.firesystem.util.LongObjectMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Префиксное дерево сенсоров по пути местоположения (площадка / здание / этаж / помещение).
+ * Сенсор висит в узле своего пути, сенсоры без пути - в корне. Запрос поддерева обходит только
+ * узлы поддерева, поэтому стоит O(результата), а не O(всех сенсоров).
+ * Синхронизируется событиями SensorService после фиксации транзакции.
+ */
+@Slf4j
+@Component
+public class SensorLocationIndex {
+
+    private static final Comparator<SensorResponseDto> BY_ID = Comparator.comparing(SensorResponseDto::id);
+
+    private final SensorRepository sensorRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node(null, null);
+    private final LongObjectMap<Node> nodeBySensor = new LongObjectMap<>(1024);
+
+    // Изменения, пришедшие во время загрузки, применяются поверх неё
+    private List<SensorChangedEvent> pendingChanges = new ArrayList<>();
+    private volatile boolean ready;
+
+    public SensorLocationIndex(SensorRepository sensorRepository) {
+        this.sensorRepository = sensorRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Строит индекс по базе. Повторный вызов (уведомления от других узлов могли потеряться)
+     * строит его заново; до конца загрузки читатели видят прежнее дерево.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges == null) {
+                pendingChanges = new ArrayList<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<SensorResponseDto> sensors = sensorRepository.findAll().stream()
+                .map(SensorMapper::sensorToSensorDto)
+                .toList();
+
+        lock.writeLock().lock();
+        try {
+            root.children.clear();
+            root.sensors.clear();
+            nodeBySensor.clear();
+            sensors.forEach(this::index);
+            pendingChanges.forEach(this::apply);
+            pendingChanges = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс местоположений построен: {} сенсоров за {} мс", sensors.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+                return;
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Все сенсоры в поддереве пути, по возрастанию id. Пустой путь - все сенсоры.
+     */
+    public List<SensorResponseDto> getSensorsUnder(String path) {
+        List<SensorResponseDto> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node node = find(path);
+            if (node != null) {
+                collect(node, result::add);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(BY_ID);
+        return result;
+    }
+
+    public List<Long> getSensorIdsUnder(String path) {
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node node = find(path);
+            if (node != null) {
+                collect(node, sensor -> result.add(sensor.id()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void apply(SensorChangedEvent event) {
+        unindex(event.sensorId());
+        if (event.after() != null) {
+            index(event.after());
+        }
+    }
+
+    private void index(SensorResponseDto sensor) {
+        unindex(sensor.id());
+        Node node = root;
+        for (String segment : LocationPath.segments(sensor.locationPath())) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node(segment, node);
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.sensors.put(sensor.id(), sensor);
+        nodeBySensor.put(sensor.id(), node);
+    }
+
+    private void unindex(long sensorId) {
+        Node node = nodeBySensor.remove(sensorId);
+        if (node == null) {
+            return;
+        }
+        node.sensors.remove(sensorId);
+        // Пустые ветки удаляются, чтобы обход поддерева не проходил по узлам без сенсоров
+        while (node != root && node.sensors.isEmpty() && node.children.isEmpty()) {
+            node.parent.children.remove(node.segment);
+            node = node.parent;
+        }
+    }
+
+    private Node find(String path) {
+        Node node = root;
+        for (String segment : LocationPath.segments(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static void collect(Node from, Consumer<SensorResponseDto> consumer) {
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            node.sensors.forEachValue(consumer);
+            node.children.values().forEach(stack::push);
+        }
+    }
+
+    private static final class Node {
+        final String segment;
+        final Node parent;
+        final Map<String, Node> children = new HashMap<>();
+        final LongObjectMap<SensorResponseDto> sensors = new LongObjectMap<>(4);
+
+        Node(String segment, Node parent) {
+            this.segment = segment;
+            this.parent = parent;
+        }
+    }
+}
\ No newline at end of file
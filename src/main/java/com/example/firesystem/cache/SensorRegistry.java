@@ -0,0 +1,261 @@
+package com.example.firesystem.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.event.SensorChangedEvent;
+import com.example.firesystem.mapper.SensorMapper;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.util.LongObjectMap;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Весь реестр сенсоров в виде неизменяемого снимка: параллельные массивы полей и таблица id -> индекс.
+ * Читатели берут текущий снимок одним volatile-чтением и ищут в нём без блокировок и без выделения памяти.
+ * Записи копируют реестр в новый снимок и подменяют ссылку целиком; изменения, пришедшие подряд
+ * (пакетная регистрация), сливаются в одну публикацию. Снимок отстаёт от фиксации транзакции
+ * на время публикации, поэтому промах по только что созданному сенсору проверяется по базе; удаление
+ * публикуется сразу. Снимки других узлов отстают до прихода уведомления, так что попадание в снимок
+ * не гарантирует, что строка сенсора ещё существует.
+ * Синхронизируется событиями SensorService после фиксации транзакции.
+ */
+@Slf4j
+@Component
+public class SensorRegistry {
+
+    private final SensorRepository sensorRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean ready;
+
+    // Рабочая копия реестра, из которой собираются снимки; только под монитором на ней самой
+    private final LongObjectMap<SensorResponseDto> sensors = new LongObjectMap<>(1024);
+    // Изменения, пришедшие во время загрузки, применяются поверх неё
+    private List<SensorChangedEvent> pendingChanges = new ArrayList<>();
+    private long version;
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final ExecutorService publisher;
+
+    public SensorRegistry(SensorRepository sensorRepository, MeterRegistry meterRegistry) {
+        this.sensorRepository = sensorRepository;
+        this.publisher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("sensors.registry.size", this, registry -> registry.snapshot.size())
+                .description("Сенсоры в снимке реестра")
+                .register(meterRegistry);
+        Gauge.builder("sensors.registry.version", this, registry -> registry.snapshot.version())
+                .description("Номер опубликованного снимка реестра")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        publisher.shutdown();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Текущий снимок. Для нескольких чтений подряд лучше взять снимок один раз: все поля будут из одной версии.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public boolean contains(long sensorId) {
+        return snapshot.indexOf(sensorId) >= 0;
+    }
+
+    // null, если сенсора нет в снимке
+    public String location(long sensorId) {
+        Snapshot current = snapshot;
+        int index = current.indexOf(sensorId);
+        return index >= 0 ? current.location(index) : null;
+    }
+
+    /**
+     * Загружает реестр из базы. Повторный вызов (уведомления от других узлов могли потеряться)
+     * собирает реестр заново; до публикации нового снимка читатели видят прежний.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (sensors) {
+            if (pendingChanges == null) {
+                pendingChanges = new ArrayList<>();
+            }
+        }
+        List<SensorResponseDto> loaded = sensorRepository.findAll().stream()
+                .map(SensorMapper::sensorToSensorDto)
+                .toList();
+
+        synchronized (sensors) {
+            sensors.clear();
+            loaded.forEach(sensor -> sensors.put(sensor.id(), sensor));
+            pendingChanges.forEach(this::apply);
+            pendingChanges = null;
+            publish();
+            ready = true;
+        }
+        log.info("Реестр сенсоров загружен: {} сенсоров за {} мс", loaded.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent event) {
+        synchronized (sensors) {
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+                return;
+            }
+            apply(event);
+            // Удалённый сенсор пропадает из снимка до возврата из обработчика, а не при фоновой публикации
+            if (event.after() == null) {
+                publish();
+                return;
+            }
+        }
+        if (publishScheduled.compareAndSet(false, true)) {
+            publisher.execute(() -> {
+                // Сброс до сборки: изменение, пришедшее во время сборки, запланирует следующую публикацию
+                publishScheduled.set(false);
+                synchronized (sensors) {
+                    publish();
+                }
+            });
+        }
+    }
+
+    private void apply(SensorChangedEvent event) {
+        if (event.after() != null) {
+            sensors.put(event.sensorId(), event.after());
+        } else {
+            sensors.remove(event.sensorId());
+        }
+    }
+
+    private void publish() {
+        List<SensorResponseDto> all = new ArrayList<>(sensors.size());
+        sensors.forEachValue(all::add);
+        snapshot = new Snapshot(++version, all);
+    }
+
+    /**
+     * Неизменяемый снимок реестра. Индексы действительны только внутри своего снимка.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, List.of());
+
+        private final long version;
+        private final long[] ids;
+        private final String[] models;
+        private final String[] locations;
+        private final String[] locationPaths;
+        private final long[] owners;
+        // Открытая адресация: ключ 0 - пустая ячейка, id сенсоров всегда положительны
+        private final long[] slotIds;
+        private final int[] slotIndexes;
+        private final int mask;
+
+        Snapshot(long version, List<SensorResponseDto> sensors) {
+            List<SensorResponseDto> sorted = new ArrayList<>(sensors);
+            sorted.sort(Comparator.comparing(SensorResponseDto::id));
+            int size = sorted.size();
+            this.version = version;
+            this.ids = new long[size];
+            this.models = new String[size];
+            this.locations = new String[size];
+            this.locationPaths = new String[size];
+            this.owners = new long[size];
+            int capacity = Integer.highestOneBit(Math.max(4, size * 2) - 1) << 1;
+            this.slotIds = new long[capacity];
+            this.slotIndexes = new int[capacity];
+            this.mask = capacity - 1;
+
+            for (int i = 0; i < size; i++) {
+                SensorResponseDto sensor = sorted.get(i);
+                ids[i] = sensor.id();
+                models[i] = sensor.model();
+                locations[i] = sensor.location();
+                locationPaths[i] = sensor.locationPath();
+                owners[i] = sensor.assignedToUserId() != null ? sensor.assignedToUserId() : 0;
+                int slot = mix(ids[i]) & mask;
+                while (slotIds[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slotIds[slot] = ids[i];
+                slotIndexes[slot] = i;
+            }
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        // Индекс сенсора в массивах снимка или -1
+        public int indexOf(long sensorId) {
+            if (sensorId == 0) {
+                return -1;
+            }
+            int slot = mix(sensorId) & mask;
+            while (slotIds[slot] != 0) {
+                if (slotIds[slot] == sensorId) {
+                    return slotIndexes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        public long id(int index) {
+            return ids[index];
+        }
+
+        public String model(int index) {
+            return models[index];
+        }
+
+        public String location(int index) {
+            return locations[index];
+        }
+
+        public String locationPath(int index) {
+            return locationPaths[index];
+        }
+
+        // 0, если сенсор никому не назначен
+        public long ownerId(int index) {
+            return owners[index];
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.firesystem.cache;
+
+import java.util.ArrayList;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+/**
+ * Кэш, в котором сброс всех записей (@CacheEvict(allEntries = true)) не удаляет значения, а ставит
+ * их на фоновое перечитывание. Пока оно идёт, читатели получают прежнее значение, а не идут в базу
+ * все разом; Caffeine держит не больше одной перезагрузки на ключ. Внутри транзакции перечитывание
+ * откладывается до фиксации, чтобы не загрузить данные до записи.
+ * Точечный evict и invalidate по-прежнему удаляют значения сразу.
+ */
+public class StaleWhileRevalidateCache extends CaffeineCache {
+
+    private final LoadingCache<Object, Object> cache;
+
+    public StaleWhileRevalidateCache(String name, LoadingCache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+        this.cache = cache;
+    }
+
+    @Override
+    public void clear() {
+        revalidate(cache);
+    }
+
+    // Общий для кэшей с перечитыванием вместо сброса: внутри транзакции - после её фиксации
+    static void revalidate(LoadingCache<Object, Object> cache) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAll(cache);
+                }
+            });
+        } else {
+            refreshAll(cache);
+        }
+    }
+
+    private static void refreshAll(LoadingCache<Object, Object> cache) {
+        cache.refreshAll(new ArrayList<>(cache.asMap().keySet()));
+    }
+}
\ No newline at end of file
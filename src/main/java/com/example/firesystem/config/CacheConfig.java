@@ -1,27 +1,176 @@
 package com.example.firesystem.config;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
-import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
 
+import com.example.firesystem.cache.CacheReloader;
+import com.example.firesystem.cache.OffHeapAlertCache;
+import com.example.firesystem.cache.OffHeapAlertList;
+import com.example.firesystem.cache.StaleWhileRevalidateCache;
+import com.example.firesystem.dto.AlertPageDto;
+import com.example.firesystem.dto.SensorListDto;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ограниченные кэши Caffeine (W-TinyLFU) со спецификацией на каждый кэш в caches.specs.
+ * Вес значения - число DTO в нём, поэтому maximumWeight ограничивает объём, а не число ключей.
+ * Статистика включена всегда: Spring Boot публикует её в actuator как cache.gets, cache.evictions,
+ * cache.load.duration и т. д. Кэши с refreshAfterWrite перечитываются в фоне через CacheReloader.
+ * Промах загружается один раз на ключ: методы объявлены с @Cacheable(sync = true), и параллельные
+ * читатели ждут ту же загрузку. Кэши из caches.stale-while-revalidate при полном сбросе отдают
+ * прежнее значение, пока идёт перечитывание (см. StaleWhileRevalidateCache).
+ * С caches.off-heap.enabled коллекции оповещений из caches.off-heap.caches хранятся вне кучи
+ * (см. OffHeapAlertCache); их maximumWeight заменяется бюджетом caches.off-heap.max-size в байтах на кэш,
+ * а буфер удалённой записи освобождается слушателем удаления.
+ */
+@Slf4j
 @Configuration
 @EnableCaching
 public class CacheConfig {
+
+    private static final Map<String, String> DEFAULT_SPECS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_SPECS.put("sensors", "maximumWeight=500000,expireAfterWrite=30m,refreshAfterWrite=10m");
+        DEFAULT_SPECS.put("sensor", "maximumWeight=100000,expireAfterWrite=30m");
+        DEFAULT_SPECS.put("alerts", "maximumWeight=200000,expireAfterWrite=10m");
+        DEFAULT_SPECS.put("alert", "maximumWeight=100000,expireAfterWrite=10m");
+        DEFAULT_SPECS.put("alertsByStatus", "maximumWeight=500000,expireAfterWrite=10m,refreshAfterWrite=2m");
+        DEFAULT_SPECS.put("alertsBySensor", "maximumWeight=500000,expireAfterWrite=10m");
+    }
+
+    private static final Set<String> DEFAULT_STALE_WHILE_REVALIDATE = Set.of("sensors", "alertsByStatus");
+    private static final Set<String> DEFAULT_OFF_HEAP = Set.of("alerts", "alertsByStatus", "alertsBySensor");
+
     @Bean
-    CacheManager cacheManager() {
-        SimpleCacheManager scm = new SimpleCacheManager();
-        scm.setCaches(Arrays.asList(
-                new ConcurrentMapCache("sensors"),
-                new ConcurrentMapCache("sensor"),
-                new ConcurrentMapCache("alerts"),
-                new ConcurrentMapCache("alert"),
-                new ConcurrentMapCache("alertsByStatus"),
-                new ConcurrentMapCache("alertsBySensor")));
-        return scm;
+    CacheManager cacheManager(Environment environment, ObjectProvider<CacheReloader> reloaders,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, String> specs = new LinkedHashMap<>(DEFAULT_SPECS);
+        specs.putAll(Binder.get(environment)
+                .bind("caches.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of()));
+
+        Set<String> staleWhileRevalidate = Binder.get(environment)
+                .bind("caches.stale-while-revalidate", Bindable.setOf(String.class))
+                .orElse(DEFAULT_STALE_WHILE_REVALIDATE);
+        boolean offHeapEnabled = Binder.get(environment)
+                .bind("caches.off-heap.enabled", Boolean.class)
+                .orElse(false);
+        Set<String> offHeap = offHeapEnabled
+                ? Binder.get(environment)
+                        .bind("caches.off-heap.caches", Bindable.setOf(String.class))
+                        .orElse(DEFAULT_OFF_HEAP)
+                : Set.of();
+        long offHeapBytes = Binder.get(environment)
+                .bind("caches.off-heap.max-size", DataSize.class)
+                .orElse(DataSize.ofMegabytes(256))
+                .toBytes();
+
+        CaffeineCacheManager manager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (offHeap.contains(name)) {
+                    return new OffHeapAlertCache(name, cache, isAllowNullValues(),
+                            staleWhileRevalidate.contains(name));
+                }
+                if (staleWhileRevalidate.contains(name) && cache instanceof LoadingCache<Object, Object> loading) {
+                    return new StaleWhileRevalidateCache(name, loading, isAllowNullValues());
+                }
+                return super.adaptCaffeineCache(name, cache);
+            }
+        };
+        // Только перечисленные кэши, как и раньше с SimpleCacheManager
+        manager.setCacheNames(List.of());
+        specs.forEach((name, spec) -> {
+            Caffeine<Object, Object> builder;
+            CacheLoader<Object, Object> loader = loader(name, reloaders);
+            if (offHeap.contains(name)) {
+                // Ограничение по числу DTO вне кучи не имеет смысла: вес - байты буфера
+                builder = Caffeine.from(withoutMaximum(spec)).recordStats()
+                        .maximumWeight(offHeapBytes)
+                        .weigher(OffHeapAlertCache::weigh)
+                        // Буфер освобождается сразу при вытеснении, истечении или замене, а не сборщиком
+                        .removalListener((Object key, Object value, RemovalCause cause) ->
+                                OffHeapAlertCache.release(value));
+                // Перечитанное в фоне значение идёт мимо toStoreValue, кодируем его здесь
+                CacheLoader<Object, Object> heapLoader = loader;
+                loader = key -> OffHeapAlertCache.encode(heapLoader.load(key));
+            } else {
+                builder = Caffeine.from(spec).recordStats();
+                if (spec.contains("maximumWeight")) {
+                    builder.weigher(CacheConfig::weigh);
+                }
+            }
+            if (spec.contains("refreshAfterWrite")) {
+                manager.registerCustomCache(name, builder.build(loader));
+            } else {
+                manager.registerCustomCache(name, builder.build());
+            }
+            if (staleWhileRevalidate.contains(name) && !spec.contains("refreshAfterWrite")) {
+                log.warn("Кэш {} без refreshAfterWrite не может отдавать устаревшее значение при сбросе", name);
+            }
+            log.debug("Кэш {}: {}{}", name, spec, offHeap.contains(name) ? ", вне кучи" : "");
+        });
+        if (!offHeap.isEmpty()) {
+            meterRegistry.ifAvailable(registry -> Gauge
+                    .builder("caches.offheap.bytes", OffHeapAlertList::allocatedBytes)
+                    .description("Память вне кучи под списки оповещений в кэшах")
+                    .baseUnit("bytes")
+                    .register(registry));
+        }
+        return manager;
+    }
+
+    private static String withoutMaximum(String spec) {
+        return Arrays.stream(spec.split(","))
+                .filter(option -> !option.trim().startsWith("maximum"))
+                .collect(Collectors.joining(","));
+    }
+
+    // Загрузчики ищутся при вызове: сервисы, реализующие CacheReloader, сами зависят от кэшей
+    private static CacheLoader<Object, Object> loader(String cacheName, ObjectProvider<CacheReloader> reloaders) {
+        return key -> reloaders.orderedStream()
+                .filter(reloader -> reloader.reloads(cacheName))
+                .findFirst()
+                .map(reloader -> reloader.reload(cacheName, key))
+                .orElse(null);
+    }
+
+    private static int weigh(Object key, Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof AlertPageDto page) {
+            return Math.max(1, page.alerts().size());
+        }
+        if (value instanceof SensorListDto list) {
+            return Math.max(1, list.sensors().size());
+        }
+        return 1;
     }
 }
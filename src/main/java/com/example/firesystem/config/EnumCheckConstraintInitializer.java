@@ -0,0 +1,56 @@
+package com.example.firesystem.config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Расширяет check-ограничения, которые Hibernate создаёт для @Enumerated(STRING) колонок.
+ * ddl-auto: update не трогает уже существующие ограничения, поэтому без этого
+ * новое значение enum нельзя было бы записать в старую базу.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EnumCheckConstraintInitializer implements ApplicationRunner {
+
+    // таблица.колонка -> enum, значения которого колонка должна принимать
+    private static final Map<String, Class<? extends Enum<?>>> COLUMNS = Map.of(
+            "alerts.type", EventType.class,
+            "alerts.status", StatusType.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        COLUMNS.forEach((column, type) -> {
+            String table = column.substring(0, column.indexOf('.'));
+            String name = column.substring(column.indexOf('.') + 1);
+            String constraint = table + "_" + name + "_check";
+            List<String> values = Arrays.stream(type.getEnumConstants())
+                    .map(value -> "'" + value.name() + "'")
+                    .toList();
+
+            List<String> definition = jdbcTemplate.queryForList("select pg_get_constraintdef(oid) from pg_constraint "
+                    + "where conname = ? and conrelid = to_regclass(?)", String.class, constraint, table);
+            if (definition.isEmpty() || values.stream().allMatch(definition.get(0)::contains)) {
+                return;
+            }
+            jdbcTemplate.execute("alter table " + table + " drop constraint " + constraint);
+            jdbcTemplate.execute("alter table " + table + " add constraint " + constraint + " check (" + name
+                    + " in (" + String.join(", ", values) + "))");
+            log.info("Ограничение {} расширено до значений {}", constraint, values);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.example.firesystem.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Регионы кэша второго уровня Hibernate в локальном Caffeine через JCache.
+ * Кэшируются справочные сущности, которые читаются на каждом запросе и почти не меняются:
+ * Sensor, User, Role, Permission и права роли. Спецификация региона (maximumSize, expireAfterWrite)
+ * берётся из caches.hibernate.regions поверх значений по умолчанию.
+ * Пользователи, роли и права живут в кэше 1 ч только при caches.coherence.enabled: без уведомлений
+ * смена роли или блокировка на другом узле видна здесь лишь по истечении записи, поэтому срок - 1 мин.
+ * Регион меток обновления таблиц не ограничивается и не истекает: без него кэш запросов отдал бы
+ * результат, устаревший после записи в таблицу.
+ */
+@Slf4j
+@Configuration
+public class HibernateCacheConfig {
+
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+    private static final Map<String, String> DEFAULT_REGIONS = new LinkedHashMap<>();
+    // Регионы прав доступа -> maximumSize; срок зависит от согласования кэшей между узлами
+    private static final Map<String, Integer> ACCESS_REGIONS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_REGIONS.put("entity.sensor", "maximumSize=200000,expireAfterWrite=1h");
+        ACCESS_REGIONS.put("entity.user", 10000);
+        ACCESS_REGIONS.put("entity.role", 1000);
+        ACCESS_REGIONS.put("entity.role.permissions", 1000);
+        ACCESS_REGIONS.put("entity.permission", 1000);
+        DEFAULT_REGIONS.put("default-query-results-region", "maximumSize=10000,expireAfterWrite=10m");
+        DEFAULT_REGIONS.put(UPDATE_TIMESTAMPS, "");
+    }
+
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(Environment environment) {
+        Map<String, String> regions = new LinkedHashMap<>(DEFAULT_REGIONS);
+        String accessTtl = environment.getProperty("caches.coherence.enabled", Boolean.class, false) ? "1h" : "1m";
+        ACCESS_REGIONS.forEach((region, size) ->
+                regions.put(region, "maximumSize=" + size + ",expireAfterWrite=" + accessTtl));
+        regions.putAll(Binder.get(environment)
+                .bind("caches.hibernate.regions", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of()));
+
+        // Свой менеджер на каждый контекст: тесты поднимают несколько контекстов в одной JVM
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("firesystem-hibernate-" + UUID.randomUUID()),
+                        getClass().getClassLoader());
+        regions.forEach((region, spec) -> {
+            manager.createCache(region, configuration(region, region.equals(UPDATE_TIMESTAMPS) ? "" : spec));
+            log.debug("Регион кэша второго уровня {}: {}", region, spec);
+        });
+        return manager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuration(String region, String spec) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        for (String option : spec.split(",")) {
+            if (option.isBlank()) {
+                continue;
+            }
+            String[] pair = option.trim().split("=", 2);
+            switch (pair[0]) {
+                case "maximumSize" -> configuration.setMaximumSize(OptionalLong.of(Long.parseLong(pair[1])));
+                case "expireAfterWrite" -> {
+                    Duration ttl = DurationStyle.detectAndParse(pair[1]);
+                    configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+                }
+                default -> throw new IllegalArgumentException(
+                        "Неизвестный параметр региона " + region + ": " + option);
+            }
+        }
+        return configuration;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.example.firesystem.config;
+
+import java.util.Map;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Подтягивает pooled-последовательности к уже существующим id.
+ * Таблицы, созданные с IDENTITY, продолжают работать после перехода на SEQUENCE:
+ * последовательность никогда не выдаст id, который уже занят строкой или пулом другого узла.
+ * Выполняется при создании бина, после схемы Hibernate, но до запуска веб-сервера и приёмника шлюзов
+ * (GatewayServer зависит от этого бина): ApplicationRunner запускался бы, когда записи уже принимаются.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceInitializer {
+
+    // последовательность -> таблица; шаг совпадает с allocationSize в @SequenceGenerator
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "alerts_seq", "alerts",
+            "sensors_seq", "sensor");
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            Long value = jdbcTemplate.queryForObject(
+                    "select setval('" + sequence + "', greatest((select last_value from " + sequence + "), "
+                            + "(select coalesce(max(id), 0) + " + ALLOCATION_SIZE + " from " + table + ")))",
+                    Long.class);
+            log.debug("Последовательность {} выровнена по таблице {}: {}", sequence, table, value);
+        });
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import com.example.firesystem.jwt.JwtAuthEntryPoint;
 import com.example.firesystem.jwt.JwtAuthFilter;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +52,8 @@ public class SecurityConfig {
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable);
         http.authorizeHttpRequests(auth -> {
+            // Асинхронные диспатчи (SSE, потоковая выгрузка) уже прошли проверку в исходном запросе
+            auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
             auth.requestMatchers(ALLOWED_URLS).permitAll();
             auth.requestMatchers("/api/auth/login", "/api/auth/refresh",
                     "/api/auth/register").permitAll();
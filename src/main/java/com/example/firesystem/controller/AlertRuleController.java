@@ -0,0 +1,107 @@
+package com.example.firesystem.controller;
+
+import com.example.firesystem.dto.AlertRuleDto;
+import com.example.firesystem.dto.AlertRuleRequestDto;
+import com.example.firesystem.rules.RuleEngine;
+import com.example.firesystem.service.AlertRuleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/rules")
+@RequiredArgsConstructor
+@Tag(name = "Alert Rules", description = "Rules evaluated against incoming sensor readings")
+public class AlertRuleController {
+
+    private final AlertRuleService alertRuleService;
+    private final RuleEngine ruleEngine;
+
+    @Operation(summary = "Get All Rules", description = "Retrieves all reading rules, including disabled ones")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping
+    public ResponseEntity<List<AlertRuleDto>> getAllRules() {
+        return ResponseEntity.ok(alertRuleService.getAllRules());
+    }
+
+    @Operation(summary = "Get Rule by ID", description = "Retrieves a specific reading rule")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/{id}")
+    public ResponseEntity<AlertRuleDto> getRuleById(
+            @Parameter(description = "ID of the rule", required = true) @PathVariable Long id) {
+        return ResponseEntity.ok(alertRuleService.getRuleById(id));
+    }
+
+    @Operation(summary = "Create Rule", description = "Creates a rule; it takes effect without restarting ingestion")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping
+    public ResponseEntity<AlertRuleDto> createRule(@RequestBody AlertRuleRequestDto request) {
+        validate(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(alertRuleService.createRule(request));
+    }
+
+    @Operation(summary = "Update Rule", description = "Replaces a rule; rules left unchanged keep their evaluation state")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PutMapping("/{id}")
+    public ResponseEntity<AlertRuleDto> updateRule(
+            @Parameter(description = "ID of the rule", required = true) @PathVariable Long id,
+            @RequestBody AlertRuleRequestDto request) {
+        validate(request);
+        return ResponseEntity.ok(alertRuleService.updateRule(id, request));
+    }
+
+    @Operation(summary = "Delete Rule", description = "Deletes a reading rule")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRule(
+            @Parameter(description = "ID of the rule", required = true) @PathVariable Long id) {
+        alertRuleService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Reload Rules", description = "Re-reads enabled rules from the database, e.g. after editing the table directly")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping("/reload")
+    public ResponseEntity<Void> reloadRules() {
+        ruleEngine.reload();
+        return ResponseEntity.accepted().build();
+    }
+
+    private void validate(AlertRuleRequestDto request) {
+        if (request.name() == null || request.kind() == null || request.readingType() == null
+                || request.threshold() == null || request.eventType() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "name, kind, readingType, threshold and eventType are required");
+        }
+        switch (request.kind()) {
+            case rate_of_rise -> requirePositive(request.windowSeconds(), "windowSeconds");
+            case n_of_m -> {
+                requirePositive(request.m(), "m");
+                requirePositive(request.n(), "n");
+                if (request.m() > 64 || request.n() > request.m()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "n_of_m requires n <= m <= 64");
+                }
+            }
+            case location -> {
+                requirePositive(request.windowSeconds(), "windowSeconds");
+                requirePositive(request.n(), "n");
+            }
+            case threshold -> {
+            }
+        }
+    }
+
+    private void requirePositive(Integer value, String field) {
+        if (value == null || value <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + " must be positive for this rule kind");
+        }
+    }
+}
\ No newline at end of file
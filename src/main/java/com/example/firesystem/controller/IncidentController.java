@@ -1,18 +1,44 @@
 package com.example.firesystem.controller;
 
+import com.example.firesystem.cache.EncodedResponseCache;
+import com.example.firesystem.dto.AlertBatchResponseDto;
 import com.example.firesystem.dto.AlertDto;
 import com.example.firesystem.dto.AlertRequestDto;
+import com.example.firesystem.dto.AlertStatsDto;
+import com.example.firesystem.dto.AlertTicketDto;
+import com.example.firesystem.service.AlertIngestPipeline;
+import com.example.firesystem.service.AlertRollupService;
 import com.example.firesystem.service.AlertService;
+import com.example.firesystem.service.AlertStreamService;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import com.example.firesystem.enums.RollupGranularity;
+import com.example.firesystem.enums.StatsGrouping;
 import com.example.firesystem.enums.StatusType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -21,12 +47,68 @@ import java.util.List;
 public class IncidentController {
 
     private final AlertService alertService;
+    private final AlertStreamService alertStreamService;
+    private final AlertRollupService alertRollupService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<AlertIngestPipeline> ingestPipeline;
+    private final EncodedResponseCache encodedResponses;
 
-    @Operation(summary = "Get All Alerts", description = "Retrieves a list of all alerts with optional filtering")
+    @Operation(summary = "Get Alerts Page", description = "Retrieves alerts ordered by ID using keyset pagination: pass the nextAfter value of the previous page as after; supports If-None-Match and gzip")
     @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
     @GetMapping
-    public ResponseEntity<List<AlertDto>> getAllAlerts() {
-        return ResponseEntity.ok(alertService.getAllAlerts());
+    public ResponseEntity<byte[]> getAlertsPage(
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+            WebRequest request) {
+        return encodedResponses.respond(alertService.getAlertsPage(after, limit), request);
+    }
+
+    @Operation(summary = "Export All Alerts", description = "Streams every alert as a JSON array while the database cursor advances")
+    @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAlerts() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                alertService.streamAllAlerts(alert -> {
+                    try {
+                        generator.writeObject(alert);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @Operation(summary = "Stream Alert Changes", description = "Server-Sent Events feed of alert creations, status changes, assignments and photo changes, optionally filtered by status or sensor")
+    @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(
+            @RequestParam(required = false) StatusType status,
+            @RequestParam(required = false) Long sensorId) {
+        return alertStreamService.subscribe(status, sensorId);
+    }
+
+    @Operation(summary = "Get Alert Statistics", description = "Returns alert counts by event type and status per minute, hour or day, served from incrementally maintained rollups")
+    @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
+    @GetMapping("/stats")
+    public ResponseEntity<AlertStatsDto> getAlertStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") RollupGranularity granularity,
+            @RequestParam(defaultValue = "total") StatsGrouping groupBy) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        if (granularity.bucketsBetween(from, to) > AlertRollupService.MAX_BUCKETS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Too many " + granularity + " buckets in the requested range, at most "
+                            + AlertRollupService.MAX_BUCKETS + " allowed");
+        }
+        return ResponseEntity.ok(alertRollupService.getStats(from, to, granularity, groupBy));
     }
 
     @Operation(summary = "Get Alert by ID", description = "Retrieves a specific alert by its unique identifier")
@@ -36,25 +118,83 @@ public class IncidentController {
         return ResponseEntity.ok(alertService.getAlertById(id));
     }
 
-    @Operation(summary = "Get Alerts by Status", description = "Retrieves a list of alerts by Status")
+    @Operation(summary = "Get Alerts by Status", description = "Retrieves a list of alerts by Status, optionally limited to the [from, to) time range; without a range supports If-None-Match and gzip")
     @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<AlertDto>> getAlertsByStatus(@PathVariable StatusType status) {
-        return ResponseEntity.ok(alertService.getAlertsByStatus(status));
+    public ResponseEntity<?> getAlertsByStatus(@PathVariable StatusType status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest request) {
+        if (from == null && to == null) {
+            return encodedResponses.respond(alertService.getAlertsByStatus(status), request);
+        }
+        return ResponseEntity.ok(alertService.getAlertsByStatus(status, from, to));
     }
 
-    @Operation(summary = "Get Alerts by Sensor", description = "Retrieves a list of alerts by Sensor")
+    @Operation(summary = "Get Alerts by Sensor", description = "Retrieves a list of alerts by Sensor, optionally limited to the [from, to) time range; without a range supports If-None-Match and gzip")
     @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
     @GetMapping("/sensor/{sensorId}")
-    public ResponseEntity<List<AlertDto>> getAlertsBySensor(@PathVariable Long sensorId) {
-        return ResponseEntity.ok(alertService.getAlertsBySensor(sensorId));
+    public ResponseEntity<?> getAlertsBySensor(@PathVariable Long sensorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest request) {
+        if (from == null && to == null) {
+            return encodedResponses.respond(alertService.getAlertsBySensor(sensorId), request);
+        }
+        return ResponseEntity.ok(alertService.getAlertsBySensor(sensorId, from, to));
     }
 
-    @Operation(summary = "Create New Alert", description = "Creates a new alert in the system")
+    @Operation(summary = "Get Open Alerts by Sensor", description = "Retrieves new and in-progress alerts of a Sensor from the in-memory active alert store")
+    @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
+    @GetMapping("/sensor/{sensorId}/open")
+    public ResponseEntity<List<AlertDto>> getOpenAlertsBySensor(@PathVariable Long sensorId) {
+        return ResponseEntity.ok(alertService.getOpenAlertsBySensor(sensorId));
+    }
+
+    @Operation(summary = "Get Open Alerts by Location", description = "Retrieves new and in-progress alerts of all sensors under a location path such as building-2/floor-3")
+    @PreAuthorize("hasAnyAuthority('ALERT_READ', 'ADMIN')")
+    @GetMapping("/location/open")
+    public ResponseEntity<List<AlertDto>> getOpenAlertsByLocation(@RequestParam(defaultValue = "") String path) {
+        return ResponseEntity.ok(alertService.getOpenAlertsByLocation(path));
+    }
+
+    @Operation(summary = "Create New Alert", description = "Creates a new alert in the system; with asynchronous ingest enabled answers 202 with a ticket")
     @PreAuthorize("hasAnyAuthority('ALERT_CREATE', 'ADMIN')")
     @PostMapping
-    public ResponseEntity<AlertDto> createAlert(@Valid @RequestBody AlertRequestDto alertRequestDto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(alertService.createAlert(alertRequestDto));
+    public ResponseEntity<?> createAlert(@Valid @RequestBody AlertRequestDto alertRequestDto) {
+        AlertIngestPipeline pipeline = ingestPipeline.getIfAvailable();
+        if (pipeline == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(alertService.createAlert(alertRequestDto));
+        }
+        AlertTicketDto ticket = pipeline.submit(alertRequestDto);
+        if (ticket == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Alert ingest buffer is full");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+    }
+
+    @Operation(summary = "Get Alert Ticket", description = "Returns the state of an asynchronously accepted alert, optionally waiting for its commit")
+    @PreAuthorize("hasAnyAuthority('ALERT_CREATE', 'ADMIN')")
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<AlertTicketDto> getTicket(@PathVariable long ticketId,
+            @RequestParam(defaultValue = "0") long waitMillis) {
+        AlertIngestPipeline pipeline = ingestPipeline.getIfAvailable();
+        if (pipeline == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Asynchronous alert ingest is disabled");
+        }
+        return ResponseEntity.ok(pipeline.getTicket(ticketId, waitMillis));
+    }
+
+    @Operation(summary = "Create Alerts in Batch", description = "Creates many alerts in one transaction with batched inserts and reports the result of every item")
+    @PreAuthorize("hasAnyAuthority('ALERT_CREATE', 'ADMIN')")
+    @PostMapping("/batch")
+    public ResponseEntity<AlertBatchResponseDto> createAlerts(
+            @RequestBody @Size(min = 1, max = 5000) List<@Valid AlertRequestDto> alertRequestDtos) {
+        AlertBatchResponseDto response = alertService.createAlerts(alertRequestDtos);
+        if (response.failureCount() > 0) {
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @Operation(summary = "Update Alert", description = "Updates an existing alert")
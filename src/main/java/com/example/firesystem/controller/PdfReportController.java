@@ -35,6 +35,21 @@ public class PdfReportController {
                 .body(pdfBytes);
     }
 
+    @Operation(summary = "PDF отчет по открытым оповещениям поддерева местоположения")
+    @GetMapping("/location/pdf")
+    public ResponseEntity<byte[]> generateLocationPdfReport(@RequestParam(defaultValue = "") String path) {
+        byte[] pdfBytes = pdfReportService.generateLocationReport(path);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("filename", "location_report.pdf");
+        headers.setContentLength(pdfBytes.length);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(pdfBytes);
+    }
+
     @Operation(summary = "Простой тестовый PDF")
     @GetMapping("/alert/{alertId}/simple")
     public ResponseEntity<byte[]> generateSimplePdf(@PathVariable Long alertId) {
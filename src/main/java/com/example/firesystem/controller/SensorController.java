@@ -1,18 +1,36 @@
 package com.example.firesystem.controller;
 
+import com.example.firesystem.cache.EncodedResponseCache;
+import com.example.firesystem.dto.SensorAssignmentDto;
+import com.example.firesystem.dto.SensorBulkItemDto;
+import com.example.firesystem.dto.SensorBulkResponseDto;
+import com.example.firesystem.dto.SensorChangesDto;
+import com.example.firesystem.dto.SensorHeartbeatDto;
+import com.example.firesystem.dto.SensorListDto;
+import com.example.firesystem.dto.SensorReadingRequestDto;
+import com.example.firesystem.dto.SensorReadingsDto;
 import com.example.firesystem.dto.SensorRequestDto;
 import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.service.SensorHeartbeatMonitor;
+import com.example.firesystem.service.SensorReadingService;
 import com.example.firesystem.service.SensorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -22,12 +40,35 @@ import java.util.List;
 public class SensorController {
 
     private final SensorService sensorService;
+    private final SensorHeartbeatMonitor heartbeatMonitor;
+    private final SensorReadingService sensorReadingService;
+    private final EncodedResponseCache encodedResponses;
 
-    @Operation(summary = "Get All Sensors", description = "Retrieves a list of all sensors")
+    @Operation(summary = "Get All Sensors", description = "Retrieves a list of all sensors; the ETag is the registry version, so If-None-Match with an unchanged list returns 304; supports gzip")
     @PreAuthorize("hasAnyAuthority('SENSOR_READ', 'USER')")
     @GetMapping
-    public ResponseEntity<List<SensorResponseDto>> getAllSensors() {
-        return ResponseEntity.ok(sensorService.getAllSensors());
+    public ResponseEntity<byte[]> getAllSensors(WebRequest request) {
+        SensorListDto sensors = sensorService.getAllSensors();
+        return encodedResponses.respond("\"sensors-" + sensors.version() + "\"", sensors::sensors, request);
+    }
+
+    @Operation(summary = "Get Sensor Changes", description = "Returns sensors created, updated or deleted after the given registry version; without since, or with an unknown version, returns the full list with full = true")
+    @PreAuthorize("hasAnyAuthority('SENSOR_READ', 'USER')")
+    @GetMapping("/changes")
+    public ResponseEntity<SensorChangesDto> getSensorChanges(
+            @Parameter(description = "Registry version the client already has") @RequestParam(required = false) Long since) {
+        if (since != null && since < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "since must not be negative");
+        }
+        return ResponseEntity.ok(sensorService.getChangesSince(since));
+    }
+
+    @Operation(summary = "Get Sensors by Location", description = "Retrieves all sensors under a location path such as building-2/floor-3; an empty path returns every sensor")
+    @PreAuthorize("hasAnyAuthority('SENSOR_READ', 'USER')")
+    @GetMapping("/location")
+    public ResponseEntity<List<SensorResponseDto>> getSensorsByLocation(
+            @Parameter(description = "Location path, segments separated by '/'") @RequestParam(defaultValue = "") String path) {
+        return ResponseEntity.ok(sensorService.getSensorsByLocation(path));
     }
 
     @Operation(summary = "Get Sensor by ID", description = "Retrieves a specific sensor by its unique identifier")
@@ -47,6 +88,30 @@ public class SensorController {
                 .body(sensorService.createSensor(sensorRequestDto));
     }
 
+    @Operation(summary = "Create or Update Sensors in Bulk", description = "Items without id are created, items with id are updated; one transaction with batched writes, per-item results")
+    @PreAuthorize("hasAnyAuthority('SENSOR_CREATE', 'ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<SensorBulkResponseDto> upsertSensors(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Sensors to create or update", required = true) @RequestBody @Size(min = 1, max = 10000) List<SensorBulkItemDto> items) {
+        SensorBulkResponseDto response = sensorService.upsertSensors(items);
+        if (response.failureCount() > 0) {
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Assign Sensors in Bulk", description = "Assigns each sensor to the given user, or unassigns it when userId is null; one transaction, per-item results")
+    @PreAuthorize("hasAnyAuthority('SENSOR_ASSIGN', 'ADMIN')")
+    @PutMapping("/bulk/assign")
+    public ResponseEntity<SensorBulkResponseDto> assignSensors(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Sensor to user assignments", required = true) @RequestBody @Size(min = 1, max = 10000) List<SensorAssignmentDto> assignments) {
+        SensorBulkResponseDto response = sensorService.assignSensors(assignments);
+        if (response.failureCount() > 0) {
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(summary = "Update Sensor", description = "Updates an existing sensor")
     @PreAuthorize("hasAnyAuthority('SENSOR_UPDATE', 'ADMIN')")
     @PutMapping("/{id}")
@@ -66,6 +131,59 @@ public class SensorController {
         return ResponseEntity.noContent().build();
     }
 
+    @Operation(summary = "Sensor Heartbeat", description = "Marks the sensor as alive; only updates in-memory liveness state")
+    @PreAuthorize("hasAnyAuthority('SENSOR_UPDATE', 'ADMIN')")
+    @PostMapping("/{id}/heartbeat")
+    public ResponseEntity<Void> heartbeat(
+            @Parameter(description = "ID of the sensor sending the heartbeat", required = true) @PathVariable Long id) {
+        heartbeatMonitor.beat(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get Sensor Liveness", description = "Returns the last heartbeat time of the sensor and whether it is considered online")
+    @PreAuthorize("hasAnyAuthority('SENSOR_READ', 'ADMIN')")
+    @GetMapping("/{id}/heartbeat")
+    public ResponseEntity<SensorHeartbeatDto> getHeartbeat(
+            @Parameter(description = "ID of the sensor", required = true) @PathVariable Long id) {
+        return ResponseEntity.ok(heartbeatMonitor.status(id));
+    }
+
+    @Operation(summary = "Write Sensor Readings", description = "Queues a batch of temperature / smoke density / CO readings for the compressed time-series store")
+    @PreAuthorize("hasAnyAuthority('SENSOR_UPDATE', 'ADMIN')")
+    @PostMapping("/{id}/readings")
+    public ResponseEntity<Void> appendReadings(
+            @Parameter(description = "ID of the sensor", required = true) @PathVariable Long id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Readings to store", required = true) @RequestBody List<SensorReadingRequestDto> readings) {
+        for (SensorReadingRequestDto reading : readings) {
+            if (reading.type() == null || reading.timestamp() == null || reading.value() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "type, timestamp and value are required");
+            }
+        }
+        if (!sensorReadingService.append(id, readings)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Readings queue is full, retry later");
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @Operation(summary = "Get Sensor Readings", description = "Returns readings in the [from, to) range: raw points, or avg/min/max/count per step seconds when step > 0")
+    @PreAuthorize("hasAnyAuthority('SENSOR_READ', 'ADMIN')")
+    @GetMapping("/{id}/readings")
+    public ResponseEntity<SensorReadingsDto> getReadings(
+            @Parameter(description = "ID of the sensor", required = true) @PathVariable Long id,
+            @RequestParam(defaultValue = "temperature") ReadingType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Bucket size in seconds, 0 for raw points") @RequestParam(defaultValue = "0") long step) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        if (step < 0 || (step > 0 && Duration.between(from, to).toSeconds() / step >= SensorReadingService.MAX_BUCKETS)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "step must be 0 or give at most " + SensorReadingService.MAX_BUCKETS + " buckets in the requested range");
+        }
+        return ResponseEntity.ok(sensorReadingService.getReadings(id, type, from, to, step));
+    }
+
     @Operation(summary = "Assign Sensor to User", description = "Assigns a sensor to a specific user")
     @PreAuthorize("hasAnyAuthority('SENSOR_ASSIGN', 'ADMIN')")
     @PutMapping("/{id}/assign")
@@ -0,0 +1,10 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+
+public record AlertBatchItemResultDto(
+        int index,
+        boolean success,
+        AlertDto alert,
+        String error) implements Serializable {
+}
@@ -0,0 +1,11 @@
+package com.example.firesystem.dto;
+
+import java.util.List;
+
+public record AlertBatchResponseDto(
+        int totalCount,
+        int successCount,
+        int failureCount,
+        List<AlertBatchItemResultDto> results) {
+
+}
@@ -13,6 +13,13 @@ public record AlertDto(
         LocalDateTime timestamp,
         String description,
         StatusType status,
-        List<String> photoUrls
+        List<String> photoUrls,
+        Integer occurrences,
+        LocalDateTime lastSeen
 ) implements Serializable {
+
+    public AlertDto repeated(int count, LocalDateTime seenAt) {
+        int previous = occurrences != null ? occurrences : 1;
+        return new AlertDto(id, sensorId, type, timestamp, description, status, photoUrls, previous + count, seenAt);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+public record AlertPageDto(
+        List<AlertDto> alerts,
+        Long nextAfter) implements Serializable {
+}
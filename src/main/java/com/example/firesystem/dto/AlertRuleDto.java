@@ -0,0 +1,19 @@
+package com.example.firesystem.dto;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.RuleKind;
+
+public record AlertRuleDto(
+        Long id,
+        String name,
+        RuleKind kind,
+        ReadingType readingType,
+        double threshold,
+        Integer windowSeconds,
+        Integer n,
+        Integer m,
+        String location,
+        EventType eventType,
+        boolean enabled) {
+}
\ No newline at end of file
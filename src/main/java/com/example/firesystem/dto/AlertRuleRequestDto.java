@@ -0,0 +1,18 @@
+package com.example.firesystem.dto;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.RuleKind;
+
+public record AlertRuleRequestDto(
+        String name,
+        RuleKind kind,
+        ReadingType readingType,
+        Double threshold,
+        Integer windowSeconds,
+        Integer n,
+        Integer m,
+        String location,
+        EventType eventType,
+        Boolean enabled) {
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.firesystem.dto;
+
+import com.example.firesystem.enums.RollupGranularity;
+import com.example.firesystem.enums.StatsGrouping;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record AlertStatsDto(
+        RollupGranularity granularity,
+        StatsGrouping groupBy,
+        LocalDateTime from,
+        LocalDateTime to,
+        List<AlertStatsRowDto> rows
+) {
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.firesystem.dto;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+import java.time.LocalDateTime;
+
+public record AlertStatsRowDto(
+        LocalDateTime bucket,
+        Long sensorId,
+        String location,
+        EventType type,
+        StatusType status,
+        long count
+) {
+}
\ No newline at end of file
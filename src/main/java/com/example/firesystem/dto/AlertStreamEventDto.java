@@ -0,0 +1,12 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+
+import com.example.firesystem.enums.AlertChangeType;
+
+public record AlertStreamEventDto(
+        long sequence,
+        AlertChangeType type,
+        Long alertId,
+        AlertDto alert) implements Serializable {
+}
@@ -0,0 +1,12 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+
+import com.example.firesystem.enums.TicketStatus;
+
+public record AlertTicketDto(
+        long ticketId,
+        TicketStatus status,
+        AlertDto alert,
+        String error) implements Serializable {
+}
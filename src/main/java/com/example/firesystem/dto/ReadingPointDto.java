@@ -0,0 +1,11 @@
+package com.example.firesystem.dto;
+
+import java.time.LocalDateTime;
+
+public record ReadingPointDto(
+        LocalDateTime timestamp,
+        double value,
+        double min,
+        double max,
+        int count) {
+}
\ No newline at end of file
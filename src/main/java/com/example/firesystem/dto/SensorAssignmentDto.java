@@ -0,0 +1,6 @@
+package com.example.firesystem.dto;
+
+public record SensorAssignmentDto(
+                Long sensorId,
+                Long userId) {
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+
+public record SensorBulkItemDto(
+                Long id,
+                String model,
+                String location,
+                String locationPath,
+                Long userId) implements Serializable {
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+
+public record SensorBulkItemResultDto(
+        int index,
+        boolean success,
+        SensorResponseDto sensor,
+        String error) implements Serializable {
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.firesystem.dto;
+
+import java.util.List;
+
+public record SensorBulkResponseDto(
+        int totalCount,
+        int successCount,
+        int failureCount,
+        List<SensorBulkItemResultDto> results) {
+
+}
\ No newline at end of file
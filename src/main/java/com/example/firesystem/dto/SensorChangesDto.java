@@ -0,0 +1,14 @@
+package com.example.firesystem.dto;
+
+import java.util.List;
+
+/**
+ * Изменения реестра сенсоров после версии since. full = true - полный список вместо дельты
+ * (since не передан или неизвестен серверу): клиент заменяет свой реестр целиком.
+ */
+public record SensorChangesDto(
+        long version,
+        boolean full,
+        List<SensorResponseDto> changed,
+        List<Long> deleted) {
+}
\ No newline at end of file
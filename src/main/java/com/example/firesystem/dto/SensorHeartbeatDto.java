@@ -0,0 +1,9 @@
+package com.example.firesystem.dto;
+
+import java.time.LocalDateTime;
+
+public record SensorHeartbeatDto(
+        Long sensorId,
+        LocalDateTime lastSeen,
+        boolean online) {
+}
\ No newline at end of file
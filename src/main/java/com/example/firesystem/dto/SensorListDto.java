@@ -0,0 +1,13 @@
+package com.example.firesystem.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Полный список сенсоров вместе с версией реестра, прочитанной до него.
+ * Кэшируются одним значением: ETag по версии всегда соответствует отдаваемому списку.
+ */
+public record SensorListDto(
+        long version,
+        List<SensorResponseDto> sensors) implements Serializable {
+}
\ No newline at end of file
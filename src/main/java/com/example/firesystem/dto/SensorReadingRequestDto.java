@@ -0,0 +1,11 @@
+package com.example.firesystem.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.firesystem.enums.ReadingType;
+
+public record SensorReadingRequestDto(
+        ReadingType type,
+        LocalDateTime timestamp,
+        Double value) {
+}
\ No newline at end of file
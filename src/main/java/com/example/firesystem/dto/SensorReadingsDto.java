@@ -0,0 +1,16 @@
+package com.example.firesystem.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.firesystem.enums.ReadingType;
+
+public record SensorReadingsDto(
+        Long sensorId,
+        ReadingType type,
+        LocalDateTime from,
+        LocalDateTime to,
+        long step,
+        boolean truncated,
+        List<ReadingPointDto> points) {
+}
\ No newline at end of file
@@ -5,5 +5,6 @@ import java.io.Serializable;
 public record SensorRequestDto(
                 String model,
                 String location,
+                String locationPath,
                 Long userId) implements Serializable {
 }
@@ -6,5 +6,6 @@ public record SensorResponseDto(
                 Long id,
                 String model,
                 String location,
+                String locationPath,
                 Long assignedToUserId) implements Serializable {
 }
\ No newline at end of file
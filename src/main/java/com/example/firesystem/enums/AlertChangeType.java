@@ -0,0 +1,5 @@
+package com.example.firesystem.enums;
+
+public enum AlertChangeType {
+    CREATED, REPEATED, UPDATED, ASSIGNED, STATUS_CHANGED, PHOTO_ADDED, PHOTO_REMOVED, DELETED
+}
@@ -1,5 +1,5 @@
 package com.example.firesystem.enums;
 
 public enum EventType {
-    accident, hard_braking, button
+    accident, hard_braking, button, sensor_offline, high_temperature, smoke, co_leak
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.example.firesystem.enums;
+
+public enum ReadingType {
+    temperature, smoke_density, co
+}
\ No newline at end of file
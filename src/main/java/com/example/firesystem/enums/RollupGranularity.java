@@ -0,0 +1,23 @@
+package com.example.firesystem.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    minute(ChronoUnit.MINUTES), hour(ChronoUnit.HOURS), day(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    // Совпадает с date_trunc(name(), ...) в Postgres
+    public LocalDateTime truncate(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public long bucketsBetween(LocalDateTime from, LocalDateTime to) {
+        return unit.between(truncate(from), to) + 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.example.firesystem.enums;
+
+public enum RuleKind {
+    threshold, rate_of_rise, n_of_m, location
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.example.firesystem.enums;
+
+public enum StatsGrouping {
+    total, sensor, location
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.example.firesystem.enums;
+
+public enum TicketStatus {
+    PENDING, CREATED, FAILED
+}
@@ -0,0 +1,18 @@
+package com.example.firesystem.event;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.AlertChangeType;
+
+/**
+ * Одно изменение оповещения: состояние до и после записи.
+ * before равен null для созданных оповещений, after - для удалённых.
+ */
+public record AlertChange(
+        AlertChangeType type,
+        AlertDto before,
+        AlertDto after) {
+
+    public Long alertId() {
+        return after != null ? after.id() : before.id();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.firesystem.event;
+
+import java.util.List;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.AlertChangeType;
+
+/**
+ * Публикуется AlertService на каждую запись; слушатели получают его после фиксации транзакции.
+ * Пакетные операции складывают все изменения в одно событие.
+ */
+public record AlertChangedEvent(List<AlertChange> changes) {
+
+    public static AlertChangedEvent of(AlertChangeType type, AlertDto before, AlertDto after) {
+        return new AlertChangedEvent(List.of(new AlertChange(type, before, after)));
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.firesystem.event;
+
+import com.example.firesystem.dto.SensorResponseDto;
+
+/**
+ * Публикуется SensorService на каждую запись сенсора; before равен null при создании, after - при удалении.
+ */
+public record SensorChangedEvent(Long sensorId, SensorResponseDto before, SensorResponseDto after) {
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.firesystem.event;
+
+/**
+ * Публикуется UserService на каждую запись пользователя.
+ */
+public record UserChangedEvent(Long userId) {
+}
\ No newline at end of file
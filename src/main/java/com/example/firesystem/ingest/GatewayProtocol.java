@@ -0,0 +1,52 @@
+package com.example.firesystem.ingest;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Двоичный протокол шлюзов. Кадр: длина тела int32 (big-endian), затем тело: тип кадра (1 байт) и данные.
+ *
+ * Сервер сразу после подключения шлёт HELLO с 16-байтовым nonce; шлюз отвечает AUTH
+ * с HMAC-SHA256(psk, nonce) (32 байта), сервер - AUTH_OK или ERROR и закрывает соединение.
+ * После аутентификации:
+ * HEARTBEAT: count(u16), затем count раз sensorId(i64);
+ * READINGS: sensorId(i64) readingType(u8) count(u16), затем count раз timestampMillis(i64) value(f64);
+ * ALERT: sensorId(i64) eventType(u8) descriptionLength(u16) description(UTF-8).
+ * Ответов на данные нет; ERROR с кодом приходит только при отказе, и протокольная ошибка закрывает соединение.
+ */
+public final class GatewayProtocol {
+
+    public static final byte AUTH = 0x01;
+    public static final byte HEARTBEAT = 0x02;
+    public static final byte READINGS = 0x03;
+    public static final byte ALERT = 0x04;
+
+    public static final byte HELLO = 0x10;
+    public static final byte AUTH_OK = 0x11;
+    public static final byte ERROR = 0x1F;
+
+    public static final byte ERROR_AUTH = 1;
+    public static final byte ERROR_PROTOCOL = 2;
+    public static final byte ERROR_UNKNOWN_SENSOR = 3;
+    public static final byte ERROR_BUSY = 4;
+
+    public static final int NONCE_BYTES = 16;
+    public static final int MAC_BYTES = 32;
+    public static final int HEADER_BYTES = 4;
+
+    private GatewayProtocol() {
+    }
+
+    public static byte[] sign(byte[] psk, byte[] nonce) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(psk, "HmacSHA256"));
+            return mac.doFinal(nonce);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("HmacSHA256 недоступен", e);
+        }
+    }
+}
\ No newline at end of file
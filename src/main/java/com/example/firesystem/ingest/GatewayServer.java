@@ -0,0 +1,417 @@
+package com.example.firesystem.ingest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import com.example.firesystem.dto.AlertRequestDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.exception.ResourceNotFoundException;
+import com.example.firesystem.service.AlertIngestPipeline;
+import com.example.firesystem.service.AlertService;
+import com.example.firesystem.service.SensorHeartbeatMonitor;
+import com.example.firesystem.service.SensorReadingService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * TCP-приёмник шлюзов на NIO: один поток с селектором, неблокирующие каналы и direct-буфер
+ * на соединение. Кадры (см. GatewayProtocol) разбираются прямо из буфера и передаются в те же сервисы,
+ * что и REST API, минуя Spring MVC, фильтры безопасности и Jackson. Heartbeat разбирается без
+ * выделения памяти; показания - только в массивы, которые забирает хранилище. Оповещения создаются
+ * вне потока селектора: через AlertIngestPipeline, если он включён, иначе отдельным потоком
+ * с ограниченной очередью. Переполнение очереди и неизвестный сенсор отклоняют данные ответом ERROR,
+ * не разрывая соединение.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ingest.gateway", name = "enabled", havingValue = "true")
+// Порт открывается в @PostConstruct: последовательности id должны быть выровнены раньше
+@DependsOn("idSequenceInitializer")
+public class GatewayServer {
+
+    private static final ReadingType[] READING_TYPES = ReadingType.values();
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final SensorHeartbeatMonitor heartbeatMonitor;
+    private final SensorReadingService sensorReadingService;
+    private final AlertService alertService;
+    private final ObjectProvider<AlertIngestPipeline> ingestPipeline;
+    private final int port;
+    private final byte[] psk;
+    private final int maxFrameBytes;
+    private final int maxConnections;
+    private final long authTimeoutMillis;
+
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ThreadPoolExecutor alertWriter;
+    private volatile int connections;
+    private volatile boolean running = true;
+    private long lastSweep;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    public GatewayServer(
+            SensorHeartbeatMonitor heartbeatMonitor,
+            SensorReadingService sensorReadingService,
+            AlertService alertService,
+            ObjectProvider<AlertIngestPipeline> ingestPipeline,
+            MeterRegistry meterRegistry,
+            @Value("${ingest.gateway.port:7070}") int port,
+            @Value("${ingest.gateway.psk:}") String psk,
+            @Value("${ingest.gateway.max-frame-bytes:16384}") int maxFrameBytes,
+            @Value("${ingest.gateway.max-connections:4096}") int maxConnections,
+            @Value("${ingest.gateway.auth-timeout:10s}") Duration authTimeout,
+            @Value("${ingest.gateway.alert-queue-capacity:1024}") int alertQueueCapacity) {
+        if (psk.isBlank()) {
+            throw new IllegalStateException("ingest.gateway.psk must be set when ingest.gateway.enabled=true");
+        }
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.sensorReadingService = sensorReadingService;
+        this.alertService = alertService;
+        this.ingestPipeline = ingestPipeline;
+        this.port = port;
+        this.psk = psk.getBytes(StandardCharsets.UTF_8);
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxConnections = maxConnections;
+        this.authTimeoutMillis = authTimeout.toMillis();
+        // Без AlertIngestPipeline: ограниченная очередь, переполнение отклоняется ответом ERROR_BUSY
+        this.alertWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(alertQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "gateway-alerts");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("ingest.gateway.connections", this, server -> server.connections)
+                .description("Подключённые шлюзы")
+                .register(meterRegistry);
+        Gauge.builder("ingest.gateway.frames", frames, AtomicLong::get)
+                .description("Принятые кадры данных")
+                .register(meterRegistry);
+        Gauge.builder("ingest.gateway.rejected", rejected, AtomicLong::get)
+                .description("Кадры, отклонённые из-за переполнения или неизвестного сенсора")
+                .register(meterRegistry);
+        Gauge.builder("ingest.gateway.alert-queue", alertWriter, executor -> executor.getQueue().size())
+                .description("Оповещения от шлюзов, ждущие записи без AlertIngestPipeline")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::run, "gateway-selector");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Приёмник шлюзов слушает TCP порт {}", port);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(SELECT_TIMEOUT_MILLIS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        alertWriter.shutdown();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Соединение шлюза {} закрыто: {}", connection.remote, e.toString());
+                            connection.close();
+                        }
+                    }
+                }
+                closeUnauthenticated();
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.error("Ошибка цикла приёмника шлюзов", e);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (connections >= maxConnections) {
+            log.warn("Превышено число подключений шлюзов ({}), {} отклонён", maxConnections, channel.getRemoteAddress());
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections++;
+        connection.hello();
+    }
+
+    private void closeUnauthenticated() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < SELECT_TIMEOUT_MILLIS) {
+            return;
+        }
+        lastSweep = now;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection && !connection.authenticated
+                    && now - connection.acceptedAt > authTimeoutMillis) {
+                log.warn("Шлюз {} не прошёл аутентификацию за {} мс", connection.remote, authTimeoutMillis);
+                connection.close();
+            }
+        }
+    }
+
+    private final class Connection {
+
+        final SocketChannel channel;
+        final String remote;
+        final long acceptedAt = System.currentTimeMillis();
+        final ByteBuffer in = ByteBuffer.allocateDirect(maxFrameBytes + GatewayProtocol.HEADER_BYTES);
+        final ByteBuffer out = ByteBuffer.allocateDirect(64);
+        final byte[] nonce = new byte[GatewayProtocol.NONCE_BYTES];
+        SelectionKey key;
+        boolean authenticated;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void hello() throws IOException {
+            random.nextBytes(nonce);
+            out.putInt(1 + nonce.length).put(GatewayProtocol.HELLO).put(nonce);
+            flush();
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= GatewayProtocol.HEADER_BYTES) {
+                int length = in.getInt(in.position());
+                if (length < 1 || length > maxFrameBytes) {
+                    fail(GatewayProtocol.ERROR_PROTOCOL, "недопустимая длина кадра " + length);
+                    return;
+                }
+                if (in.remaining() < GatewayProtocol.HEADER_BYTES + length) {
+                    break;
+                }
+                int end = in.position() + GatewayProtocol.HEADER_BYTES + length;
+                in.position(in.position() + GatewayProtocol.HEADER_BYTES);
+                byte type = in.get();
+                if (!frame(type, end)) {
+                    return;
+                }
+                in.position(end);
+            }
+            in.compact();
+        }
+
+        // false - соединение закрыто
+        private boolean frame(byte type, int end) throws IOException {
+            if (!authenticated) {
+                if (type != GatewayProtocol.AUTH || end - in.position() != GatewayProtocol.MAC_BYTES) {
+                    fail(GatewayProtocol.ERROR_AUTH, "ожидался кадр AUTH");
+                    return false;
+                }
+                byte[] mac = new byte[GatewayProtocol.MAC_BYTES];
+                in.get(mac);
+                if (!MessageDigest.isEqual(mac, GatewayProtocol.sign(psk, nonce))) {
+                    fail(GatewayProtocol.ERROR_AUTH, "неверная подпись");
+                    return false;
+                }
+                authenticated = true;
+                out.putInt(1).put(GatewayProtocol.AUTH_OK);
+                flush();
+                log.info("Шлюз {} аутентифицирован", remote);
+                return true;
+            }
+
+            frames.incrementAndGet();
+            switch (type) {
+                case GatewayProtocol.HEARTBEAT -> {
+                    int count = in.getShort() & 0xFFFF;
+                    if (end - in.position() != count * 8) {
+                        return fail(GatewayProtocol.ERROR_PROTOCOL, "длина HEARTBEAT не совпадает с count");
+                    }
+                    for (int i = 0; i < count; i++) {
+                        try {
+                            heartbeatMonitor.beatRegistered(in.getLong());
+                        } catch (ResourceNotFoundException e) {
+                            reject(GatewayProtocol.ERROR_UNKNOWN_SENSOR);
+                        }
+                    }
+                }
+                case GatewayProtocol.READINGS -> {
+                    long sensorId = in.getLong();
+                    int typeIndex = in.get() & 0xFF;
+                    int count = in.getShort() & 0xFFFF;
+                    if (typeIndex >= READING_TYPES.length || end - in.position() != count * 16) {
+                        return fail(GatewayProtocol.ERROR_PROTOCOL, "некорректный кадр READINGS");
+                    }
+                    long[] timestamps = new long[count];
+                    double[] values = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        timestamps[i] = in.getLong();
+                        values[i] = in.getDouble();
+                    }
+                    try {
+                        if (!sensorReadingService.append(sensorId, READING_TYPES[typeIndex], timestamps, values)) {
+                            reject(GatewayProtocol.ERROR_BUSY);
+                        }
+                    } catch (ResourceNotFoundException e) {
+                        reject(GatewayProtocol.ERROR_UNKNOWN_SENSOR);
+                    }
+                }
+                case GatewayProtocol.ALERT -> {
+                    long sensorId = in.getLong();
+                    int typeIndex = in.get() & 0xFF;
+                    int length = in.getShort() & 0xFFFF;
+                    if (typeIndex >= EVENT_TYPES.length || end - in.position() != length) {
+                        return fail(GatewayProtocol.ERROR_PROTOCOL, "некорректный кадр ALERT");
+                    }
+                    byte[] description = new byte[length];
+                    in.get(description);
+                    submitAlert(new AlertRequestDto(sensorId, EVENT_TYPES[typeIndex],
+                            new String(description, StandardCharsets.UTF_8), StatusType.new_status, null, null));
+                }
+                default -> {
+                    return fail(GatewayProtocol.ERROR_PROTOCOL, "неизвестный тип кадра " + type);
+                }
+            }
+            return true;
+        }
+
+        private void submitAlert(AlertRequestDto request) throws IOException {
+            AlertIngestPipeline pipeline = ingestPipeline.getIfAvailable();
+            if (pipeline != null) {
+                if (pipeline.submit(request) == null) {
+                    reject(GatewayProtocol.ERROR_BUSY);
+                }
+                return;
+            }
+            try {
+                alertWriter.execute(() -> {
+                    try {
+                        alertService.createAlert(request);
+                    } catch (RuntimeException e) {
+                        log.warn("Оповещение от шлюза {} для сенсора {} не создано: {}", remote, request.sensorId(),
+                                e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                reject(GatewayProtocol.ERROR_BUSY);
+            }
+        }
+
+        private void reject(byte code) throws IOException {
+            rejected.incrementAndGet();
+            // Если ответ не влезает в исходящий буфер, шлюз его не получит: данные всё равно отклонены
+            if (out.remaining() >= 6) {
+                out.putInt(2).put(GatewayProtocol.ERROR).put(code);
+                flush();
+            }
+        }
+
+        private boolean fail(byte code, String reason) throws IOException {
+            log.warn("Шлюз {} отключён: {}", remote, reason);
+            out.clear();
+            out.putInt(2).put(GatewayProtocol.ERROR).put(code);
+            out.flip();
+            channel.write(out);
+            close();
+            return false;
+        }
+
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            if (out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            out.compact();
+        }
+
+        void close() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            connections--;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Ошибка закрытия соединения шлюза {}", remote, e);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.example.firesystem.mapper;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.example.firesystem.dto.AlertDto;
 import com.example.firesystem.model.Alert;
+import com.example.firesystem.repository.AlertView;
 
 public class AlertMapper {
     public static AlertDto alertToAlertDto(Alert alert) {
+        // Копируем список фото: DTO живут в кэшах и не должны разделять коллекцию с сущностью.
+        // Нет фото - пустой список, как и в alertViewToAlertDto
         return new AlertDto(
                 alert.getId(),
                 alert.getSensor().getId(),
@@ -12,6 +18,22 @@ public class AlertMapper {
                 alert.getTimestamp(),
                 alert.getDescription(),
                 alert.getStatus(),
-                alert.getPhotoUrls());
+                alert.getPhotoUrls() != null ? new ArrayList<>(alert.getPhotoUrls()) : List.of(),
+                alert.getOccurrences(),
+                alert.getLastSeen());
+    }
+
+    public static AlertDto alertViewToAlertDto(AlertView view) {
+        String[] photoUrls = view.getPhotoUrls();
+        return new AlertDto(
+                view.getId(),
+                view.getSensorId(),
+                view.getType(),
+                view.getTimestamp(),
+                view.getDescription(),
+                view.getStatus(),
+                photoUrls != null ? List.of(photoUrls) : List.of(),
+                view.getOccurrences(),
+                view.getLastSeen());
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.firesystem.mapper;
+
+import com.example.firesystem.dto.AlertRuleDto;
+import com.example.firesystem.model.AlertRule;
+
+public class AlertRuleMapper {
+    public static AlertRuleDto alertRuleToAlertRuleDto(AlertRule rule) {
+        return new AlertRuleDto(
+                rule.getId(),
+                rule.getName(),
+                rule.getKind(),
+                rule.getReadingType(),
+                rule.getThreshold(),
+                rule.getWindowSeconds(),
+                rule.getN(),
+                rule.getM(),
+                rule.getLocation(),
+                rule.getEventType(),
+                rule.isEnabled());
+    }
+}
\ No newline at end of file
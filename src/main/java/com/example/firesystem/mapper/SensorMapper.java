@@ -10,6 +10,7 @@ public class SensorMapper {
                 sensor.getId(),
                 sensor.getModel(),
                 sensor.getLocation(),
+                sensor.getLocationPath(),
                 userId);
     }
 }
\ No newline at end of file
@@ -13,14 +13,15 @@ import java.util.List;
 @Table(name = "alerts")
 public class Alert {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alerts_seq")
+    @SequenceGenerator(name = "alerts_seq", sequenceName = "alerts_seq", allocationSize = 50)
+    private Long id; // pooled sequence вместо IDENTITY, чтобы Hibernate мог батчить вставки
 
     @ManyToOne
     private Sensor sensor;
 
     @Enumerated(EnumType.STRING)
-    private EventType type; // "accident", "hard_braking", "button"
+    private EventType type; // "accident", "hard_braking", "button", "sensor_offline", "high_temperature", "smoke", "co_leak"
 
     private LocalDateTime timestamp;
 
@@ -30,8 +31,15 @@ public class Alert {
     private StatusType status; // "new_status, "in_progress", "resolved"
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "alert_photo_urls", joinColumns = @JoinColumn(name = "alert_id"),
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT), // alerts секционирована, ключ (id, timestamp)
+            indexes = @Index(name = "idx_alert_photo_urls_alert_id", columnList = "alert_id"))
     private List<String> photoUrls; // Список URL-адресов фото
 
     @ManyToOne
     private User assignedTo;
+
+    private Integer occurrences; // Сколько срабатываний схлопнуто в это оповещение
+
+    private LocalDateTime lastSeen; // Время последнего срабатывания
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.firesystem.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Строка свёртки оповещений (см. AlertRollupService). Сущность задаёт схему таблицы для ddl-auto;
+ * пишется и читается свёртка через JdbcTemplate: upsert с on conflict и агрегирующие выборки.
+ */
+@Data
+@Entity
+@Table(name = "alert_rollups")
+@NoArgsConstructor
+public class AlertRollup {
+    @EmbeddedId
+    private AlertRollupId id;
+
+    @Column(nullable = false)
+    private Long alertCount; // Оповещения интервала, находящиеся сейчас в этом статусе
+}
\ No newline at end of file
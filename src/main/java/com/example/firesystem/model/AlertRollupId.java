@@ -0,0 +1,36 @@
+package com.example.firesystem.model;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.RollupGranularity;
+import com.example.firesystem.enums.StatusType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertRollupId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8, nullable = false)
+    private RollupGranularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart; // Начало интервала, date_trunc по granularity
+
+    @Column(nullable = false)
+    private Long sensorId; // 0 - оповещения без сенсора: в первичном ключе не может быть null
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32, nullable = false)
+    private EventType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32, nullable = false)
+    private StatusType status;
+}
\ No newline at end of file
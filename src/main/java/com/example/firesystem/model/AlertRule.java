@@ -0,0 +1,39 @@
+package com.example.firesystem.model;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.RuleKind;
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "alert_rules")
+public class AlertRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    private RuleKind kind; // "threshold", "rate_of_rise", "n_of_m", "location"
+
+    @Enumerated(EnumType.STRING)
+    private ReadingType readingType;
+
+    private double threshold; // Порог значения; для rate_of_rise - прирост в единицах за минуту
+
+    private Integer windowSeconds; // Окно для rate_of_rise и location
+
+    private Integer n; // Сколько срабатываний (n_of_m) или сенсоров (location) нужно
+
+    private Integer m; // Длина окна в показаниях для n_of_m, не больше 64
+
+    private String location; // Только сенсоры этого местоположения (путь, если он у сенсора задан); null - любые
+
+    @Enumerated(EnumType.STRING)
+    private EventType eventType; // Тип создаваемого оповещения
+
+    private boolean enabled;
+}
\ No newline at end of file
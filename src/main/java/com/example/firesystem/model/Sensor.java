@@ -1,23 +1,40 @@
 package com.example.firesystem.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.sensor")
+@Table(indexes = @Index(name = "idx_sensor_registry_version", columnList = "registry_version"))
 @NoArgsConstructor
 @AllArgsConstructor
 public class Sensor {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensors_seq")
+    @SequenceGenerator(name = "sensors_seq", sequenceName = "sensors_seq", allocationSize = 50)
+    private Long id; // pooled sequence вместо IDENTITY, чтобы массовая регистрация шла JDBC-батчами
 
     private String model; // Модель сенсора
 
     private String location; // Местоположение (например, "Аудитория 101")
 
+    private String locationPath; // Путь площадка/здание/этаж/помещение, например "campus-1/building-2/floor-3/101"
+
     @ManyToOne
     private User assignedTo; // Ответственный пользователь
+
+    // Пишется только пакетным сбросом SensorHeartbeatMonitor, JPA колонку не перезаписывает.
+    // В кэше второго уровня значение может отставать: читать его через JdbcTemplate, как монитор
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime lastHeartbeatAt;
+
+    private Long registryVersion; // Версия реестра, в которой сенсор менялся последний раз; null у сенсоров, созданных до версионирования
 }
\ No newline at end of file
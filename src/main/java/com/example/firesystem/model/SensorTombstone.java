@@ -0,0 +1,23 @@
+package com.example.firesystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "sensor_tombstones",
+        indexes = @Index(name = "idx_sensor_tombstones_registry_version", columnList = "registry_version"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorTombstone {
+    @Id
+    private Long sensorId; // id удалённого сенсора; id из последовательности повторно не выдаются
+
+    private Long registryVersion; // Версия реестра, в которой сенсор удалён
+
+    private LocalDateTime deletedAt;
+}
\ No newline at end of file
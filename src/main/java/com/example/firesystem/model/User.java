@@ -5,10 +5,13 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -25,6 +28,8 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "entity.user")
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "users")
@@ -40,6 +45,7 @@ public class User implements UserDetails {
     @ManyToOne
     private Role role;
 
+    // Коллекция не кэшируется: токены пишутся со стороны Token на каждом входе и не сбрасывали бы её
     @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
     private Set<Token> tokens;
 
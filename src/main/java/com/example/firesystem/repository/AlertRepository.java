@@ -1,18 +1,75 @@
 package com.example.firesystem.repository;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.firesystem.model.Alert;
-import com.example.firesystem.enums.StatusType;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AlertRepository extends JpaRepository<Alert, Long> {
 
-    List<Alert> findByStatus(StatusType status);
+    String VIEW_SELECT = """
+            select a.id as "id", a.sensor_id as "sensorId", a.type as "type", a.timestamp as "timestamp",
+                   a.description as "description", a.status as "status",
+                   a.occurrences as "occurrences", a.last_seen as "lastSeen",
+                   (select array_agg(p.photo_urls) from alert_photo_urls p where p.alert_id = a.id)
+                       as "photoUrls"
+            from alerts a
+            """;
+
+    @Query(value = VIEW_SELECT + "where a.id = :id", nativeQuery = true)
+    Optional<AlertView> findViewById(@Param("id") Long id);
+
+    @Query(value = VIEW_SELECT + "where a.id in (:ids)", nativeQuery = true)
+    List<AlertView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Границы по timestamp позволяют планировщику отбросить лишние месячные секции
+    String IN_RANGE = "a.timestamp >= :from and a.timestamp < :to ";
+
+    @Query(value = VIEW_SELECT + "where a.status = :status and " + IN_RANGE + "order by a.id", nativeQuery = true)
+    List<AlertView> findViewsByStatus(@Param("status") String status,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query(value = VIEW_SELECT + "where a.sensor_id = :sensorId and " + IN_RANGE + "order by a.id", nativeQuery = true)
+    List<AlertView> findViewsBySensorId(@Param("sensorId") Long sensorId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Keyset-пагинация: страница начинается строго после последнего прочитанного id, без OFFSET
+    @Query(value = VIEW_SELECT + "where a.id > :after and " + IN_RANGE + "order by a.id limit :limit",
+            nativeQuery = true)
+    List<AlertView> findViewsAfter(@Param("after") Long after,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("limit") int limit);
+
+    // Схлопывание повторного срабатывания в открытое оповещение вместо новой строки
+    @Modifying
+    @Query("update Alert a set a.occurrences = coalesce(a.occurrences, 1) + :count, a.lastSeen = :seenAt "
+            + "where a.id = :id and a.status <> com.example.firesystem.enums.StatusType.resolved")
+    int bumpOccurrences(@Param("id") Long id, @Param("count") int count, @Param("seenAt") LocalDateTime seenAt);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = VIEW_SELECT + "order by a.id", nativeQuery = true)
+    Stream<AlertView> streamViews();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = VIEW_SELECT + "where a.status in ('new_status', 'in_progress') order by a.id", nativeQuery = true)
+    Stream<AlertView> streamOpenViews();
 
-    List<Alert> findBySensorId(Long sensorId);
+    @Query(value = VIEW_SELECT + "where a.sensor_id = :sensorId and a.status in ('new_status', 'in_progress') and "
+            + IN_RANGE + "order by a.id", nativeQuery = true)
+    List<AlertView> findOpenViewsBySensorId(@Param("sensorId") Long sensorId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.example.firesystem.repository;
+
+import java.time.LocalDateTime;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+
+/**
+ * Плоская проекция оповещения для списков: строится одним SQL-запросом,
+ * фото собираются в массив (null, если фото нет), без загрузки сенсора и пользователей.
+ */
+public interface AlertView {
+
+    Long getId();
+
+    Long getSensorId();
+
+    EventType getType();
+
+    LocalDateTime getTimestamp();
+
+    String getDescription();
+
+    StatusType getStatus();
+
+    String[] getPhotoUrls();
+
+    Integer getOccurrences();
+
+    LocalDateTime getLastSeen();
+}
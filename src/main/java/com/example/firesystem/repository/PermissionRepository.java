@@ -2,12 +2,17 @@ package com.example.firesystem.repository;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.example.firesystem.model.Permission;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Permission> findByResourceAndOperation(String resource, String operation);
 }
@@ -2,8 +2,36 @@ package com.example.firesystem.repository;
 
 import com.example.firesystem.model.Sensor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
 public interface SensorRepository extends JpaRepository<Sensor, Long> {
+
+    String CURRENT_REGISTRY_VERSION = "select greatest("
+            + "(select coalesce(max(registry_version), 0) from sensor), "
+            + "(select coalesce(max(registry_version), 0) from sensor_tombstones))";
+
+    List<Sensor> findByLocationPathOrLocationPathStartingWithOrderById(String path, String prefix);
+
+    // Только первичный ключ: проверка существования без загрузки строк
+    @Query("select s.id from Sensor s where s.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    List<Sensor> findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderById(long since, long upTo);
+
+    @Query(value = CURRENT_REGISTRY_VERSION, nativeQuery = true)
+    long currentRegistryVersion();
+
+    // Блокировка держится до конца транзакции: записи реестра фиксируются строго в порядке версий,
+    // поэтому читатель, увидевший версию N, видит и все изменения с версиями до N.
+    // Текущую версию читать следующим запросом: снимок этого запроса взят до ожидания блокировки
+    @Query(value = "select 1 from (select pg_advisory_xact_lock(hashtext('sensor_registry'))) registry_lock",
+            nativeQuery = true)
+    int lockRegistry();
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.firesystem.repository;
+
+import com.example.firesystem.model.SensorTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SensorTombstoneRepository extends JpaRepository<SensorTombstone, Long> {
+
+    List<SensorTombstone> findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderBySensorId(
+            long since, long upTo);
+}
\ No newline at end of file
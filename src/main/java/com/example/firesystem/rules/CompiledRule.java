@@ -0,0 +1,62 @@
+package com.example.firesystem.rules;
+
+import com.example.firesystem.model.AlertRule;
+
+/**
+ * Правило, скомпилированное из AlertRule в вычислитель с собственным состоянием.
+ * test вызывается только потоком RuleEngine на каждое показание своего типа и не выделяет память,
+ * кроме первого показания нового сенсора или местоположения. Оповещение поднимается по фронту:
+ * условие должно стать истинным после того, как было ложным, и не чаще раза в cooldown.
+ */
+abstract class CompiledRule {
+
+    final AlertRule definition;
+    final int location;
+    private final long cooldownMillis;
+
+    CompiledRule(AlertRule definition, int location, long cooldownMillis) {
+        this.definition = definition;
+        this.location = location;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    static CompiledRule compile(AlertRule definition, int location, long cooldownMillis) {
+        return switch (definition.getKind()) {
+            case threshold -> new ThresholdRule(definition, location, cooldownMillis);
+            case rate_of_rise -> new RateOfRiseRule(definition, location, cooldownMillis);
+            case n_of_m -> new NOfMRule(definition, location, cooldownMillis);
+            case location -> new LocationRule(definition, location, cooldownMillis);
+        };
+    }
+
+    // location < 0 у правила - любое местоположение
+    boolean matches(int sensorLocation) {
+        return location < 0 || location == sensorLocation;
+    }
+
+    abstract boolean test(long sensorId, int sensorLocation, long timestamp, double value);
+
+    // Текст условия для описания оповещения; вызывается только при срабатывании
+    abstract String describe(double value);
+
+    final boolean latch(RuleState state, boolean condition, long timestamp) {
+        if (!condition) {
+            state.active = false;
+            return false;
+        }
+        if (state.active) {
+            return false;
+        }
+        state.active = true;
+        if (timestamp - state.firedAt < cooldownMillis) {
+            return false;
+        }
+        state.firedAt = timestamp;
+        return true;
+    }
+
+    static class RuleState {
+        boolean active;
+        long firedAt = Long.MIN_VALUE / 2;
+    }
+}
\ No newline at end of file
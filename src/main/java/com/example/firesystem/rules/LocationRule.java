@@ -0,0 +1,77 @@
+package com.example.firesystem.rules;
+
+import java.util.Arrays;
+
+import com.example.firesystem.model.AlertRule;
+
+/**
+ * Не меньше n разных сенсоров одного местоположения были не ниже порога в пределах окна.
+ * Состояние ведётся по местоположению: для каждого сенсора - время последнего превышения.
+ */
+final class LocationRule extends CompiledRule {
+
+    private final double threshold;
+    private final long windowMillis;
+    private final int n;
+    private State[] states = new State[0];
+
+    LocationRule(AlertRule definition, int location, long cooldownMillis) {
+        super(definition, location, cooldownMillis);
+        this.threshold = definition.getThreshold();
+        this.windowMillis = definition.getWindowSeconds() * 1000L;
+        this.n = definition.getN();
+    }
+
+    @Override
+    boolean test(long sensorId, int sensorLocation, long timestamp, double value) {
+        if (sensorLocation < 0) {
+            return false;
+        }
+        if (sensorLocation >= states.length) {
+            states = Arrays.copyOf(states, Math.max(sensorLocation + 1, states.length * 2));
+        }
+        State state = states[sensorLocation];
+        if (state == null) {
+            state = new State();
+            states[sensorLocation] = state;
+        }
+
+        int index = state.indexOf(sensorId);
+        state.exceededAt[index] = value >= threshold ? timestamp : Long.MIN_VALUE;
+        long since = timestamp - windowMillis;
+        int exceeded = 0;
+        for (int i = 0; i < state.size; i++) {
+            if (state.exceededAt[i] >= since) {
+                exceeded++;
+            }
+        }
+        return latch(state, exceeded >= n, timestamp);
+    }
+
+    @Override
+    String describe(double value) {
+        return String.format("%d сенсоров местоположения с %s не ниже %.2f за %d с (сейчас %.2f)", n,
+                definition.getReadingType(), threshold, windowMillis / 1000, value);
+    }
+
+    private static final class State extends RuleState {
+        long[] sensors = new long[4];
+        long[] exceededAt = new long[4];
+        int size;
+
+        int indexOf(long sensorId) {
+            for (int i = 0; i < size; i++) {
+                if (sensors[i] == sensorId) {
+                    return i;
+                }
+            }
+            if (size == sensors.length) {
+                sensors = Arrays.copyOf(sensors, size * 2);
+                exceededAt = Arrays.copyOf(exceededAt, size * 2);
+            }
+            sensors[size] = sensorId;
+            exceededAt[size] = Long.MIN_VALUE;
+            return size++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.example.firesystem.rules;
+
+import com.example.firesystem.model.AlertRule;
+import com.example.firesystem.util.LongObjectMap;
+
+/**
+ * Не меньше n из последних m показаний сенсора не ниже порога. Окно - битовая маска
+ * в одном long (m <= 64), сдвигается на каждом показании.
+ */
+final class NOfMRule extends CompiledRule {
+
+    private final double threshold;
+    private final int n;
+    private final long mask;
+    private final LongObjectMap<State> states = new LongObjectMap<>();
+
+    NOfMRule(AlertRule definition, int location, long cooldownMillis) {
+        super(definition, location, cooldownMillis);
+        this.threshold = definition.getThreshold();
+        this.n = definition.getN();
+        int m = definition.getM();
+        this.mask = m == 64 ? -1L : (1L << m) - 1;
+    }
+
+    @Override
+    boolean test(long sensorId, int sensorLocation, long timestamp, double value) {
+        State state = states.get(sensorId);
+        if (state == null) {
+            state = new State();
+            states.put(sensorId, state);
+        }
+        state.bits = ((state.bits << 1) | (value >= threshold ? 1 : 0)) & mask;
+        return latch(state, Long.bitCount(state.bits) >= n, timestamp);
+    }
+
+    @Override
+    String describe(double value) {
+        return String.format("%s не ниже %.2f в %d из %d последних показаний (сейчас %.2f)",
+                definition.getReadingType(), threshold, n, definition.getM(), value);
+    }
+
+    private static final class State extends RuleState {
+        long bits;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.example.firesystem.rules;
+
+import com.example.firesystem.model.AlertRule;
+import com.example.firesystem.util.LongObjectMap;
+
+/**
+ * Скорость роста за окно не ниже порога (единиц в минуту). Для каждого сенсора хранится
+ * кольцо из SAMPLES опорных точек с шагом не меньше окна / SAMPLES: скорость считается
+ * от самой старой точки окна, без пересчёта всего окна на каждом показании.
+ */
+final class RateOfRiseRule extends CompiledRule {
+
+    private static final int SAMPLES = 32;
+
+    private final double threshold;
+    private final long windowMillis;
+    private final long spacingMillis;
+    private final LongObjectMap<State> states = new LongObjectMap<>();
+
+    RateOfRiseRule(AlertRule definition, int location, long cooldownMillis) {
+        super(definition, location, cooldownMillis);
+        this.threshold = definition.getThreshold();
+        this.windowMillis = definition.getWindowSeconds() * 1000L;
+        this.spacingMillis = Math.max(1, windowMillis / SAMPLES);
+    }
+
+    @Override
+    boolean test(long sensorId, int sensorLocation, long timestamp, double value) {
+        State state = states.get(sensorId);
+        if (state == null) {
+            state = new State();
+            states.put(sensorId, state);
+        }
+        while (state.size > 0 && timestamp - state.times[state.head] > windowMillis) {
+            state.head = (state.head + 1) % SAMPLES;
+            state.size--;
+        }
+
+        boolean rising = false;
+        if (state.size > 0) {
+            long span = timestamp - state.times[state.head];
+            // Слишком короткий интервал даёт шумную производную
+            if (span >= windowMillis / 2) {
+                rising = (value - state.values[state.head]) * 60_000 / span >= threshold;
+            }
+        }
+
+        int tail = (state.head + state.size - 1) % SAMPLES;
+        if (state.size == 0 || timestamp - state.times[tail] >= spacingMillis) {
+            if (state.size == SAMPLES) {
+                state.head = (state.head + 1) % SAMPLES;
+                state.size--;
+            }
+            int at = (state.head + state.size) % SAMPLES;
+            state.times[at] = timestamp;
+            state.values[at] = value;
+            state.size++;
+        }
+        return latch(state, rising, timestamp);
+    }
+
+    @Override
+    String describe(double value) {
+        return String.format("%s растёт быстрее %.2f/мин за %d с (сейчас %.2f)", definition.getReadingType(),
+                threshold, windowMillis / 1000, value);
+    }
+
+    private static final class State extends RuleState {
+        final long[] times = new long[SAMPLES];
+        final double[] values = new double[SAMPLES];
+        int head;
+        int size;
+    }
+}
\ No newline at end of file
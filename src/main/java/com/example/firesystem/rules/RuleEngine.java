@@ -0,0 +1,294 @@
+package com.example.firesystem.rules;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.cache.ActiveAlertStore;
+import com.example.firesystem.cache.SensorRegistry;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.SensorChangedEvent;
+import com.example.firesystem.model.Alert;
+import com.example.firesystem.model.AlertRule;
+import com.example.firesystem.model.Sensor;
+import com.example.firesystem.repository.AlertRuleRepository;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.service.AlertService;
+import com.example.firesystem.util.LongObjectMap;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Потоковая проверка правил по поступающим показаниям.
+ * Пакеты показаний идут через неблокирующую очередь в один поток-вычислитель, которому принадлежит
+ * всё состояние правил, поэтому правила обходятся без блокировок и без выделения памяти на показание.
+ * Перезагрузка правил только публикует новые определения: поток подхватывает их между пакетами,
+ * запись показаний при этом не останавливается. Оповещения создаются отдельным потоком.
+ */
+@Slf4j
+@Component
+public class RuleEngine {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final AlertRuleRepository alertRuleRepository;
+    private final SensorRepository sensorRepository;
+    private final SensorRegistry sensorRegistry;
+    private final AlertService alertService;
+    private final ActiveAlertStore activeAlertStore;
+    private final long cooldownMillis;
+    private final int queueCapacity;
+
+    private final ConcurrentLinkedQueue<Batch> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<List<AlertRule>> reloaded = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<Long> relocated = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean relocateAll = new AtomicBoolean();
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+    private final ExecutorService alertRaiser;
+    private volatile boolean running = true;
+    private volatile int ruleCount;
+    private Thread thread;
+
+    // Только поток-вычислитель
+    private RuleSet rules = RuleSet.EMPTY;
+    private final LongObjectMap<Integer> sensorLocations = new LongObjectMap<>();
+    private final Map<String, Integer> locationIndex = new HashMap<>();
+    private final List<String> locationNames = new ArrayList<>();
+
+    public RuleEngine(
+            AlertRuleRepository alertRuleRepository,
+            SensorRepository sensorRepository,
+            SensorRegistry sensorRegistry,
+            AlertService alertService,
+            ActiveAlertStore activeAlertStore,
+            MeterRegistry meterRegistry,
+            @Value("${rules.engine.cooldown:5m}") Duration cooldown,
+            @Value("${rules.engine.queue-capacity:65536}") int queueCapacity) {
+        this.alertRuleRepository = alertRuleRepository;
+        this.sensorRepository = sensorRepository;
+        this.sensorRegistry = sensorRegistry;
+        this.alertService = alertService;
+        this.activeAlertStore = activeAlertStore;
+        this.cooldownMillis = cooldown.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.alertRaiser = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rule-engine-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("rules.engine.rules", this, engine -> engine.ruleCount)
+                .description("Активные правила")
+                .register(meterRegistry);
+        Gauge.builder("rules.engine.evaluations", evaluations, AtomicLong::get)
+                .description("Проверки правил с момента старта")
+                .register(meterRegistry);
+        Gauge.builder("rules.engine.fired", fired, AtomicLong::get)
+                .description("Срабатывания правил")
+                .register(meterRegistry);
+        Gauge.builder("rules.engine.pending", pending, AtomicInteger::get)
+                .description("Пакеты показаний в очереди проверки")
+                .register(meterRegistry);
+        Gauge.builder("rules.engine.dropped", dropped, AtomicLong::get)
+                .description("Пакеты показаний, не проверенные из-за переполнения очереди")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        thread = new Thread(this::run, "rule-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        alertRaiser.shutdown();
+    }
+
+    /**
+     * Перечитывает включённые правила из базы. Новый набор вступает в силу со следующего пакета.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        List<AlertRule> enabled = alertRuleRepository.findByEnabledTrue();
+        reloaded.set(enabled);
+        LockSupport.unpark(thread);
+        log.info("Загружено {} правил для проверки показаний", enabled.size());
+    }
+
+    // Сменившееся местоположение сенсора перечитывается потоком-вычислителем при следующем показании
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent event) {
+        if (event.before() == null || event.after() == null
+                || !Objects.equals(event.before().location(), event.after().location())
+                || !Objects.equals(event.before().locationPath(), event.after().locationPath())) {
+            relocated.offer(event.sensorId());
+        }
+    }
+
+    /**
+     * Забывает местоположения всех сенсоров: поток-вычислитель перечитает их при следующих показаниях.
+     */
+    public void resetLocations() {
+        relocateAll.set(true);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Ставит показания в очередь проверки. Точки должны быть упорядочены по времени, массивы не изменяются
+     * после вызова. При переполнении очереди пакет не проверяется, показания при этом уже записаны.
+     */
+    public void submit(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(new Batch(sensorId, type, timestamps, values));
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<AlertRule> definitions = reloaded.getAndSet(null);
+                if (definitions != null) {
+                    rules = RuleSet.compile(definitions, rules, this::locationOf, cooldownMillis);
+                    ruleCount = rules.size();
+                }
+                if (relocateAll.getAndSet(false)) {
+                    sensorLocations.clear();
+                }
+                for (Long sensorId = relocated.poll(); sensorId != null; sensorId = relocated.poll()) {
+                    sensorLocations.remove(sensorId);
+                }
+                Batch batch = queue.poll();
+                if (batch == null) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                pending.decrementAndGet();
+                evaluate(batch);
+            } catch (RuntimeException e) {
+                log.error("Ошибка проверки правил по показаниям", e);
+            }
+        }
+    }
+
+    private void evaluate(Batch batch) {
+        CompiledRule[] candidates = rules.forType(batch.type());
+        if (candidates.length == 0) {
+            return;
+        }
+        long sensorId = batch.sensorId();
+        int location = sensorLocation(sensorId);
+        long[] timestamps = batch.timestamps();
+        double[] values = batch.values();
+        for (int i = 0; i < timestamps.length; i++) {
+            for (CompiledRule rule : candidates) {
+                if (rule.matches(location) && rule.test(sensorId, location, timestamps[i], values[i])) {
+                    fire(rule, sensorId, location, values[i]);
+                }
+            }
+        }
+        evaluations.lazySet(evaluations.get() + (long) timestamps.length * candidates.length);
+    }
+
+    private void fire(CompiledRule rule, long sensorId, int location, double value) {
+        fired.incrementAndGet();
+        AlertRule definition = rule.definition;
+        String description = "Правило «" + definition.getName() + "»: " + rule.describe(value)
+                + (location >= 0 ? ", " + locationNames.get(location) : "");
+        alertRaiser.execute(() -> raise(definition.getEventType(), sensorId, description));
+    }
+
+    private void raise(EventType type, long sensorId, String description) {
+        try {
+            if (activeAlertStore.isReady() && activeAlertStore.getBySensor(sensorId).stream()
+                    .anyMatch(alert -> alert.type() == type)) {
+                log.debug("У сенсора {} уже есть открытое оповещение {}, срабатывание правила пропущено", sensorId, type);
+                return;
+            }
+            Sensor sensor = sensorRepository.findById(sensorId).orElse(null);
+            if (sensor == null) {
+                return;
+            }
+            Alert alert = new Alert();
+            alert.setSensor(sensor);
+            alert.setType(type);
+            alert.setStatus(StatusType.new_status);
+            alert.setTimestamp(LocalDateTime.now());
+            alert.setLastSeen(alert.getTimestamp());
+            alert.setOccurrences(1);
+            alert.setDescription(description);
+            Alert created = alertService.create(alert);
+            log.warn("Сработало правило для сенсора {}: {}, создано оповещение {}", sensorId, description,
+                    created.getId());
+        } catch (RuntimeException e) {
+            log.error("Не удалось создать оповещение по правилу для сенсора {}", sensorId, e);
+        }
+    }
+
+    // Местоположение сенсора (путь, если задан) читается из снимка реестра, а при промахе из базы,
+    // при первом показании и после его смены
+    private int sensorLocation(long sensorId) {
+        Integer location = sensorLocations.get(sensorId);
+        if (location == null) {
+            SensorRegistry.Snapshot registry = sensorRegistry.snapshot();
+            int index = registry.indexOf(sensorId);
+            if (index >= 0) {
+                String name = registry.locationPath(index) != null ? registry.locationPath(index)
+                        : registry.location(index);
+                location = name != null ? locationOf(name) : -1;
+            } else {
+                location = sensorRepository.findById(sensorId)
+                        .map(sensor -> sensor.getLocationPath() != null ? sensor.getLocationPath() : sensor.getLocation())
+                        .map(this::locationOf)
+                        .orElse(-1);
+            }
+            sensorLocations.put(sensorId, location);
+        }
+        return location;
+    }
+
+    private int locationOf(String name) {
+        return locationIndex.computeIfAbsent(name, key -> {
+            locationNames.add(key);
+            return locationNames.size() - 1;
+        });
+    }
+
+    private record Batch(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+    }
+}
\ No newline at end of file
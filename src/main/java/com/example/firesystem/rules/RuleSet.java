@@ -0,0 +1,58 @@
+package com.example.firesystem.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.model.AlertRule;
+
+/**
+ * Неизменяемый набор скомпилированных правил, разложенный по типу показаний.
+ * При перекомпиляции правило с тем же определением переносится из предыдущего набора
+ * вместе с состоянием, поэтому перезагрузка не сбрасывает окна неизменённых правил.
+ */
+final class RuleSet {
+
+    static final RuleSet EMPTY = new RuleSet(List.of());
+
+    private final List<CompiledRule> rules;
+    private final CompiledRule[][] byType = new CompiledRule[ReadingType.values().length][];
+
+    private RuleSet(List<CompiledRule> rules) {
+        this.rules = rules;
+        for (ReadingType type : ReadingType.values()) {
+            byType[type.ordinal()] = rules.stream()
+                    .filter(rule -> rule.definition.getReadingType() == type)
+                    .toArray(CompiledRule[]::new);
+        }
+    }
+
+    static RuleSet compile(List<AlertRule> definitions, RuleSet previous, ToIntFunction<String> locations,
+            long cooldownMillis) {
+        Map<Long, CompiledRule> existing = new HashMap<>();
+        for (CompiledRule rule : previous.rules) {
+            existing.put(rule.definition.getId(), rule);
+        }
+        List<CompiledRule> compiled = new ArrayList<>(definitions.size());
+        for (AlertRule definition : definitions) {
+            CompiledRule rule = existing.get(definition.getId());
+            if (rule == null || !rule.definition.equals(definition)) {
+                int location = definition.getLocation() != null ? locations.applyAsInt(definition.getLocation()) : -1;
+                rule = CompiledRule.compile(definition, location, cooldownMillis);
+            }
+            compiled.add(rule);
+        }
+        return new RuleSet(List.copyOf(compiled));
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    CompiledRule[] forType(ReadingType type) {
+        return byType[type.ordinal()];
+    }
+}
\ No newline at end of file
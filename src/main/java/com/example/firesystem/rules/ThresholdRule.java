@@ -0,0 +1,33 @@
+package com.example.firesystem.rules;
+
+import com.example.firesystem.model.AlertRule;
+import com.example.firesystem.util.LongObjectMap;
+
+/**
+ * Значение показания не ниже порога.
+ */
+final class ThresholdRule extends CompiledRule {
+
+    private final double threshold;
+    private final LongObjectMap<RuleState> states = new LongObjectMap<>();
+
+    ThresholdRule(AlertRule definition, int location, long cooldownMillis) {
+        super(definition, location, cooldownMillis);
+        this.threshold = definition.getThreshold();
+    }
+
+    @Override
+    boolean test(long sensorId, int sensorLocation, long timestamp, double value) {
+        RuleState state = states.get(sensorId);
+        if (state == null) {
+            state = new RuleState();
+            states.put(sensorId, state);
+        }
+        return latch(state, value >= threshold, timestamp);
+    }
+
+    @Override
+    String describe(double value) {
+        return String.format("%s = %.2f, порог %.2f", definition.getReadingType(), value, threshold);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.example.firesystem.service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.firesystem.cache.ActiveAlertStore;
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.example.firesystem.util.LongObjectMap;
+
+/**
+ * Дедупликация срабатываний по паре (сенсор, тип события).
+ * Повторное срабатывание внутри окна схлопывается в уже открытое оповещение.
+ * Карта разбита на полосы со своими блокировками, чтобы не было общей точки конкуренции,
+ * а внутри полосы записи лежат в двух временных корзинах: текущей и предыдущей.
+ * Устаревшие записи уходят целой корзиной при ротации, без обхода и таймеров.
+ */
+@Component
+public class AlertDeduplicator {
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public AlertDeduplicator(
+            @Value("${alerts.dedup.enabled:true}") boolean enabled,
+            @Value("${alerts.dedup.window:30s}") Duration window,
+            @Value("${alerts.dedup.stripes:64}") int stripes) {
+        this.enabled = enabled;
+        this.windowMillis = window.toMillis();
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        this.stripeMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static long key(long sensorId, EventType type) {
+        return (sensorId << 8) | (type.ordinal() + 1);
+    }
+
+    /**
+     * Возвращает id открытого оповещения для пары, если последнее срабатывание было внутри окна,
+     * и сдвигает время последнего срабатывания на now.
+     */
+    public Long findOpen(long key, long now) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            stripe.rotate(now, windowMillis);
+            Entry entry = stripe.current.get(key);
+            if (entry == null) {
+                entry = stripe.previous.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                stripe.current.put(key, entry);
+            }
+            if (now - entry.lastSeen > windowMillis) {
+                stripe.current.remove(key);
+                return null;
+            }
+            entry.lastSeen = now;
+            return entry.alertId;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void register(long key, long alertId, long now) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            stripe.rotate(now, windowMillis);
+            stripe.previous.remove(key);
+            stripe.current.put(key, new Entry(alertId, now));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public void forget(long key, long alertId) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.current.get(key);
+            if (entry != null && entry.alertId == alertId) {
+                stripe.current.remove(key);
+            }
+            entry = stripe.previous.get(key);
+            if (entry != null && entry.alertId == alertId) {
+                stripe.previous.remove(key);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Решённое, удалённое или перенесённое оповещение больше не принимает повторы
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (AlertChange change : event.changes()) {
+            AlertDto before = change.before();
+            if (before == null || before.sensorId() == null || before.type() == null) {
+                continue;
+            }
+            AlertDto after = change.after();
+            boolean sameKey = after != null && before.sensorId().equals(after.sensorId())
+                    && before.type() == after.type();
+            if (!sameKey || !ActiveAlertStore.isOpen(after.status())) {
+                forget(key(before.sensorId(), before.type()), before.id());
+            }
+        }
+    }
+
+    private Stripe stripeOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 40) & stripeMask];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private LongObjectMap<Entry> current = new LongObjectMap<>();
+        private LongObjectMap<Entry> previous = new LongObjectMap<>();
+        private long bucketStart;
+
+        private void rotate(long now, long windowMillis) {
+            if (now - bucketStart < windowMillis) {
+                return;
+            }
+            // Записи старше двух окон точно не нужны: предыдущая корзина отбрасывается целиком
+            previous = now - bucketStart < 2 * windowMillis ? current : new LongObjectMap<>();
+            current = new LongObjectMap<>();
+            bucketStart = now;
+        }
+    }
+
+    private static final class Entry {
+        private final long alertId;
+        private long lastSeen;
+
+        private Entry(long alertId, long lastSeen) {
+            this.alertId = alertId;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
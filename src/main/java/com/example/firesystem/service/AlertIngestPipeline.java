@@ -0,0 +1,243 @@
+package com.example.firesystem.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.example.firesystem.dto.AlertBatchItemResultDto;
+import com.example.firesystem.dto.AlertBatchResponseDto;
+import com.example.firesystem.dto.AlertRequestDto;
+import com.example.firesystem.dto.AlertTicketDto;
+import com.example.firesystem.enums.TicketStatus;
+import com.example.firesystem.exception.ResourceNotFoundException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Асинхронный приём оповещений с групповой фиксацией.
+ * HTTP-поток только кладёт запрос в ограниченный буфер и получает номер квитанции,
+ * а несколько потоков-писателей забирают буфер пачками: одна транзакция и один
+ * батч INSERT на batch-size оповещений или на max-latency ожидания.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "alerts.ingest.async", name = "enabled", havingValue = "true")
+public class AlertIngestPipeline {
+
+    private static final long MAX_WAIT_MILLIS = 30_000;
+
+    private final AlertService alertService;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final int writerThreads;
+    private final long ticketTtlMillis;
+
+    // ArrayBlockingQueue выделяет кольцевой массив целиком при создании
+    private final BlockingQueue<PendingAlert> buffer;
+    private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicLong ticketSequence = new AtomicLong();
+    private final AtomicLong lastSweep = new AtomicLong();
+    private final List<Thread> writers = new ArrayList<>();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer commitTimer;
+
+    private volatile boolean running;
+
+    public AlertIngestPipeline(
+            AlertService alertService,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.ingest.async.buffer-size:16384}") int bufferSize,
+            @Value("${alerts.ingest.async.batch-size:500}") int batchSize,
+            @Value("${alerts.ingest.async.max-latency:20ms}") Duration maxLatency,
+            @Value("${alerts.ingest.async.writer-threads:2}") int writerThreads,
+            @Value("${alerts.ingest.async.ticket-ttl:5m}") Duration ticketTtl) {
+        this.alertService = alertService;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.writerThreads = writerThreads;
+        this.ticketTtlMillis = ticketTtl.toMillis();
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("alerts.ingest.buffer.depth", buffer, BlockingQueue::size)
+                .description("Оповещения, ожидающие записи в БД")
+                .register(meterRegistry);
+        Gauge.builder("alerts.ingest.buffer.remaining", buffer, BlockingQueue::remainingCapacity)
+                .register(meterRegistry);
+        Gauge.builder("alerts.ingest.tickets", tickets, Map::size)
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("alerts.ingest.batch.size")
+                .description("Количество оповещений в одной групповой фиксации")
+                .register(meterRegistry);
+        commitTimer = Timer.builder("alerts.ingest.commit.latency")
+                .description("Время одной групповой фиксации")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::drainLoop, "alert-ingest-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Асинхронный приём оповещений запущен: буфер {}, пакет {}, писателей {}",
+                buffer.remainingCapacity(), batchSize, writerThreads);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        log.info("Асинхронный приём оповещений остановлен, в буфере осталось {}", buffer.size());
+    }
+
+    /**
+     * Ставит оповещение в очередь и сразу возвращает квитанцию.
+     * Если буфер заполнен, возвращает null: вызывающий должен ответить 503, а не ждать.
+     */
+    public AlertTicketDto submit(AlertRequestDto alertRequestDto) {
+        if (!running) {
+            return null;
+        }
+        long ticketId = ticketSequence.incrementAndGet();
+        Ticket ticket = new Ticket(System.currentTimeMillis(), new CompletableFuture<>());
+        tickets.put(ticketId, ticket);
+        if (!buffer.offer(new PendingAlert(alertRequestDto, ticket.result()))) {
+            tickets.remove(ticketId);
+            meterRegistry.counter("alerts.ingest.rejected").increment();
+            log.warn("Буфер приёма оповещений переполнен, запрос отклонён");
+            return null;
+        }
+        return new AlertTicketDto(ticketId, TicketStatus.PENDING, null, null);
+    }
+
+    /**
+     * Возвращает состояние квитанции, при необходимости дожидаясь фиксации не дольше waitMillis.
+     */
+    public AlertTicketDto getTicket(long ticketId, long waitMillis) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Квитанция " + ticketId + " не найдена или уже истекла");
+        }
+        try {
+            AlertBatchItemResultDto result = waitMillis > 0
+                    ? ticket.result().get(Math.min(waitMillis, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS)
+                    : ticket.result().getNow(null);
+            if (result == null) {
+                return new AlertTicketDto(ticketId, TicketStatus.PENDING, null, null);
+            }
+            return result.success()
+                    ? new AlertTicketDto(ticketId, TicketStatus.CREATED, result.alert(), null)
+                    : new AlertTicketDto(ticketId, TicketStatus.FAILED, null, result.error());
+        } catch (TimeoutException e) {
+            return new AlertTicketDto(ticketId, TicketStatus.PENDING, null, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new AlertTicketDto(ticketId, TicketStatus.PENDING, null, null);
+        } catch (ExecutionException e) {
+            return new AlertTicketDto(ticketId, TicketStatus.FAILED, null, e.getCause().getMessage());
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingAlert> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingAlert first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    evictExpiredTickets();
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingAlert next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                evictExpiredTickets();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingAlert> batch) {
+        List<AlertRequestDto> requests = new ArrayList<>(batch.size());
+        for (PendingAlert pending : batch) {
+            requests.add(pending.request());
+        }
+
+        long start = System.nanoTime();
+        try {
+            AlertBatchResponseDto response = alertService.createAlerts(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(response.results().get(i));
+            }
+        } catch (Exception e) {
+            log.error("Групповая фиксация {} оповещений не удалась", batch.size(), e);
+            for (PendingAlert pending : batch) {
+                pending.result().completeExceptionally(e);
+            }
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    private void evictExpiredTickets() {
+        // Обходим карту квитанций не чаще раза в секунду и только одним писателем
+        long now = System.currentTimeMillis();
+        long last = lastSweep.get();
+        if (now - last < 1000 || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        long cutoff = now - ticketTtlMillis;
+        tickets.entrySet().removeIf(entry -> entry.getValue().result().isDone()
+                && entry.getValue().createdAt() < cutoff);
+    }
+
+    private record PendingAlert(AlertRequestDto request, CompletableFuture<AlertBatchItemResultDto> result) {
+    }
+
+    private record Ticket(long createdAt, CompletableFuture<AlertBatchItemResultDto> result) {
+    }
+}
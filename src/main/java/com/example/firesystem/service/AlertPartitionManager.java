@@ -0,0 +1,291 @@
+package com.example.firesystem.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Помесячное секционирование таблицы alerts по timestamp.
+ * При старте обычная таблица один раз переводится в секционированную, дальше менеджер
+ * заранее создаёт секции на ближайшие месяцы и отсоединяет (или удаляет) секции старше срока хранения.
+ * Удаление старых данных так сводится к операции над метаданными вместо DELETE по всей таблице.
+ *
+ * Включается явно (alerts.partitioning.enabled): перевод переписывает всю таблицу под исключительной
+ * блокировкой и снимает внешние ключи на alerts, поэтому его запускают в окно обслуживания.
+ * Секция, в которой ещё есть открытые оповещения, не отсоединяется, пока их не решат; нижняя граница
+ * выборок поэтому берётся по самой старой присоединённой секции, а не по сроку хранения.
+ * Строки alert_photo_urls при отсоединении не трогаются: перенос или удаление фотографий секции
+ * снова превратили бы операцию над метаданными в копирование и DELETE по всем её строкам.
+ */
+@Slf4j
+@Service
+public class AlertPartitionManager {
+
+    private static final String TABLE = "alerts";
+    private static final String PARTITION_PREFIX = "alerts_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile("alerts_p(\\d{4})_(\\d{2})");
+    // Границы выборок, когда секционирование или срок хранения выключены
+    private static final LocalDateTime MIN_BOUND = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_BOUND = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService scheduler;
+    private volatile LocalDateTime lowerBound = MIN_BOUND;
+
+    // EntityManagerFactory нужна только для порядка: к этому моменту Hibernate уже обновил схему
+    public AlertPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory,
+            CacheManager cacheManager,
+            @Value("${alerts.partitioning.enabled:false}") boolean enabled,
+            @Value("${alerts.partitioning.premake-months:3}") int premakeMonths,
+            @Value("${alerts.partitioning.retention-months:0}") int retentionMonths,
+            @Value("${alerts.partitioning.drop-expired:false}") boolean dropExpired,
+            @Value("${alerts.partitioning.check-interval:1h}") Duration checkInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.dropExpired = dropExpired;
+        this.checkInterval = checkInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Нижняя граница времени для выборок: начало самой старой присоединённой секции.
+     * Она может быть старше срока хранения, если секцию удерживают открытые оповещения.
+     */
+    public LocalDateTime lowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Верхняя граница времени для выборок: конец последней заранее созданной секции.
+     */
+    public LocalDateTime upperBound() {
+        if (!enabled) {
+            return MAX_BOUND;
+        }
+        return YearMonth.now().plusMonths(premakeMonths + 1).atDay(1).atStartOfDay();
+    }
+
+    // Выполняется до старта веб-сервера, чтобы ни одна вставка не попала в таблицу во время перевода
+    @PostConstruct
+    void prepare() {
+        if (!enabled) {
+            log.info("Секционирование таблицы {} выключено", TABLE);
+            return;
+        }
+        transaction.executeWithoutResult(status -> {
+            convertIfNeeded();
+            createPartitions(YearMonth.now());
+        });
+        refreshLowerBound();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::maintain, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    void maintain() {
+        try {
+            transaction.executeWithoutResult(status -> createPartitions(YearMonth.now()));
+            expirePartitions();
+            refreshLowerBound();
+        } catch (RuntimeException e) {
+            log.error("Ошибка обслуживания секций таблицы {}", TABLE, e);
+        }
+    }
+
+    private void convertIfNeeded() {
+        List<String> kind = jdbcTemplate.queryForList(
+                "select c.relkind::text from pg_class c where c.oid = to_regclass('" + TABLE + "')", String.class);
+        if (kind.isEmpty()) {
+            log.warn("Таблица {} не найдена, секционирование пропущено", TABLE);
+            return;
+        }
+        if ("p".equals(kind.get(0))) {
+            return;
+        }
+
+        log.info("Перевод таблицы {} на помесячное секционирование по timestamp", TABLE);
+        jdbcTemplate.execute("lock table " + TABLE + " in access exclusive mode");
+
+        // Ссылки на alerts по одному id невозможны: первичный ключ секционированной таблицы включает timestamp
+        jdbcTemplate.query("select conrelid::regclass::text, conname from pg_constraint "
+                        + "where contype = 'f' and confrelid = '" + TABLE + "'::regclass",
+                (rs, rowNum) -> "alter table " + rs.getString(1) + " drop constraint \"" + rs.getString(2) + "\"")
+                .forEach(jdbcTemplate::execute);
+        List<String[]> foreignKeys = jdbcTemplate.query("select conname, pg_get_constraintdef(oid) from pg_constraint "
+                        + "where contype = 'f' and conrelid = '" + TABLE + "'::regclass",
+                (rs, rowNum) -> new String[] {rs.getString(1), rs.getString(2)});
+        List<String> primaryKey = jdbcTemplate.queryForList("select conname from pg_constraint "
+                + "where contype = 'p' and conrelid = '" + TABLE + "'::regclass", String.class);
+
+        jdbcTemplate.execute("alter table " + TABLE + " rename to " + TABLE + "_unpartitioned");
+        primaryKey.forEach(name -> jdbcTemplate.execute(
+                "alter table " + TABLE + "_unpartitioned drop constraint \"" + name + "\""));
+        foreignKeys.forEach(fk -> jdbcTemplate.execute(
+                "alter table " + TABLE + "_unpartitioned drop constraint \"" + fk[0] + "\""));
+        jdbcTemplate.execute("update " + TABLE + "_unpartitioned set \"timestamp\" = coalesce(last_seen, now()) "
+                + "where \"timestamp\" is null");
+
+        jdbcTemplate.execute("create table " + TABLE + " (like " + TABLE + "_unpartitioned "
+                + "including defaults including constraints) partition by range (\"timestamp\")");
+        jdbcTemplate.execute("alter table " + TABLE + " add constraint " + TABLE + "_pkey primary key (id, \"timestamp\")");
+        foreignKeys.forEach(fk -> jdbcTemplate.execute(
+                "alter table " + TABLE + " add constraint \"" + fk[0] + "\" " + fk[1]));
+        // Индексы на секционированной таблице создаются в каждой секции автоматически
+        jdbcTemplate.execute("create index idx_alerts_status_timestamp on " + TABLE + " (status, \"timestamp\")");
+        jdbcTemplate.execute("create index idx_alerts_sensor_timestamp on " + TABLE + " (sensor_id, \"timestamp\")");
+
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "select min(\"timestamp\") from " + TABLE + "_unpartitioned", Timestamp.class);
+        createPartitions(oldest != null ? YearMonth.from(oldest.toLocalDateTime()) : YearMonth.now());
+
+        int moved = jdbcTemplate.update("insert into " + TABLE + " select * from " + TABLE + "_unpartitioned");
+        jdbcTemplate.execute("drop table " + TABLE + "_unpartitioned");
+        log.info("Таблица {} секционирована, перенесено {} строк", TABLE, moved);
+    }
+
+    private void createPartitions(YearMonth from) {
+        YearMonth last = YearMonth.now().plusMonths(premakeMonths);
+        for (YearMonth month = from; !month.isAfter(last); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("create table if not exists " + partitionName(month) + " partition of " + TABLE
+                    + " for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    private void expirePartitions() {
+        if (retentionMonths == 0) {
+            return;
+        }
+        YearMonth oldestRetained = oldestRetainedMonth();
+        List<String> expired = new ArrayList<>();
+        attachedPartitions().forEach((partition, month) -> {
+            if (month != null && month.isBefore(oldestRetained)) {
+                expired.add(partition);
+            }
+        });
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        boolean detached = false;
+        for (String partition : expired) {
+            detached |= Boolean.TRUE.equals(transaction.execute(status -> expire(partition)));
+        }
+        if (!detached) {
+            return;
+        }
+        // Решённые оповещения из старых секций могут оставаться в кэшированных списках
+        for (String name : List.of("alert", "alerts", "alertsByStatus", "alertsBySensor")) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private boolean expire(String partition) {
+        // Неразрешённые оповещения о пожаре не должны исчезать вместе с секцией
+        Integer open = jdbcTemplate.queryForObject("select count(*) from " + partition
+                + " where status in ('new_status', 'in_progress')", Integer.class);
+        if (open != null && open > 0) {
+            log.warn("Секция {} старше срока хранения, но содержит {} открытых оповещений и не отсоединяется",
+                    partition, open);
+            return false;
+        }
+
+        jdbcTemplate.execute("alter table " + TABLE + " detach partition " + partition);
+        if (dropExpired) {
+            jdbcTemplate.execute("drop table " + partition);
+            log.info("Секция {} удалена по сроку хранения", partition);
+        } else {
+            log.info("Секция {} отсоединена по сроку хранения", partition);
+        }
+        return true;
+    }
+
+    private void refreshLowerBound() {
+        LocalDateTime bound = MIN_BOUND;
+        Map<String, YearMonth> partitions = attachedPartitions();
+        // Секция с чужим именем может хранить что угодно: граница тогда не сужается
+        if (!partitions.isEmpty() && !partitions.containsValue(null)) {
+            bound = partitions.values().stream().min(YearMonth::compareTo).orElseThrow().atDay(1).atStartOfDay();
+        }
+        if (!bound.equals(lowerBound)) {
+            log.info("Нижняя граница выборок оповещений: {}", bound);
+        }
+        lowerBound = bound;
+    }
+
+    // Присоединённые секции -> месяц; null у секций, имя которых не из PARTITION_NAME
+    private Map<String, YearMonth> attachedPartitions() {
+        Map<String, YearMonth> partitions = new LinkedHashMap<>();
+        for (String partition : jdbcTemplate.queryForList("select c.relname::text from pg_inherits i "
+                + "join pg_class c on c.oid = i.inhrelid where i.inhparent = to_regclass('" + TABLE + "') "
+                + "order by c.relname", String.class)) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            partitions.put(partition, matcher.matches()
+                    ? YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))
+                    : null);
+        }
+        return partitions;
+    }
+
+    private YearMonth oldestRetainedMonth() {
+        return YearMonth.now().minusMonths(retentionMonths);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("%s%04d_%02d", PARTITION_PREFIX, month.getYear(), month.getMonthValue());
+    }
+}
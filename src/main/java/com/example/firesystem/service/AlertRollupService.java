@@ -0,0 +1,309 @@
+package com.example.firesystem.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.AlertStatsDto;
+import com.example.firesystem.dto.AlertStatsRowDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.RollupGranularity;
+import com.example.firesystem.enums.StatsGrouping;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Свёртки оповещений по минутам, часам и дням в разрезе сенсора, типа события и статуса.
+ * Строка свёртки - число оповещений, созданных в интервале и находящихся сейчас в данном статусе,
+ * то же, что дал бы group by по alerts. Каждое изменение превращается в дельты -1/+1,
+ * дельты копятся в памяти и периодически одним батчем upsert-ов сливаются в alert_rollups
+ * (схема - сущность AlertRollup). Статистика читается только из свёрток и не зависит от объёма alerts.
+ *
+ * Свёртки сходятся с alerts приближённо: несброшенные дельты теряются при падении узла, а изменение,
+ * зафиксированное во время сверки, может попасть в свёртку дважды. Поэтому раз в reconcile-interval
+ * интервалы последних reconcile-window пересчитываются по alerts целиком; rebuild пересчитывает всё.
+ */
+@Slf4j
+@Service
+public class AlertRollupService {
+
+    // В первичном ключе свёртки не может быть null, оповещения без сенсора копятся под нулём
+    private static final long NO_SENSOR = 0L;
+    private static final long CLEANUP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Ограничение на число интервалов в одном ответе
+    public static final long MAX_BUCKETS = 20_000;
+
+    private static final String UPSERT = """
+            insert into alert_rollups (granularity, bucket_start, sensor_id, type, status, alert_count)
+            values (?, ?, ?, ?, ?, ?)
+            on conflict (granularity, bucket_start, sensor_id, type, status)
+            do update set alert_count = alert_rollups.alert_count + excluded.alert_count
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final Duration flushInterval;
+    private final Duration minuteRetention;
+    private final Duration reconcileInterval;
+    private final Duration reconcileWindow;
+    private final ConcurrentHashMap<RollupKey, Long> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private long nextCleanupAt;
+
+    private record RollupKey(
+            RollupGranularity granularity,
+            LocalDateTime bucket,
+            long sensorId,
+            EventType type,
+            StatusType status) {
+    }
+
+    // EntityManagerFactory нужна только для порядка: таблицы alerts и alert_rollups к этому моменту уже созданы
+    public AlertRollupService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${alerts.rollups.flush-interval:5s}") Duration flushInterval,
+            @Value("${alerts.rollups.minute-retention:7d}") Duration minuteRetention,
+            @Value("${alerts.rollups.reconcile-interval:1h}") Duration reconcileInterval,
+            @Value("${alerts.rollups.reconcile-window:2d}") Duration reconcileWindow) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.flushInterval = flushInterval;
+        this.minuteRetention = minuteRetention;
+        this.reconcileInterval = reconcileInterval;
+        this.reconcileWindow = reconcileWindow;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-rollups");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void prepare() {
+        Boolean empty = jdbcTemplate.queryForObject(
+                "select not exists (select 1 from alert_rollups)", Boolean.class);
+        if (Boolean.TRUE.equals(empty)) {
+            log.info("Первичное построение свёрток по таблице alerts");
+            transaction.executeWithoutResult(status -> rebuildSince(null));
+        }
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::reconcile, reconcileInterval.toMillis(), reconcileInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertChangedEvent event) {
+        for (AlertChange change : event.changes()) {
+            AlertDto before = change.before();
+            AlertDto after = change.after();
+            if (before != null && after != null && sameDimensions(before, after)) {
+                continue;
+            }
+            add(before, -1);
+            add(after, 1);
+        }
+    }
+
+    public AlertStatsDto getStats(LocalDateTime from, LocalDateTime to, RollupGranularity granularity,
+            StatsGrouping groupBy) {
+        log.info("Статистика оповещений с {} по {} ({}, {})", from, to, granularity, groupBy);
+        String sql = switch (groupBy) {
+            case total -> """
+                    select r.bucket_start, null::bigint as sensor_id, null::varchar as location, r.type, r.status,
+                           sum(r.alert_count) as alert_count
+                    from alert_rollups r
+                    where r.granularity = ? and r.bucket_start >= ? and r.bucket_start < ?
+                    group by r.bucket_start, r.type, r.status
+                    having sum(r.alert_count) <> 0
+                    order by r.bucket_start, r.type, r.status
+                    """;
+            case sensor -> """
+                    select r.bucket_start, r.sensor_id, s.location, r.type, r.status, r.alert_count
+                    from alert_rollups r
+                    left join sensor s on s.id = r.sensor_id
+                    where r.granularity = ? and r.bucket_start >= ? and r.bucket_start < ? and r.alert_count <> 0
+                    order by r.bucket_start, r.sensor_id, r.type, r.status
+                    """;
+            case location -> """
+                    select r.bucket_start, null::bigint as sensor_id, s.location, r.type, r.status,
+                           sum(r.alert_count) as alert_count
+                    from alert_rollups r
+                    left join sensor s on s.id = r.sensor_id
+                    where r.granularity = ? and r.bucket_start >= ? and r.bucket_start < ?
+                    group by r.bucket_start, s.location, r.type, r.status
+                    having sum(r.alert_count) <> 0
+                    order by r.bucket_start, s.location, r.type, r.status
+                    """;
+        };
+        List<AlertStatsRowDto> rows = jdbcTemplate.query(sql, this::mapRow,
+                granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        log.debug("Статистика собрана: {} строк", rows.size());
+        return new AlertStatsDto(granularity, groupBy, from, to, rows);
+    }
+
+    void flush() {
+        List<RollupKey> keys = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        // remove атомарен: дельта, пришедшая после него, попадёт в новую запись и уйдёт следующим сбросом
+        for (RollupKey key : pending.keySet()) {
+            Long delta = pending.remove(key);
+            if (delta != null && delta != 0) {
+                keys.add(key);
+                deltas.add(delta);
+                rows.add(new Object[] {key.granularity().name(), Timestamp.valueOf(key.bucket()), key.sensorId(),
+                        key.type().name(), key.status().name(), delta});
+            }
+        }
+        try {
+            if (!rows.isEmpty()) {
+                transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows));
+                log.debug("Сброшено {} дельт свёрток оповещений", rows.size());
+            }
+            cleanupMinutes();
+        } catch (RuntimeException e) {
+            log.error("Ошибка сброса свёрток оповещений, {} дельт возвращены в очередь", rows.size(), e);
+            for (int i = 0; i < keys.size(); i++) {
+                pending.merge(keys.get(i), deltas.get(i), AlertRollupService::sum);
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает все свёртки по alerts, например после восстановления базы или долгого простоя.
+     * Идёт в потоке сброса, поэтому не пересекается ни со сбросом дельт, ни с плановой сверкой.
+     */
+    public void rebuild() {
+        try {
+            flusher.submit(() -> reconcileSince(null)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось пересчитать свёртки оповещений", e.getCause());
+        }
+    }
+
+    // Плановая сверка последних интервалов; ошибка не должна снимать задачу с расписания
+    private void reconcile() {
+        try {
+            reconcileSince(RollupGranularity.day.truncate(LocalDateTime.now().minus(reconcileWindow)));
+        } catch (RuntimeException e) {
+            log.error("Ошибка сверки свёрток оповещений", e);
+        }
+    }
+
+    // Накопленные дельты сначала сбрасываются: иначе после пересчёта они легли бы поверх него второй раз
+    private void reconcileSince(LocalDateTime since) {
+        flush();
+        transaction.executeWithoutResult(status -> rebuildSince(since));
+        log.info("Свёртки оповещений сверены с alerts{}", since != null ? " с " + since : "");
+    }
+
+    /**
+     * Заменяет свёртки начиная с since (с начала суток, чтобы дневной интервал пересчитывался целиком)
+     * группировкой по alerts; null - все свёртки.
+     */
+    private void rebuildSince(LocalDateTime since) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            String bucket = "date_trunc('" + granularity.name() + "', a.timestamp)";
+            List<Object> args = new ArrayList<>();
+            args.add(granularity.name());
+            String range = "";
+            if (since != null) {
+                range = " and r.bucket_start >= ?";
+                args.add(Timestamp.valueOf(since));
+            }
+            jdbcTemplate.update("delete from alert_rollups r where r.granularity = ?" + range, args.toArray());
+            int rows = jdbcTemplate.update("insert into alert_rollups "
+                    + "(granularity, bucket_start, sensor_id, type, status, alert_count) "
+                    + "select ?, " + bucket + ", coalesce(a.sensor_id, " + NO_SENSOR + "), a.type, a.status, count(*) "
+                    + "from alerts a "
+                    + "where a.timestamp is not null and a.type is not null and a.status is not null"
+                    + (since != null ? " and a.timestamp >= ?" : "")
+                    + " group by 2, 3, 4, 5", args.toArray());
+            log.debug("Свёртка {} пересчитана: {} строк", granularity, rows);
+        }
+    }
+
+    private void cleanupMinutes() {
+        long now = System.currentTimeMillis();
+        if (now < nextCleanupAt) {
+            return;
+        }
+        nextCleanupAt = now + CLEANUP_INTERVAL_MILLIS;
+        int removed = jdbcTemplate.update("delete from alert_rollups where granularity = ? and bucket_start < ?",
+                RollupGranularity.minute.name(), Timestamp.valueOf(LocalDateTime.now().minus(minuteRetention)));
+        if (removed > 0) {
+            log.debug("Удалено {} устаревших минутных свёрток", removed);
+        }
+    }
+
+    private void add(AlertDto alert, long delta) {
+        if (alert == null || alert.timestamp() == null || alert.type() == null || alert.status() == null) {
+            return;
+        }
+        long sensorId = alert.sensorId() != null ? alert.sensorId() : NO_SENSOR;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            pending.merge(new RollupKey(granularity, granularity.truncate(alert.timestamp()), sensorId,
+                    alert.type(), alert.status()), delta, AlertRollupService::sum);
+        }
+    }
+
+    private AlertStatsRowDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        long sensorId = rs.getLong("sensor_id");
+        boolean noSensor = rs.wasNull() || sensorId == NO_SENSOR;
+        return new AlertStatsRowDto(
+                rs.getTimestamp("bucket_start").toLocalDateTime(),
+                noSensor ? null : sensorId,
+                rs.getString("location"),
+                EventType.valueOf(rs.getString("type")),
+                StatusType.valueOf(rs.getString("status")),
+                rs.getLong("alert_count"));
+    }
+
+    private static boolean sameDimensions(AlertDto before, AlertDto after) {
+        return Objects.equals(before.timestamp(), after.timestamp())
+                && Objects.equals(before.sensorId(), after.sensorId())
+                && before.type() == after.type()
+                && before.status() == after.status();
+    }
+
+    // Нулевая сумма удаляет запись, чтобы карта не росла на взаимно погасивших друг друга дельтах
+    private static Long sum(Long left, Long right) {
+        long total = left + right;
+        return total == 0 ? null : total;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.firesystem.service;
+
+import com.example.firesystem.dto.AlertRuleDto;
+import com.example.firesystem.dto.AlertRuleRequestDto;
+import com.example.firesystem.exception.ResourceNotFoundException;
+import com.example.firesystem.mapper.AlertRuleMapper;
+import com.example.firesystem.model.AlertRule;
+import com.example.firesystem.repository.AlertRuleRepository;
+import com.example.firesystem.rules.RuleEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * CRUD правил проверки показаний. Каждое изменение сразу перезагружает правила в RuleEngine.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertRuleService {
+
+    private final AlertRuleRepository alertRuleRepository;
+    private final RuleEngine ruleEngine;
+
+    public List<AlertRuleDto> getAllRules() {
+        return alertRuleRepository.findAll().stream()
+                .map(AlertRuleMapper::alertRuleToAlertRuleDto)
+                .toList();
+    }
+
+    public AlertRuleDto getRuleById(Long id) {
+        return AlertRuleMapper.alertRuleToAlertRuleDto(findRule(id));
+    }
+
+    public AlertRuleDto createRule(AlertRuleRequestDto request) {
+        log.info("Создание правила {}: {} по {}", request.name(), request.kind(), request.readingType());
+        AlertRule rule = new AlertRule();
+        apply(rule, request);
+        AlertRule saved = alertRuleRepository.save(rule);
+        ruleEngine.reload();
+        return AlertRuleMapper.alertRuleToAlertRuleDto(saved);
+    }
+
+    public AlertRuleDto updateRule(Long id, AlertRuleRequestDto request) {
+        log.info("Обновление правила с ID: {}", id);
+        AlertRule rule = findRule(id);
+        apply(rule, request);
+        AlertRule saved = alertRuleRepository.save(rule);
+        ruleEngine.reload();
+        return AlertRuleMapper.alertRuleToAlertRuleDto(saved);
+    }
+
+    public void deleteRule(Long id) {
+        log.info("Удаление правила с ID: {}", id);
+        alertRuleRepository.delete(findRule(id));
+        ruleEngine.reload();
+    }
+
+    private AlertRule findRule(Long id) {
+        return alertRuleRepository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Правило с ID {} не найдено", id);
+                    return new ResourceNotFoundException("Rule with id " + id + " not found");
+                });
+    }
+
+    private void apply(AlertRule rule, AlertRuleRequestDto request) {
+        rule.setName(request.name());
+        rule.setKind(request.kind());
+        rule.setReadingType(request.readingType());
+        rule.setThreshold(request.threshold());
+        rule.setWindowSeconds(request.windowSeconds());
+        rule.setN(request.n());
+        rule.setM(request.m());
+        rule.setLocation(request.location());
+        rule.setEventType(request.eventType());
+        rule.setEnabled(request.enabled() == null || request.enabled());
+    }
+}
\ No newline at end of file
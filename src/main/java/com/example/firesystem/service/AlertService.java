@@ -1,12 +1,24 @@
 package com.example.firesystem.service;
 
+import com.example.firesystem.cache.ActiveAlertStore;
+import com.example.firesystem.cache.CacheReloader;
+import com.example.firesystem.cache.SensorRegistry;
+import com.example.firesystem.dto.AlertBatchItemResultDto;
+import com.example.firesystem.dto.AlertBatchResponseDto;
 import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.AlertPageDto;
 import com.example.firesystem.dto.AlertRequestDto;
+import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.enums.AlertChangeType;
 import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
 import com.example.firesystem.exception.ResourceNotFoundException;
 import com.example.firesystem.mapper.AlertMapper;
 import com.example.firesystem.model.Alert;
+import com.example.firesystem.model.Sensor;
 import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.AlertView;
 import com.example.firesystem.repository.SensorRepository;
 import com.example.firesystem.model.User;
 import com.example.firesystem.repository.UserRepository;
@@ -14,81 +26,137 @@ import com.example.firesystem.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
-public class AlertService {
+public class AlertService implements CacheReloader {
 
         private final AlertRepository alertRepository;
         private final UserRepository userRepository;
         private final SensorRepository sensorRepository;
-
-        @Cacheable(value = "alerts", key = "'allAlerts'")
-        public List<AlertDto> getAllAlerts() {
-                log.info("Получение всех оповещений");
-                List<AlertDto> alerts = alertRepository.findAll().stream()
-                                .map(AlertMapper::alertToAlertDto)
+        private final ApplicationEventPublisher eventPublisher;
+        private final ActiveAlertStore activeAlertStore;
+        private final AlertDeduplicator deduplicator;
+        private final AlertPartitionManager partitionManager;
+        private final SensorService sensorService;
+        private final SensorRegistry sensorRegistry;
+
+        @Cacheable(value = "alerts", key = "#after + ':' + #limit", sync = true)
+        public AlertPageDto getAlertsPage(Long after, int limit) {
+                log.info("Получение страницы оповещений после ID {} (лимит {})", after, limit);
+                List<AlertDto> alerts = alertRepository.findViewsAfter(after,
+                                partitionManager.lowerBound(), partitionManager.upperBound(), limit).stream()
+                                .map(AlertMapper::alertViewToAlertDto)
                                 .toList();
-                log.debug("Найдено {} оповещений", alerts.size());
-                return alerts;
+                Long nextAfter = alerts.size() < limit ? null : alerts.get(alerts.size() - 1).id();
+                log.debug("Найдено {} оповещений на странице после ID {}", alerts.size(), after);
+                return new AlertPageDto(alerts, nextAfter);
+        }
+
+        public void streamAllAlerts(Consumer<AlertDto> consumer) {
+                log.info("Потоковая выгрузка всех оповещений");
+                long count = 0;
+                // Проекции не попадают в контекст персистентности, поэтому память не растёт вместе с таблицей
+                try (Stream<AlertView> alerts = alertRepository.streamViews()) {
+                        for (AlertView alert : (Iterable<AlertView>) alerts::iterator) {
+                                consumer.accept(AlertMapper.alertViewToAlertDto(alert));
+                                count++;
+                        }
+                }
+                log.debug("Выгружено {} оповещений", count);
         }
 
-        @Cacheable(value = "alertsByStatus", key = "#status")
+        // Открытые статусы отдаёт ActiveAlertStore, в кэше остаются только решённые
+        @Cacheable(value = "alertsByStatus", key = "#status", sync = true,
+                        condition = "#status == T(com.example.firesystem.enums.StatusType).resolved")
         public List<AlertDto> getAlertsByStatus(StatusType status) {
                 log.info("Получение оповещений со статусом: {}", status);
-                List<AlertDto> alerts = alertRepository.findByStatus(status).stream()
-                                .map(AlertMapper::alertToAlertDto)
+                if (ActiveAlertStore.isOpen(status) && activeAlertStore.isReady()) {
+                        return activeAlertStore.getByStatus(status);
+                }
+                return getAlertsByStatus(status, null, null);
+        }
+
+        // Явный интервал не кэшируется: по нему планировщик читает только нужные секции
+        public List<AlertDto> getAlertsByStatus(StatusType status, LocalDateTime from, LocalDateTime to) {
+                List<AlertDto> alerts = alertRepository.findViewsByStatus(status.name(),
+                                from != null ? from : partitionManager.lowerBound(),
+                                to != null ? to : partitionManager.upperBound()).stream()
+                                .map(AlertMapper::alertViewToAlertDto)
                                 .toList();
                 log.debug("Найдено {} оповещений со статусом {}", alerts.size(), status);
                 return alerts;
         }
 
-        @Cacheable(value = "alert", key = "#id")
+        @Cacheable(value = "alert", key = "#id", sync = true)
         public AlertDto getAlertById(Long id) {
                 log.info("Получение оповещения по ID: {}", id);
-                Alert alert = alertRepository.findById(id)
+                AlertView alert = alertRepository.findViewById(id)
                                 .orElseThrow(() -> {
                                         log.error("Оповещение с ID {} не найдено", id);
                                         return new ResourceNotFoundException("Оповещение с ID " + id + " не найдено");
                                 });
                 log.debug("Оповещение с ID {} успешно найдено", id);
-                return AlertMapper.alertToAlertDto(alert);
+                return AlertMapper.alertViewToAlertDto(alert);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alerts", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", allEntries = true)
-        })
         @Transactional
         public AlertDto createAlert(AlertRequestDto alertRequestDto) {
                 log.info("Создание нового оповещения для сенсора: {}", alertRequestDto.sensorId());
 
-                Alert alert = new Alert();
-                alert.setType(alertRequestDto.type());
-                alert.setTimestamp(LocalDateTime.now());
-                alert.setDescription(alertRequestDto.description());
-                alert.setStatus(alertRequestDto.status() != null ? alertRequestDto.status() : StatusType.new_status);
-                alert.setPhotoUrls(alertRequestDto.photoUrl());
+                long now = System.currentTimeMillis();
+                Long dedupKey = dedupKeyOf(alertRequestDto);
+                if (dedupKey != null) {
+                        Long openId = deduplicator.findOpen(dedupKey, now);
+                        if (openId != null) {
+                                AlertDto repeated = repeat(openId, 1, LocalDateTime.now());
+                                if (repeated != null) {
+                                        log.info("Повторное срабатывание схлопнуто в оповещение {}", openId);
+                                        return repeated;
+                                }
+                        }
+                }
+
+                Alert alert = newAlert(alertRequestDto);
 
                 if (alertRequestDto.sensorId() != null) {
-                        alert.setSensor(sensorRepository.findById(alertRequestDto.sensorId())
-                                        .orElseThrow(() -> {
-                                                log.error("Сенсор с ID {} не найден при создании оповещения",
-                                                                alertRequestDto.sensorId());
-                                                return new ResourceNotFoundException("Сенсор с ID "
-                                                                + alertRequestDto.sensorId()
-                                                                + " не найден при создании оповещения");
-                                        }));
+                        Long sensorId = alertRequestDto.sensorId();
+                        // Известный реестру сенсор подставляется ссылкой без загрузки строки. Снимок реестра
+                        // отстаёт от удалений (на других узлах - до прихода уведомления), поэтому существование
+                        // всё равно проверяется по первичному ключу: иначе вместо 404 будет нарушение внешнего ключа
+                        Optional<Sensor> sensor = sensorRegistry.contains(sensorId)
+                                        ? (sensorRepository.existsById(sensorId)
+                                                        ? Optional.of(sensorRepository.getReferenceById(sensorId))
+                                                        : Optional.empty())
+                                        : sensorRepository.findById(sensorId);
+                        alert.setSensor(sensor.orElseThrow(() -> {
+                                log.error("Сенсор с ID {} не найден при создании оповещения", sensorId);
+                                return new ResourceNotFoundException("Сенсор с ID " + sensorId
+                                                + " не найден при создании оповещения");
+                        }));
                 }
 
                 if (alertRequestDto.userId() != null) {
@@ -104,14 +172,143 @@ public class AlertService {
 
                 Alert savedAlert = alertRepository.save(alert);
                 log.info("Оповещение успешно создано с ID: {}", savedAlert.getId());
-                return AlertMapper.alertToAlertDto(savedAlert);
+                if (dedupKey != null) {
+                        deduplicator.register(dedupKey, savedAlert.getId(), now);
+                }
+                AlertDto created = AlertMapper.alertToAlertDto(savedAlert);
+                eventPublisher.publishEvent(AlertChangedEvent.of(AlertChangeType.CREATED, null, created));
+                return created;
+        }
+
+        @Transactional
+        public AlertBatchResponseDto createAlerts(List<AlertRequestDto> alertRequestDtos) {
+                log.info("Пакетное создание {} оповещений", alertRequestDtos.size());
+
+                // Сенсоры из снимка реестра становятся ссылками без загрузки строк, но их существование
+                // проверяется одним запросом по ключам: снимок отстаёт от удалений. Остальные сенсоры
+                // и пользователи разрешаются ещё двумя запросами на весь пакет
+                SensorRegistry.Snapshot registry = sensorRegistry.snapshot();
+                Map<Long, Sensor> sensors = new HashMap<>();
+                Set<Long> registeredIds = new HashSet<>();
+                Set<Long> sensorIds = new HashSet<>();
+                Set<Long> userIds = new HashSet<>();
+                for (AlertRequestDto dto : alertRequestDtos) {
+                        if (dto.sensorId() != null) {
+                                if (registry.indexOf(dto.sensorId()) >= 0) {
+                                        registeredIds.add(dto.sensorId());
+                                } else {
+                                        sensorIds.add(dto.sensorId());
+                                }
+                        }
+                        if (dto.userId() != null) {
+                                userIds.add(dto.userId());
+                        }
+                }
+                if (!registeredIds.isEmpty()) {
+                        sensorRepository.findExistingIds(registeredIds)
+                                        .forEach(id -> sensors.put(id, sensorRepository.getReferenceById(id)));
+                }
+                if (!sensorIds.isEmpty()) {
+                        sensorRepository.findAllById(sensorIds).forEach(sensor -> sensors.put(sensor.getId(), sensor));
+                }
+                Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+                int size = alertRequestDtos.size();
+                long now = System.currentTimeMillis();
+                LocalDateTime seenAt = LocalDateTime.now();
+                List<AlertBatchItemResultDto> results = new ArrayList<>(Collections.nCopies(size, null));
+                // Каждый принятый элемент либо попадает в новое оповещение, либо схлопывается в уже открытое
+                Alert[] alertOfItem = new Alert[size];
+                Long[] repeatOfItem = new Long[size];
+                Map<Long, Alert> pendingByKey = new HashMap<>();
+                Map<Long, Integer> repeats = new LinkedHashMap<>();
+                List<Alert> alerts = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                        AlertRequestDto dto = alertRequestDtos.get(i);
+                        String error = null;
+                        if (dto.sensorId() == null) {
+                                error = "Не указан сенсор";
+                        } else if (!sensors.containsKey(dto.sensorId())) {
+                                error = "Сенсор с ID " + dto.sensorId() + " не найден при создании оповещения";
+                        } else if (dto.userId() != null && !users.containsKey(dto.userId())) {
+                                error = "Пользователь с ID " + dto.userId() + " не найден при создании оповещения";
+                        }
+
+                        if (error != null) {
+                                log.warn("Оповещение #{} пакета отклонено: {}", i, error);
+                                results.set(i, new AlertBatchItemResultDto(i, false, null, error));
+                                continue;
+                        }
+
+                        Long dedupKey = dedupKeyOf(dto);
+                        if (dedupKey != null) {
+                                Long openId = pendingByKey.containsKey(dedupKey) ? null
+                                                : deduplicator.findOpen(dedupKey, now);
+                                if (openId != null) {
+                                        repeatOfItem[i] = openId;
+                                        repeats.merge(openId, 1, Integer::sum);
+                                        continue;
+                                }
+                        }
+                        alertOfItem[i] = newOrPending(dto, dedupKey, pendingByKey, alerts, sensors, users, seenAt);
+                }
+
+                List<AlertChange> changes = new ArrayList<>(size);
+                Map<Long, AlertDto> repeated = new HashMap<>();
+                if (!repeats.isEmpty()) {
+                        Map<Long, AlertDto> open = alertRepository.findViewsByIdIn(repeats.keySet()).stream()
+                                        .map(AlertMapper::alertViewToAlertDto)
+                                        .collect(Collectors.toMap(AlertDto::id, Function.identity()));
+                        repeats.forEach((openId, count) -> {
+                                AlertDto before = open.get(openId);
+                                if (before != null && alertRepository.bumpOccurrences(openId, count, seenAt) == 1) {
+                                        AlertDto after = before.repeated(count, seenAt);
+                                        repeated.put(openId, after);
+                                        changes.add(new AlertChange(AlertChangeType.REPEATED, before, after));
+                                }
+                        });
+                        // Оповещение успели закрыть: такие срабатывания заводят новое
+                        for (int i = 0; i < size; i++) {
+                                if (repeatOfItem[i] != null && !repeated.containsKey(repeatOfItem[i])) {
+                                        AlertRequestDto dto = alertRequestDtos.get(i);
+                                        alertOfItem[i] = newOrPending(dto, dedupKeyOf(dto), pendingByKey, alerts,
+                                                        sensors, users, seenAt);
+                                        repeatOfItem[i] = null;
+                                }
+                        }
+                }
+
+                // id выдаются из пула последовательности при persist, сами INSERT уходят JDBC-батчами при flush
+                List<Alert> savedAlerts = alertRepository.saveAll(alerts);
+                Map<Alert, AlertDto> created = new IdentityHashMap<>();
+                for (Alert savedAlert : savedAlerts) {
+                        AlertDto dto = AlertMapper.alertToAlertDto(savedAlert);
+                        created.put(savedAlert, dto);
+                        changes.add(new AlertChange(AlertChangeType.CREATED, null, dto));
+                        if (deduplicator.isEnabled() && savedAlert.getType() != null) {
+                                deduplicator.register(AlertDeduplicator.key(dto.sensorId(), dto.type()), dto.id(), now);
+                        }
+                }
+
+                int saved = 0;
+                for (int i = 0; i < size; i++) {
+                        if (results.get(i) == null) {
+                                AlertDto alert = alertOfItem[i] != null ? created.get(alertOfItem[i])
+                                                : repeated.get(repeatOfItem[i]);
+                                results.set(i, new AlertBatchItemResultDto(i, true, alert, null));
+                                saved++;
+                        }
+                }
+                if (!changes.isEmpty()) {
+                        eventPublisher.publishEvent(new AlertChangedEvent(changes));
+                }
+
+                log.info("Пакет обработан: принято {} (новых оповещений {}, повторов {}), отклонено {}",
+                                saved, savedAlerts.size(), saved - savedAlerts.size(), size - saved);
+                return new AlertBatchResponseDto(size, saved, size - saved, results);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", allEntries = true)
-        })
         @Transactional
         public AlertDto updateAlert(Long id, AlertRequestDto alertRequestDto) {
                 log.info("Обновление оповещения с ID: {}", id);
@@ -122,6 +319,7 @@ public class AlertService {
                                         return new ResourceNotFoundException(
                                                         "Оповещение с ID " + id + " не найдено для обновления");
                                 });
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
 
                 if (alertRequestDto.userId() != null) {
                         alert.setAssignedTo(userRepository.findById(alertRequestDto.userId())
@@ -141,32 +339,25 @@ public class AlertService {
 
                 Alert updatedAlert = alertRepository.save(alert);
                 log.info("Оповещение с ID {} успешно обновлено", id);
-                return AlertMapper.alertToAlertDto(updatedAlert);
+                return published(AlertChangeType.UPDATED, before, updatedAlert);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", allEntries = true)
-        })
         @Transactional
         public void deleteAlert(Long id) {
                 log.info("Удаление оповещения с ID: {}", id);
 
-                if (!alertRepository.existsById(id)) {
-                        log.error("Оповещение с ID {} не найдено для удаления", id);
-                        throw new ResourceNotFoundException("Alert with id " + id + " not found");
-                }
+                Alert alert = alertRepository.findById(id)
+                                .orElseThrow(() -> {
+                                        log.error("Оповещение с ID {} не найдено для удаления", id);
+                                        return new ResourceNotFoundException("Alert with id " + id + " not found");
+                                });
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
 
-                alertRepository.deleteById(id);
+                alertRepository.delete(alert);
                 log.info("Оповещение с ID {} успешно удалено", id);
+                eventPublisher.publishEvent(AlertChangedEvent.of(AlertChangeType.DELETED, before, null));
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", allEntries = true)
-        })
         @Transactional
         public AlertDto assignAlert(Long id, Long userId) {
                 log.info("Назначение оповещения {} пользователю {}", id, userId);
@@ -177,6 +368,8 @@ public class AlertService {
                                         return new ResourceNotFoundException("Оповещение с ID " + id + " не найдено");
                                 });
 
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
+
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> {
                                         log.error("Пользователь с ID {} не найден", userId);
@@ -187,15 +380,9 @@ public class AlertService {
                 alert.setAssignedTo(user);
                 Alert updatedAlert = alertRepository.save(alert);
                 log.info("Оповещение {} успешно назначено пользователю {}", id, userId);
-                return AlertMapper.alertToAlertDto(updatedAlert);
+                return published(AlertChangeType.ASSIGNED, before, updatedAlert);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", allEntries = true),
-                        @CacheEvict(value = "alertsByStatus", key = "#status")
-        })
         @Transactional
         public AlertDto changeStatus(Long id, StatusType status) {
                 log.info("Изменение статуса оповещения {} на {}", id, status);
@@ -206,16 +393,13 @@ public class AlertService {
                                         return new ResourceNotFoundException("Оповещение с ID " + id + " не найдено");
                                 });
 
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
                 alert.setStatus(status);
                 Alert updatedAlert = alertRepository.save(alert);
                 log.info("Статус оповещения {} успешно изменен на {}", id, status);
-                return AlertMapper.alertToAlertDto(updatedAlert);
+                return published(AlertChangeType.STATUS_CHANGED, before, updatedAlert);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true)
-        })
         @Transactional
         public AlertDto addPhotoToAlert(Long id, String photoUrl) {
                 log.info("Добавление фотографии к оповещению {}", id);
@@ -226,17 +410,14 @@ public class AlertService {
                                         return new ResourceNotFoundException("Оповещение с ID " + id + " не найдено");
                                 });
 
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
                 alert.getPhotoUrls().add(photoUrl);
                 Alert updatedAlert = alertRepository.save(alert);
                 log.debug("Фотография добавлена к оповещению {}. Всего фотографий: {}",
                                 id, updatedAlert.getPhotoUrls().size());
-                return AlertMapper.alertToAlertDto(updatedAlert);
+                return published(AlertChangeType.PHOTO_ADDED, before, updatedAlert);
         }
 
-        @Caching(evict = {
-                        @CacheEvict(value = "alert", key = "#id"),
-                        @CacheEvict(value = "alerts", allEntries = true)
-        })
         @Transactional
         public AlertDto removePhotoFromAlert(Long id, String photoUrl) {
                 log.info("Удаление фотографии из оповещения {}", id);
@@ -247,31 +428,147 @@ public class AlertService {
                                         return new ResourceNotFoundException("Оповещение с ID " + id + " не найдено");
                                 });
 
+                AlertDto before = AlertMapper.alertToAlertDto(alert);
                 boolean removed = alert.getPhotoUrls().remove(photoUrl);
                 if (removed) {
                         Alert updatedAlert = alertRepository.save(alert);
                         log.debug("Фотография удалена из оповещения {}. Осталось фотографий: {}",
                                         id, updatedAlert.getPhotoUrls().size());
-                        return AlertMapper.alertToAlertDto(updatedAlert);
+                        return published(AlertChangeType.PHOTO_REMOVED, before, updatedAlert);
                 } else {
                         log.warn("Фотография не найдена в оповещении {}", id);
                         return AlertMapper.alertToAlertDto(alert);
                 }
         }
 
-        @Cacheable(value = "alertsBySensor", key = "#sensorId")
+        @Cacheable(value = "alertsBySensor", key = "#sensorId", sync = true)
         public List<AlertDto> getAlertsBySensor(Long sensorId) {
                 log.info("Поиск оповещений по сенсору: {}", sensorId);
-                List<AlertDto> alerts = alertRepository.findBySensorId(sensorId).stream()
-                                .map(AlertMapper::alertToAlertDto)
+                return getAlertsBySensor(sensorId, null, null);
+        }
+
+        public List<AlertDto> getAlertsBySensor(Long sensorId, LocalDateTime from, LocalDateTime to) {
+                List<AlertDto> alerts = alertRepository.findViewsBySensorId(sensorId,
+                                from != null ? from : partitionManager.lowerBound(),
+                                to != null ? to : partitionManager.upperBound()).stream()
+                                .map(AlertMapper::alertViewToAlertDto)
                                 .toList();
                 log.debug("Найдено {} оповещений для сенсора {}", alerts.size(), sensorId);
                 return alerts;
         }
 
+        public List<AlertDto> getOpenAlertsBySensor(Long sensorId) {
+                log.info("Поиск открытых оповещений по сенсору: {}", sensorId);
+                if (activeAlertStore.isReady()) {
+                        return activeAlertStore.getBySensor(sensorId);
+                }
+                return alertRepository.findOpenViewsBySensorId(sensorId,
+                                partitionManager.lowerBound(), partitionManager.upperBound()).stream()
+                                .map(AlertMapper::alertViewToAlertDto)
+                                .toList();
+        }
+
+        // Сенсоры поддерева берутся из индекса местоположений, их открытые оповещения - из ActiveAlertStore
+        public List<AlertDto> getOpenAlertsByLocation(String path) {
+                log.info("Поиск открытых оповещений по местоположению: {}", path);
+                List<AlertDto> alerts = new ArrayList<>();
+                for (SensorResponseDto sensor : sensorService.getSensorsByLocation(path)) {
+                        alerts.addAll(activeAlertStore.isReady()
+                                        ? activeAlertStore.getBySensor(sensor.id())
+                                        : getOpenAlertsBySensor(sensor.id()));
+                }
+                alerts.sort(Comparator.comparing(AlertDto::id));
+                return alerts;
+        }
+
+        private Long dedupKeyOf(AlertRequestDto alertRequestDto) {
+                if (!deduplicator.isEnabled() || alertRequestDto.sensorId() == null || alertRequestDto.type() == null) {
+                        return null;
+                }
+                return AlertDeduplicator.key(alertRequestDto.sensorId(), alertRequestDto.type());
+        }
+
+        // Схлопывает count срабатываний в открытое оповещение; null, если оно уже закрыто или удалено
+        private AlertDto repeat(Long openId, int count, LocalDateTime seenAt) {
+                AlertDto before = alertRepository.findViewById(openId)
+                                .map(AlertMapper::alertViewToAlertDto)
+                                .orElse(null);
+                if (before == null || alertRepository.bumpOccurrences(openId, count, seenAt) == 0) {
+                        return null;
+                }
+                AlertDto after = before.repeated(count, seenAt);
+                eventPublisher.publishEvent(AlertChangedEvent.of(AlertChangeType.REPEATED, before, after));
+                return after;
+        }
+
+        // Срабатывания с одним ключом внутри пакета сливаются в одно новое оповещение
+        private Alert newOrPending(AlertRequestDto dto, Long dedupKey, Map<Long, Alert> pendingByKey,
+                        List<Alert> alerts, Map<Long, Sensor> sensors, Map<Long, User> users, LocalDateTime seenAt) {
+                Alert pending = dedupKey != null ? pendingByKey.get(dedupKey) : null;
+                if (pending != null) {
+                        pending.setOccurrences(pending.getOccurrences() + 1);
+                        pending.setLastSeen(seenAt);
+                        return pending;
+                }
+                Alert alert = newAlert(dto);
+                alert.setSensor(sensors.get(dto.sensorId()));
+                if (dto.userId() != null) {
+                        alert.setAssignedTo(users.get(dto.userId()));
+                }
+                alerts.add(alert);
+                if (dedupKey != null) {
+                        pendingByKey.put(dedupKey, alert);
+                }
+                return alert;
+        }
+
+        private Alert newAlert(AlertRequestDto alertRequestDto) {
+                Alert alert = new Alert();
+                alert.setType(alertRequestDto.type());
+                alert.setTimestamp(LocalDateTime.now());
+                alert.setDescription(alertRequestDto.description());
+                alert.setStatus(alertRequestDto.status() != null ? alertRequestDto.status() : StatusType.new_status);
+                alert.setPhotoUrls(alertRequestDto.photoUrl());
+                alert.setOccurrences(1);
+                alert.setLastSeen(alert.getTimestamp());
+                return alert;
+        }
+
+        private AlertDto published(AlertChangeType type, AlertDto before, Alert updatedAlert) {
+                AlertDto after = AlertMapper.alertToAlertDto(updatedAlert);
+                eventPublisher.publishEvent(AlertChangedEvent.of(type, before, after));
+                return after;
+        }
+
         @Transactional
         public Alert create(Alert alert) {
                 log.debug("Сохранение оповещения через внутренний метод");
-                return alertRepository.save(alert);
+                Alert savedAlert = alertRepository.save(alert);
+                eventPublisher.publishEvent(AlertChangedEvent.of(AlertChangeType.CREATED, null,
+                                AlertMapper.alertToAlertDto(savedAlert)));
+                return savedAlert;
+        }
+
+        @Override
+        public boolean reloads(String cacheName) {
+                return switch (cacheName) {
+                        case "alerts", "alert", "alertsByStatus", "alertsBySensor" -> true;
+                        default -> false;
+                };
+        }
+
+        // Вызовы через this идут мимо кэширующего прокси и читают базу
+        @Override
+        public Object reload(String cacheName, Object key) {
+                return switch (cacheName) {
+                        case "alerts" -> {
+                                String[] cursor = key.toString().split(":");
+                                yield getAlertsPage(Long.valueOf(cursor[0]), Integer.parseInt(cursor[1]));
+                        }
+                        case "alert" -> getAlertById((Long) key);
+                        case "alertsByStatus" -> getAlertsByStatus((StatusType) key);
+                        case "alertsBySensor" -> getAlertsBySensor((Long) key);
+                        default -> null;
+                };
         }
 }
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.example.firesystem.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.dto.AlertStreamEventDto;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChange;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Живая лента оповещений по Server-Sent Events.
+ * Каждое изменение кодируется в JSON один раз, и готовый кадр раздаётся всем подписчикам.
+ * У подписчика своя ограниченная очередь: если клиент не успевает её разбирать,
+ * очередь сбрасывается и вместо накопленных событий он получает маркер resync.
+ * Отправка в сокет блокирующая, поэтому пул рассылки ограничен и по потокам, и по очереди: подписчик,
+ * для которого не нашлось места, отключается. Подписчик, отправка которому идёт дольше send-timeout,
+ * вычёркивается из ленты; его поток освобождается по таймауту записи коннектора
+ * (server.tomcat.connection-timeout).
+ */
+@Slf4j
+@Service
+public class AlertStreamService {
+
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final long STALL_CHECK_MILLIS = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long sendTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService dispatchers;
+    private final ScheduledExecutorService heartbeat;
+    private final Set<DataWithMediaType> heartbeatFrame = SseEmitter.event().comment("ping").build();
+
+    public AlertStreamService(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.stream.queue-capacity:256}") int queueCapacity,
+            @Value("${alerts.stream.dispatcher-threads:4}") int dispatcherThreads,
+            @Value("${alerts.stream.dispatcher-queue:64}") int dispatcherQueue,
+            @Value("${alerts.stream.send-timeout:5s}") Duration sendTimeout) {
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatchers = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dispatcherQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "alert-stream-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "alert-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS,
+                TimeUnit.SECONDS);
+        this.heartbeat.scheduleWithFixedDelay(this::evictStalled, STALL_CHECK_MILLIS, STALL_CHECK_MILLIS,
+                TimeUnit.MILLISECONDS);
+        Gauge.builder("alerts.stream.subscribers", subscribers, Set::size)
+                .description("Подключённые SSE-подписчики ленты оповещений")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(StatusType status, Long sensorId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, status, sensorId, new ArrayBlockingQueue<>(queueCapacity));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.debug("Новый подписчик ленты оповещений (статус={}, сенсор={}), всего {}",
+                status, sensorId, subscribers.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (AlertChange change : event.changes()) {
+            Set<DataWithMediaType> frame = encode(change);
+            if (frame == null) {
+                continue;
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.matches(change)) {
+                    enqueue(subscriber, frame);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        dispatchers.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+    }
+
+    // Кадр собирается один раз: все подписчики отправляют один и тот же набор частей с готовым JSON
+    private Set<DataWithMediaType> encode(AlertChange change) {
+        long id = sequence.incrementAndGet();
+        AlertStreamEventDto payload = new AlertStreamEventDto(id, change.type(), change.alertId(), change.after());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(payload);
+            return SseEmitter.event()
+                    .id(Long.toString(id))
+                    .name(change.type().name())
+                    .data(json, MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("Не удалось сериализовать событие оповещения {}", change.alertId(), e);
+            return null;
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Set<DataWithMediaType> frame) {
+        if (!subscriber.queue().offer(frame)) {
+            // Медленный клиент: вместо неограниченного буфера отдаём маркер, по которому он перечитает состояние
+            subscriber.queue().clear();
+            subscriber.queue().offer(resyncFrame());
+        }
+        schedule(subscriber);
+    }
+
+    private Set<DataWithMediaType> resyncFrame() {
+        return SseEmitter.event()
+                .id(Long.toString(sequence.get()))
+                .name("RESYNC")
+                .data("{}", MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled().compareAndSet(false, true)) {
+            try {
+                dispatchers.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Все потоки заняты, очередь пула полна: ждать нельзя, иначе встанут и остальные подписчики.
+                // Разбор этого подписчика не запущен, поэтому эмиттер можно закрыть прямо здесь
+                if (subscriber.evicted().compareAndSet(false, true)) {
+                    subscribers.remove(subscriber);
+                    subscriber.queue().clear();
+                    log.warn("Пул рассылки ленты оповещений перегружен, подписчик отключён");
+                    subscriber.emitter().complete();
+                }
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<DataWithMediaType> frame;
+            while (!subscriber.evicted().get() && (frame = subscriber.queue().poll()) != null) {
+                subscriber.sendingSince().set(System.nanoTime());
+                subscriber.emitter().send(frame);
+                subscriber.sendingSince().set(0);
+            }
+            if (subscriber.evicted().get()) {
+                // Зависшая отправка всё-таки завершилась: закрываем поток событий, клиент переподключится
+                subscriber.emitter().complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Подписчик ленты оповещений отключился: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.queue().clear();
+            subscriber.emitter().completeWithError(e);
+        } finally {
+            subscriber.sendingSince().set(0);
+            subscriber.scheduled().set(false);
+            if (!subscriber.queue().isEmpty() && subscribers.contains(subscriber)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // Закрывать эмиттер отсюда нельзя: он заблокирован той же отправкой. Подписчик только вычёркивается,
+    // чтобы очередь перестала пополняться, а эмиттер закрывает поток отправки, когда запись вернётся
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince().get();
+            if (since != 0 && now - since > sendTimeoutNanos && subscriber.evicted().compareAndSet(false, true)) {
+                subscribers.remove(subscriber);
+                subscriber.queue().clear();
+                log.warn("Подписчик ленты оповещений не принимает данные дольше {} мс, отключён",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+            }
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue().isEmpty()) {
+                subscriber.queue().offer(heartbeatFrame);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private record Subscriber(
+            SseEmitter emitter,
+            StatusType status,
+            Long sensorId,
+            BlockingQueue<Set<DataWithMediaType>> queue,
+            AtomicBoolean scheduled,
+            // System.nanoTime() начала текущей отправки, 0 - отправки нет
+            AtomicLong sendingSince,
+            AtomicBoolean evicted) {
+
+        Subscriber(SseEmitter emitter, StatusType status, Long sensorId,
+                BlockingQueue<Set<DataWithMediaType>> queue) {
+            this(emitter, status, sensorId, queue, new AtomicBoolean(), new AtomicLong(), new AtomicBoolean());
+        }
+
+        boolean matches(AlertChange change) {
+            return matches(change.before()) || matches(change.after());
+        }
+
+        private boolean matches(AlertDto alert) {
+            return alert != null
+                    && (status == null || status == alert.status())
+                    && (sensorId == null || Objects.equals(sensorId, alert.sensorId()));
+        }
+
+        // Подписчики сравниваются по идентичности, а не по содержимому
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.firesystem.service;
 
+import com.example.firesystem.dto.AlertDto;
 import com.example.firesystem.model.Alert;
+import com.example.firesystem.util.LocationPath;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -18,6 +20,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -26,6 +29,8 @@ public class PdfReportService {
 
     private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
 
+    private final AlertService alertService;
+
     @Value("${reports.save.path:./reports/}")
     private String reportsSavePath;
 
@@ -129,6 +134,79 @@ public class PdfReportService {
         contentStream.endText();
     }
 
+    /**
+     * Отчёт по открытым оповещениям всех сенсоров поддерева местоположения
+     */
+    public byte[] generateLocationReport(String path) {
+        String normalized = LocationPath.normalize(path);
+        List<AlertDto> alerts = alertService.getOpenAlertsByLocation(normalized);
+        log.info("Генерация PDF отчета по местоположению {}: {} открытых оповещений", normalized, alerts.size());
+
+        try (PDDocument document = new PDDocument()) {
+            float margin = 50;
+            float lineHeight = 15;
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            PDPageContentStream contentStream = new PDPageContentStream(document, page);
+            try {
+                float yPosition = page.getMediaBox().getHeight() - margin;
+                contentStream.setFont(PDType1Font.HELVETICA_BOLD, 18);
+                contentStream.beginText();
+                contentStream.newLineAtOffset(margin, yPosition);
+                contentStream.showText("LOCATION REPORT: " + latin(normalized != null ? normalized : "all"));
+                contentStream.endText();
+
+                yPosition -= 25;
+                contentStream.setFont(PDType1Font.HELVETICA, 10);
+                contentStream.beginText();
+                contentStream.newLineAtOffset(margin, yPosition);
+                contentStream.showText("Generated: " + LocalDateTime.now().format(
+                        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "    Open alerts: " + alerts.size());
+                contentStream.endText();
+                yPosition -= lineHeight * 2;
+
+                for (AlertDto alert : alerts) {
+                    // Новая страница, когда текущая закончилась
+                    if (yPosition < margin) {
+                        contentStream.close();
+                        page = new PDPage(PDRectangle.A4);
+                        document.addPage(page);
+                        contentStream = new PDPageContentStream(document, page);
+                        contentStream.setFont(PDType1Font.HELVETICA, 10);
+                        yPosition = page.getMediaBox().getHeight() - margin;
+                    }
+                    contentStream.beginText();
+                    contentStream.newLineAtOffset(margin, yPosition);
+                    contentStream.showText(String.format("#%d  %s  %s  sensor #%d  %s",
+                            alert.id(),
+                            translateEventTypeToLatin(alert.type()),
+                            translateStatusToLatin(alert.status()),
+                            alert.sensorId(),
+                            alert.timestamp() != null
+                                    ? alert.timestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+                                    : "-"));
+                    contentStream.endText();
+                    yPosition -= lineHeight;
+                }
+            } finally {
+                contentStream.close();
+            }
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            document.save(baos);
+            return baos.toByteArray();
+
+        } catch (IOException e) {
+            log.error("Ошибка при генерации PDF отчета по местоположению {}", normalized, e);
+            throw new RuntimeException("Failed to generate location PDF report", e);
+        }
+    }
+
+    // Стандартный шрифт не содержит кириллицы: всё вне ASCII заменяется на '?'
+    private static String latin(String text) {
+        return text.replaceAll("[^\\x20-\\x7E]", "?");
+    }
+
     private void saveToFile(byte[] pdfBytes, Long alertId) {
         try {
             // Создаем папку
@@ -170,11 +248,11 @@ public class PdfReportService {
     /**
      * Получение списка сохраненных отчетов
      */
-    public java.util.List<String> listSavedReports() {
+    public List<String> listSavedReports() {
         try {
             Path reportsDir = Paths.get(reportsSavePath);
             if (!Files.exists(reportsDir)) {
-                return java.util.List.of("Reports directory does not exist");
+                return List.of("Reports directory does not exist");
             }
 
             return Files.list(reportsDir)
@@ -184,7 +262,7 @@ public class PdfReportService {
 
         } catch (IOException e) {
             log.error("Ошибка чтения списка отчетов", e);
-            return java.util.List.of("Error: " + e.getMessage());
+            return List.of("Error: " + e.getMessage());
         }
     }
 
@@ -235,6 +313,10 @@ public class PdfReportService {
             case accident -> "FIRE";
             case hard_braking -> "ALARM";
             case button -> "MAINTENANCE";
+            case sensor_offline -> "SENSOR OFFLINE";
+            case high_temperature -> "HIGH TEMPERATURE";
+            case smoke -> "SMOKE";
+            case co_leak -> "CARBON MONOXIDE";
             default -> eventType.toString().toUpperCase();
         };
     }
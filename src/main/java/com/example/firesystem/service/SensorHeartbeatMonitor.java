@@ -0,0 +1,509 @@
+package com.example.firesystem.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.firesystem.cache.ActiveAlertStore;
+import com.example.firesystem.cache.SensorRegistry;
+import com.example.firesystem.dto.SensorHeartbeatDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.SensorChangedEvent;
+import com.example.firesystem.exception.ResourceNotFoundException;
+import com.example.firesystem.model.Alert;
+import com.example.firesystem.model.Sensor;
+import com.example.firesystem.repository.SensorRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Контроль живости сенсоров по heartbeat.
+ * Состояние лежит в примитивных массивах по слотам: heartbeat - это поиск слота и одна запись long,
+ * без JPA и без аллокаций. Пропущенные heartbeat находит хэшированное колесо таймеров с ленивым
+ * перепланированием: при срабатывании корзины сенсор либо переносится на новый срок по свежему
+ * времени последнего heartbeat, либо признаётся недоступным, и на него заводится одно оповещение.
+ * Время последнего heartbeat периодически сбрасывается в sensor.last_heartbeat_at одним батчем.
+ * Слот удалённого сенсора освобождается и достаётся следующему зарегистрированному.
+ */
+@Slf4j
+@Service
+public class SensorHeartbeatMonitor {
+
+    private static final int EMPTY = -1;
+    private static final int INACTIVE = 0;
+    private static final int ALIVE = 1;
+    private static final int OFFLINE = 2;
+    // Слот освобождён, но ещё может стоять в корзине колеса: вернётся в свободные, когда она сработает
+    private static final int RELEASED = 3;
+    // Ключ удалённого сенсора в таблице: поиск идёт дальше, вставка занимает позицию заново
+    private static final long TOMBSTONE = -1;
+
+    private final SensorRepository sensorRepository;
+    private final SensorRegistry sensorRegistry;
+    private final AlertService alertService;
+    private final ActiveAlertStore activeAlertStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int capacity;
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final Duration flushInterval;
+
+    // sensorId -> слот: открытая адресация без роста, чтение без блокировок. Удаление оставляет
+    // TOMBSTONE; когда их набирается много, таблица пересобирается и подменяется целиком.
+    // Ключ публикуется после значения, поэтому увидевший ключ читатель видит и слот
+    private volatile Table table;
+    private final Object registrationLock = new Object();
+    private volatile int slotCount;
+    private final ConcurrentLinkedQueue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+
+    private final long[] sensorIds;
+    private final AtomicLongArray lastSeen;
+    private final AtomicIntegerArray state;
+    private final long[] flushedSeen; // только поток сброса
+
+    // Колесо таймеров: односвязные списки слотов по корзинам, всё под wheelLock
+    private final Object wheelLock = new Object();
+    private final int[] wheelHeads;
+    private final int[] wheelNext;
+    private final int wheelMask;
+    private long currentTick;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService alertRaiser;
+
+    public SensorHeartbeatMonitor(
+            SensorRepository sensorRepository,
+            SensorRegistry sensorRegistry,
+            AlertService alertService,
+            ActiveAlertStore activeAlertStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${sensors.heartbeat.capacity:131072}") int capacity,
+            @Value("${sensors.heartbeat.timeout:30s}") Duration timeout,
+            @Value("${sensors.heartbeat.tick:1s}") Duration tick,
+            @Value("${sensors.heartbeat.flush-interval:30s}") Duration flushInterval) {
+        this.sensorRepository = sensorRepository;
+        this.sensorRegistry = sensorRegistry;
+        this.alertService = alertService;
+        this.activeAlertStore = activeAlertStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.flushInterval = flushInterval;
+
+        this.table = new Table(Integer.highestOneBit(Math.max(4, capacity * 2) - 1) << 1);
+
+        this.sensorIds = new long[capacity];
+        this.lastSeen = new AtomicLongArray(capacity);
+        this.state = new AtomicIntegerArray(capacity);
+        this.flushedSeen = new long[capacity];
+
+        // Оборот колеса покрывает таймаут, чтобы перенос почти всегда попадал в текущий оборот
+        int wheelSize = Integer.highestOneBit((int) Math.max(2, timeoutMillis / tickMillis + 1) - 1) << 1;
+        this.wheelHeads = new int[wheelSize];
+        Arrays.fill(this.wheelHeads, EMPTY);
+        this.wheelNext = new int[capacity];
+        this.wheelMask = wheelSize - 1;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-heartbeat-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.alertRaiser = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-offline-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("sensors.heartbeat.monitored", this,
+                        monitor -> monitor.countInState(ALIVE) + monitor.countInState(OFFLINE))
+                .description("Сенсоры под контролем heartbeat")
+                .register(meterRegistry);
+        Gauge.builder("sensors.heartbeat.offline", this, monitor -> monitor.countInState(OFFLINE))
+                .description("Сенсоры, пропустившие heartbeat")
+                .register(meterRegistry);
+    }
+
+    // После рестарта отсчёт идёт от момента старта, иначе простой самого сервера выглядел бы как отказ всех сенсоров
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long startedAt = System.currentTimeMillis();
+        jdbcTemplate.query("select id, last_heartbeat_at from sensor where last_heartbeat_at is not null", rs -> {
+            long seen = rs.getTimestamp("last_heartbeat_at").getTime();
+            int slot = register(rs.getLong("id"), Math.max(seen, startedAt));
+            if (slot != EMPTY) {
+                flushedSeen[slot] = lastSeen.get(slot);
+            }
+        });
+        log.info("Контроль heartbeat запущен: {} сенсоров, таймаут {} мс", slotCount, timeoutMillis);
+        scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        alertRaiser.shutdownNow();
+        flush();
+    }
+
+    public void beat(long sensorId) {
+        beat(sensorId, true);
+    }
+
+    /**
+     * Heartbeat с потока-селектора шлюзов: новый сенсор проверяется только по снимку реестра,
+     * запрос к базе остановил бы приём со всех шлюзов. Сенсор, которого ещё нет в снимке, отклоняется,
+     * шлюз повторит heartbeat.
+     */
+    public void beatRegistered(long sensorId) {
+        beat(sensorId, false);
+    }
+
+    private void beat(long sensorId, boolean checkDatabase) {
+        long now = System.currentTimeMillis();
+        int slot = slotOf(sensorId);
+        if (slot == EMPTY) {
+            // Первый heartbeat сенсора проверяется по снимку реестра, в базу - только при промахе и не с селектора
+            if (!sensorRegistry.contains(sensorId) && (!checkDatabase || !sensorRepository.existsById(sensorId))) {
+                throw new ResourceNotFoundException("Sensor with id " + sensorId + " not found");
+            }
+            slot = register(sensorId, now);
+            if (slot == EMPTY) {
+                return;
+            }
+        }
+        // volatile-запись: тик, признавший сенсор недоступным, либо увидит её, либо мы увидим OFFLINE ниже
+        lastSeen.set(slot, now);
+        if (state.get(slot) == OFFLINE && state.compareAndSet(slot, OFFLINE, ALIVE)) {
+            log.info("Сенсор {} снова на связи", sensorId);
+            synchronized (wheelLock) {
+                schedule(slot, now + timeoutMillis);
+            }
+        }
+    }
+
+    // Удалённый сенсор снимается с контроля; удаление на другом узле слот освободит raiseOffline
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent event) {
+        if (event.after() == null) {
+            release(event.sensorId());
+        }
+    }
+
+    public SensorHeartbeatDto status(long sensorId) {
+        int slot = slotOf(sensorId);
+        int current = slot == EMPTY ? INACTIVE : state.get(slot);
+        if (current != ALIVE && current != OFFLINE) {
+            return new SensorHeartbeatDto(sensorId, null, false);
+        }
+        LocalDateTime seen = LocalDateTime.ofInstant(Instant.ofEpochMilli(lastSeen.get(slot)), ZoneId.systemDefault());
+        return new SensorHeartbeatDto(sensorId, seen, state.get(slot) == ALIVE);
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Long> expired = null;
+            synchronized (wheelLock) {
+                long target = now / tickMillis;
+                while (currentTick <= target) {
+                    expired = expireBucket((int) (currentTick & wheelMask), now, expired);
+                    currentTick++;
+                }
+            }
+            if (expired != null) {
+                List<Long> offline = expired;
+                log.warn("{} сенсоров пропустили heartbeat", offline.size());
+                alertRaiser.execute(() -> raiseOffline(offline));
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка обработки колеса таймеров heartbeat", e);
+        }
+    }
+
+    void flush() {
+        int count = slotCount;
+        int[] dirty = new int[64];
+        long[] seen = new long[64];
+        int size = 0;
+        for (int slot = 0; slot < count; slot++) {
+            long value = lastSeen.get(slot);
+            int current = state.get(slot);
+            if (value != flushedSeen[slot] && (current == ALIVE || current == OFFLINE)) {
+                if (size == dirty.length) {
+                    dirty = Arrays.copyOf(dirty, size * 2);
+                    seen = Arrays.copyOf(seen, size * 2);
+                }
+                dirty[size] = slot;
+                seen[size++] = value;
+            }
+        }
+        if (size == 0) {
+            return;
+        }
+
+        int[] slots = dirty;
+        long[] values = seen;
+        int rows = size;
+        try {
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "update sensor set last_heartbeat_at = ? where id = ?", new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setTimestamp(1, new Timestamp(values[i]));
+                            ps.setLong(2, sensorIds[slots[i]]);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return rows;
+                        }
+                    }));
+            for (int i = 0; i < rows; i++) {
+                flushedSeen[slots[i]] = values[i];
+            }
+            log.debug("Сброшено время heartbeat для {} сенсоров", rows);
+        } catch (RuntimeException e) {
+            log.error("Ошибка сброса времени heartbeat, повтор при следующем сбросе", e);
+        }
+    }
+
+    private List<Long> expireBucket(int bucket, long now, List<Long> expired) {
+        int slot = wheelHeads[bucket];
+        wheelHeads[bucket] = EMPTY;
+        while (slot != EMPTY) {
+            int next = wheelNext[slot];
+            int current = state.get(slot);
+            if (current == ALIVE) {
+                long deadline = lastSeen.get(slot) + timeoutMillis;
+                if (deadline > now) {
+                    schedule(slot, deadline);
+                } else if (state.compareAndSet(slot, ALIVE, OFFLINE)) {
+                    // heartbeat мог прийти между чтением времени и CAS: перечитываем
+                    deadline = lastSeen.get(slot) + timeoutMillis;
+                    if (deadline <= now) {
+                        if (expired == null) {
+                            expired = new ArrayList<>();
+                        }
+                        expired.add(sensorIds[slot]);
+                    } else if (state.compareAndSet(slot, OFFLINE, ALIVE)) {
+                        schedule(slot, deadline);
+                    }
+                    // Иначе OFFLINE -> ALIVE выиграл beat(): он сам поставил слот в колесо
+                }
+            } else if (current == RELEASED) {
+                freeSlots.offer(slot);
+            }
+            slot = next;
+        }
+        return expired;
+    }
+
+    // Вызывается под wheelLock
+    private void schedule(int slot, long deadline) {
+        long tick = Math.max((deadline + tickMillis - 1) / tickMillis, currentTick + 1);
+        int bucket = (int) (tick & wheelMask);
+        wheelNext[slot] = wheelHeads[bucket];
+        wheelHeads[bucket] = slot;
+    }
+
+    private void raiseOffline(List<Long> offline) {
+        for (Long sensorId : offline) {
+            try {
+                if (activeAlertStore.isReady() && activeAlertStore.getBySensor(sensorId).stream()
+                        .anyMatch(alert -> alert.type() == EventType.sensor_offline)) {
+                    continue;
+                }
+                Sensor sensor = sensorRepository.findById(sensorId).orElse(null);
+                if (sensor == null) {
+                    // Сенсор удалён, в том числе на другом узле: снимаем с контроля
+                    release(sensorId);
+                    continue;
+                }
+                Alert alert = new Alert();
+                alert.setSensor(sensor);
+                alert.setType(EventType.sensor_offline);
+                alert.setStatus(StatusType.new_status);
+                alert.setTimestamp(LocalDateTime.now());
+                alert.setLastSeen(alert.getTimestamp());
+                alert.setOccurrences(1);
+                alert.setDescription("Нет heartbeat от сенсора " + sensorId + " дольше " + timeoutMillis / 1000 + " с");
+                Alert created = alertService.create(alert);
+                log.warn("Сенсор {} не на связи, создано оповещение {}", sensorId, created.getId());
+            } catch (RuntimeException e) {
+                log.error("Не удалось создать оповещение о недоступности сенсора {}", sensorId, e);
+            }
+        }
+    }
+
+    private int register(long sensorId, long seenAt) {
+        synchronized (registrationLock) {
+            int existing = slotOf(sensorId);
+            if (existing != EMPTY) {
+                return existing;
+            }
+            Integer free = freeSlots.poll();
+            int slot = free != null ? free : slotCount;
+            if (slot == capacity) {
+                log.error("Превышена ёмкость контроля heartbeat ({}), сенсор {} не отслеживается", capacity, sensorId);
+                return EMPTY;
+            }
+            sensorIds[slot] = sensorId;
+            lastSeen.set(slot, seenAt);
+            state.set(slot, ALIVE);
+            table.insert(sensorId, slot);
+            if (free == null) {
+                slotCount = slot + 1;
+            }
+            synchronized (wheelLock) {
+                schedule(slot, seenAt + timeoutMillis);
+            }
+            return slot;
+        }
+    }
+
+    private void release(long sensorId) {
+        synchronized (registrationLock) {
+            int slot = table.remove(sensorId);
+            if (slot == EMPTY) {
+                return;
+            }
+            // Слот, стоящий в корзине колеса, вернёт в свободные сама корзина: иначе его повторная
+            // постановка в колесо порвала бы список корзины
+            synchronized (wheelLock) {
+                if (state.getAndSet(slot, RELEASED) != ALIVE) {
+                    freeSlots.offer(slot);
+                }
+            }
+            if (table.tombstones > capacity / 2) {
+                table = table.rehash();
+            }
+            log.info("Сенсор {} снят с контроля heartbeat", sensorId);
+        }
+    }
+
+    private int slotOf(long sensorId) {
+        int slot = table.get(sensorId);
+        // Слот мог уже достаться другому сенсору после удаления этого
+        return slot != EMPTY && sensorIds[slot] == sensorId ? slot : EMPTY;
+    }
+
+    private int countInState(int expected) {
+        int count = slotCount;
+        int matching = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (state.get(slot) == expected) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Читается без блокировок, изменяется только под registrationLock
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicIntegerArray slots;
+        final int mask;
+        int tombstones;
+
+        Table(int size) {
+            this.keys = new AtomicLongArray(size);
+            this.slots = new AtomicIntegerArray(size);
+            this.mask = size - 1;
+        }
+
+        int get(long sensorId) {
+            int position = mix(sensorId) & mask;
+            long key;
+            while ((key = keys.get(position)) != 0) {
+                if (key == sensorId) {
+                    return slots.get(position);
+                }
+                position = (position + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        // Ключа в таблице нет: вызывающий проверил это под той же блокировкой
+        void insert(long sensorId, int slot) {
+            int position = mix(sensorId) & mask;
+            long key;
+            while ((key = keys.get(position)) != 0 && key != TOMBSTONE) {
+                position = (position + 1) & mask;
+            }
+            if (key == TOMBSTONE) {
+                tombstones--;
+            }
+            slots.set(position, slot);
+            keys.set(position, sensorId);
+        }
+
+        int remove(long sensorId) {
+            int position = mix(sensorId) & mask;
+            long key;
+            while ((key = keys.get(position)) != 0) {
+                if (key == sensorId) {
+                    keys.set(position, TOMBSTONE);
+                    tombstones++;
+                    return slots.get(position);
+                }
+                position = (position + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        Table rehash() {
+            Table rehashed = new Table(keys.length());
+            for (int position = 0; position < keys.length(); position++) {
+                long key = keys.get(position);
+                if (key != 0 && key != TOMBSTONE) {
+                    rehashed.insert(key, slots.get(position));
+                }
+            }
+            return rehashed;
+        }
+    }
+}
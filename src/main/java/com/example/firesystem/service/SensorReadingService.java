@@ -0,0 +1,144 @@
+package com.example.firesystem.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.example.firesystem.cache.SensorRegistry;
+import com.example.firesystem.dto.ReadingPointDto;
+import com.example.firesystem.dto.SensorReadingRequestDto;
+import com.example.firesystem.dto.SensorReadingsDto;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.exception.ResourceNotFoundException;
+import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.rules.RuleEngine;
+import com.example.firesystem.tsdb.ReadingAggregator;
+import com.example.firesystem.tsdb.ReadingStore;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Приём и выборка показаний сенсоров поверх ReadingStore. Время в API - LocalDateTime
+ * в зоне сервера, в хранилище - миллисекунды эпохи.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorReadingService {
+
+    public static final int MAX_RAW_POINTS = 100_000;
+    public static final int MAX_BUCKETS = 20_000;
+
+    private final ReadingStore readingStore;
+    private final SensorRepository sensorRepository;
+    private final SensorRegistry sensorRegistry;
+    private final RuleEngine ruleEngine;
+
+    /**
+     * Ставит показания в очередь записи и проверки правил. Возвращает false, если хранилище не успевает
+     * и очередь полна.
+     */
+    public boolean append(Long sensorId, List<SensorReadingRequestDto> readings) {
+        requireSensor(sensorId);
+        Map<ReadingType, List<SensorReadingRequestDto>> byType = new EnumMap<>(ReadingType.class);
+        for (SensorReadingRequestDto reading : readings) {
+            byType.computeIfAbsent(reading.type(), type -> new ArrayList<>()).add(reading);
+        }
+        for (Map.Entry<ReadingType, List<SensorReadingRequestDto>> entry : byType.entrySet()) {
+            List<SensorReadingRequestDto> points = entry.getValue();
+            points.sort(Comparator.comparing(SensorReadingRequestDto::timestamp));
+            long[] timestamps = new long[points.size()];
+            double[] values = new double[points.size()];
+            for (int i = 0; i < timestamps.length; i++) {
+                timestamps[i] = toMillis(points.get(i).timestamp());
+                values[i] = points.get(i).value();
+            }
+            if (!enqueue(sensorId, entry.getKey(), timestamps, values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Пакет показаний одного типа без промежуточных DTO, для двоичного приёма от шлюзов.
+     * Массивы переходят во владение хранилища; неупорядоченный пакет сортируется на месте.
+     * Вызывается с потока-селектора, поэтому сенсор проверяется без запроса к базе: по хранилищу
+     * и снимку реестра. Сенсор, которого ещё нет в снимке, отклоняется, шлюз повторит пакет.
+     */
+    public boolean append(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+        if (!readingStore.hasSeries(sensorId) && !sensorRegistry.contains(sensorId)) {
+            throw new ResourceNotFoundException("Sensor with id " + sensorId + " not found");
+        }
+        sortByTimestamp(timestamps, values);
+        return enqueue(sensorId, type, timestamps, values);
+    }
+
+    private boolean enqueue(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+        if (!readingStore.append(sensorId, type, timestamps, values)) {
+            log.warn("Очередь записи показаний переполнена, пакет сенсора {} отклонён", sensorId);
+            return false;
+        }
+        ruleEngine.submit(sensorId, type, timestamps, values);
+        return true;
+    }
+
+    // Шлюзы почти всегда шлют точки по порядку, поэтому вставками: на упорядоченном пакете это один проход
+    private static void sortByTimestamp(long[] timestamps, double[] values) {
+        for (int i = 1; i < timestamps.length; i++) {
+            long timestamp = timestamps[i];
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && timestamps[j] > timestamp) {
+                timestamps[j + 1] = timestamps[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            timestamps[j + 1] = timestamp;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Показания за [from, to): при step = 0 - сырые точки (не больше MAX_RAW_POINTS),
+     * иначе среднее/min/max/count по интервалам step секунд.
+     */
+    public SensorReadingsDto getReadings(Long sensorId, ReadingType type, LocalDateTime from, LocalDateTime to,
+            long step) {
+        requireSensor(sensorId);
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        ReadingAggregator aggregator = step > 0
+                ? ReadingAggregator.bucketed(fromMillis, toMillis, step * 1000)
+                : ReadingAggregator.raw(fromMillis, toMillis, MAX_RAW_POINTS);
+        readingStore.query(sensorId, type, aggregator);
+
+        List<ReadingPointDto> points = new ArrayList<>();
+        aggregator.forEach((timestamp, average, min, max, count) -> points.add(
+                new ReadingPointDto(toLocalDateTime(timestamp), average, min, max, count)));
+        return new SensorReadingsDto(sensorId, type, from, to, step, aggregator.isTruncated(), points);
+    }
+
+    private void requireSensor(Long sensorId) {
+        if (!readingStore.hasSeries(sensorId) && !sensorRegistry.contains(sensorId)
+                && !sensorRepository.existsById(sensorId)) {
+            throw new ResourceNotFoundException("Sensor with id " + sensorId + " not found");
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
\ No newline at end of file
@@ -1,43 +1,97 @@
 package com.example.firesystem.service;
 
+import com.example.firesystem.cache.CacheReloader;
+import com.example.firesystem.cache.SensorLocationIndex;
+import com.example.firesystem.dto.SensorAssignmentDto;
+import com.example.firesystem.dto.SensorBulkItemDto;
+import com.example.firesystem.dto.SensorBulkItemResultDto;
+import com.example.firesystem.dto.SensorBulkResponseDto;
+import com.example.firesystem.dto.SensorChangesDto;
+import com.example.firesystem.dto.SensorListDto;
 import com.example.firesystem.dto.SensorRequestDto;
 import com.example.firesystem.dto.SensorResponseDto;
+import com.example.firesystem.event.SensorChangedEvent;
 import com.example.firesystem.exception.ResourceNotFoundException;
 import com.example.firesystem.mapper.SensorMapper;
 import com.example.firesystem.model.Sensor;
+import com.example.firesystem.model.SensorTombstone;
 import com.example.firesystem.model.User;
 import com.example.firesystem.repository.SensorRepository;
+import com.example.firesystem.repository.SensorTombstoneRepository;
 import com.example.firesystem.repository.UserRepository;
+import com.example.firesystem.util.LocationPath;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class SensorService {
+public class SensorService implements CacheReloader {
 
     private final SensorRepository sensorRepository;
+    private final SensorTombstoneRepository sensorTombstoneRepository;
     private final UserRepository userRepository;
+    private final SensorLocationIndex locationIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Cacheable(value = "sensors", key = "'all'")
-    public List<SensorResponseDto> getAllSensors() {
+    // Версия и список - одно значение кэша: при перечитывании после записи прежнее значение
+    // отдаётся целиком, и новая версия не попадает в ETag устаревшего списка
+    @Cacheable(value = "sensors", key = "'all'", sync = true)
+    public SensorListDto getAllSensors() {
         log.info("Получение всех сенсоров");
+        // Версия читается до данных: список может оказаться новее версии, но не старее
+        long version = sensorRepository.currentRegistryVersion();
         List<SensorResponseDto> sensors = sensorRepository.findAll().stream()
                 .map(SensorMapper::sensorToSensorDto)
                 .collect(Collectors.toList());
-        log.debug("Найдено {} сенсоров", sensors.size());
-        return sensors;
+        log.debug("Найдено {} сенсоров, версия реестра {}", sensors.size(), version);
+        return new SensorListDto(version, sensors);
     }
 
-    @Cacheable(value = "sensor", key = "#id")
+    /**
+     * Созданные, изменённые и удалённые после версии since сенсоры. Без since или с версией новее текущей
+     * (например, после восстановления базы) возвращает полный список.
+     */
+    public SensorChangesDto getChangesSince(Long since) {
+        // Версия читается до данных: изменения новее неё придут повторно в следующей дельте, но не потеряются
+        long version = sensorRepository.currentRegistryVersion();
+        if (since == null || since > version) {
+            log.info("Полная синхронизация реестра сенсоров, версия {}", version);
+            List<SensorResponseDto> sensors = sensorRepository.findAll().stream()
+                    .map(SensorMapper::sensorToSensorDto)
+                    .collect(Collectors.toList());
+            return new SensorChangesDto(version, true, sensors, List.of());
+        }
+        List<SensorResponseDto> changed = sensorRepository
+                .findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderById(since, version).stream()
+                .map(SensorMapper::sensorToSensorDto)
+                .collect(Collectors.toList());
+        List<Long> deleted = sensorTombstoneRepository
+                .findByRegistryVersionGreaterThanAndRegistryVersionLessThanEqualOrderBySensorId(since, version).stream()
+                .map(SensorTombstone::getSensorId)
+                .collect(Collectors.toList());
+        log.debug("Изменения реестра сенсоров с версии {} по {}: изменено {}, удалено {}",
+                since, version, changed.size(), deleted.size());
+        return new SensorChangesDto(version, false, changed, deleted);
+    }
+
+    @Cacheable(value = "sensor", key = "#id", sync = true)
     public SensorResponseDto getSensorById(Long id) {
         log.info("Получение сенсора по ID: {}", id);
         Sensor sensor = sensorRepository.findById(id)
@@ -50,6 +104,22 @@ public class SensorService {
         return SensorMapper.sensorToSensorDto(sensor);
     }
 
+    // Поддерево пути отдаёт индекс местоположений; до его построения - запрос по префиксу
+    public List<SensorResponseDto> getSensorsByLocation(String path) {
+        String normalized = LocationPath.normalize(path);
+        log.info("Получение сенсоров по местоположению: {}", normalized);
+        if (locationIndex.isReady()) {
+            return locationIndex.getSensorsUnder(normalized);
+        }
+        List<Sensor> sensors = normalized == null
+                ? sensorRepository.findAll()
+                : sensorRepository.findByLocationPathOrLocationPathStartingWithOrderById(normalized,
+                        normalized + LocationPath.SEPARATOR);
+        return sensors.stream()
+                .map(SensorMapper::sensorToSensorDto)
+                .collect(Collectors.toList());
+    }
+
     @Caching(evict = {
             @CacheEvict(value = "sensors", allEntries = true),
             @CacheEvict(value = "sensor", key = "#result.id()")
@@ -59,9 +129,11 @@ public class SensorService {
         log.info("Создание нового сенсора: модель={}, местоположение={}",
                 sensorRequestDto.model(), sensorRequestDto.location());
 
+        long version = nextRegistryVersion();
         Sensor sensor = new Sensor();
         sensor.setModel(sensorRequestDto.model());
         sensor.setLocation(sensorRequestDto.location());
+        sensor.setLocationPath(LocationPath.normalize(sensorRequestDto.locationPath()));
 
         if (sensorRequestDto.userId() != null) {
             User user = userRepository.findById(sensorRequestDto.userId())
@@ -74,9 +146,12 @@ public class SensorService {
             log.debug("Сенсор назначен пользователю с ID: {}", sensorRequestDto.userId());
         }
 
+        sensor.setRegistryVersion(version);
         Sensor savedSensor = sensorRepository.save(sensor);
         log.info("Сенсор успешно создан с ID: {}", savedSensor.getId());
-        return SensorMapper.sensorToSensorDto(savedSensor);
+        SensorResponseDto created = SensorMapper.sensorToSensorDto(savedSensor);
+        eventPublisher.publishEvent(new SensorChangedEvent(created.id(), null, created));
+        return created;
     }
 
     @Caching(evict = {
@@ -87,6 +162,7 @@ public class SensorService {
     public SensorResponseDto updateSensor(Long id, SensorRequestDto sensorRequestDto) {
         log.info("Обновление сенсора с ID: {}", id);
 
+        long version = nextRegistryVersion();
         Sensor sensor = sensorRepository.findById(id)
                 .orElseThrow(() -> {
                     log.error("Сенсор с ID {} не найден для обновления", id);
@@ -97,8 +173,10 @@ public class SensorService {
                 sensor.getModel(), sensorRequestDto.model(),
                 sensor.getLocation(), sensorRequestDto.location());
 
+        SensorResponseDto before = SensorMapper.sensorToSensorDto(sensor);
         sensor.setModel(sensorRequestDto.model());
         sensor.setLocation(sensorRequestDto.location());
+        sensor.setLocationPath(LocationPath.normalize(sensorRequestDto.locationPath()));
 
         if (sensorRequestDto.userId() != null) {
             User user = userRepository.findById(sensorRequestDto.userId())
@@ -113,10 +191,13 @@ public class SensorService {
             sensor.setAssignedTo(null);
             log.debug("Сенсор освобожден от назначения пользователю");
         }
+        sensor.setRegistryVersion(version);
 
         Sensor updatedSensor = sensorRepository.save(sensor);
         log.info("Сенсор с ID {} успешно обновлен", id);
-        return SensorMapper.sensorToSensorDto(updatedSensor);
+        SensorResponseDto updated = SensorMapper.sensorToSensorDto(updatedSensor);
+        eventPublisher.publishEvent(new SensorChangedEvent(id, before, updated));
+        return updated;
     }
 
     @Caching(evict = {
@@ -127,13 +208,17 @@ public class SensorService {
     public void deleteSensor(Long id) {
         log.info("Удаление сенсора с ID: {}", id);
 
-        if (!sensorRepository.existsById(id)) {
-            log.error("Сенсор с ID {} не найден для удаления", id);
-            throw new ResourceNotFoundException("Sensor with id " + id + " not found");
-        }
+        long version = nextRegistryVersion();
+        Sensor sensor = sensorRepository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Сенсор с ID {} не найден для удаления", id);
+                    return new ResourceNotFoundException("Sensor with id " + id + " not found");
+                });
 
-        sensorRepository.deleteById(id);
+        sensorRepository.delete(sensor);
+        sensorTombstoneRepository.save(new SensorTombstone(id, version, LocalDateTime.now()));
         log.info("Сенсор с ID {} успешно удален", id);
+        eventPublisher.publishEvent(new SensorChangedEvent(id, SensorMapper.sensorToSensorDto(sensor), null));
     }
 
     @Caching(evict = {
@@ -144,6 +229,7 @@ public class SensorService {
     public SensorResponseDto assignSensor(Long id, Long userId) {
         log.info("Назначение сенсора {} пользователю {}", id, userId);
 
+        long version = nextRegistryVersion();
         Sensor sensor = sensorRepository.findById(id)
                 .orElseThrow(() -> {
                     log.error("Сенсор с ID {} не найден", id);
@@ -156,10 +242,14 @@ public class SensorService {
                     return new ResourceNotFoundException("User with id " + userId + " not found");
                 });
 
+        SensorResponseDto before = SensorMapper.sensorToSensorDto(sensor);
         sensor.setAssignedTo(user);
+        sensor.setRegistryVersion(version);
         Sensor updatedSensor = sensorRepository.save(sensor);
         log.info("Сенсор {} успешно назначен пользователю {}", id, userId);
-        return SensorMapper.sensorToSensorDto(updatedSensor);
+        SensorResponseDto updated = SensorMapper.sensorToSensorDto(updatedSensor);
+        eventPublisher.publishEvent(new SensorChangedEvent(id, before, updated));
+        return updated;
     }
 
     @Caching(evict = {
@@ -170,15 +260,173 @@ public class SensorService {
     public SensorResponseDto unassignSensor(Long id) {
         log.info("Освобождение сенсора {} от назначения", id);
 
+        long version = nextRegistryVersion();
         Sensor sensor = sensorRepository.findById(id)
                 .orElseThrow(() -> {
                     log.error("Сенсор с ID {} не найден", id);
                     return new ResourceNotFoundException("Sensor with id " + id + " not found");
                 });
 
+        SensorResponseDto before = SensorMapper.sensorToSensorDto(sensor);
         sensor.setAssignedTo(null);
+        sensor.setRegistryVersion(version);
         Sensor updatedSensor = sensorRepository.save(sensor);
         log.info("Сенсор {} успешно освобожден от назначения", id);
-        return SensorMapper.sensorToSensorDto(updatedSensor);
+        SensorResponseDto updated = SensorMapper.sensorToSensorDto(updatedSensor);
+        eventPublisher.publishEvent(new SensorChangedEvent(id, before, updated));
+        return updated;
+    }
+
+    // Пакет целиком: пользователи и обновляемые сенсоры читаются двумя запросами, вставки и обновления
+    // уходят JDBC-батчами в одной транзакции, кэши сбрасываются один раз
+    @Caching(evict = {
+            @CacheEvict(value = "sensor", allEntries = true),
+            @CacheEvict(value = "sensors", allEntries = true)
+    })
+    @Transactional
+    public SensorBulkResponseDto upsertSensors(List<SensorBulkItemDto> items) {
+        log.info("Пакетная регистрация {} сенсоров", items.size());
+
+        // Весь пакет - одна версия реестра
+        long version = nextRegistryVersion();
+
+        Set<Long> sensorIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (SensorBulkItemDto item : items) {
+            if (item.id() != null) {
+                sensorIds.add(item.id());
+            }
+            if (item.userId() != null) {
+                userIds.add(item.userId());
+            }
+        }
+        Map<Long, Sensor> existing = sensorRepository.findAllById(sensorIds).stream()
+                .collect(Collectors.toMap(Sensor::getId, Function.identity()));
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        int size = items.size();
+        List<SensorBulkItemResultDto> results = new ArrayList<>(Collections.nCopies(size, null));
+        Sensor[] sensorOfItem = new Sensor[size];
+        SensorResponseDto[] before = new SensorResponseDto[size];
+        List<Sensor> toSave = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            SensorBulkItemDto item = items.get(i);
+            String error = null;
+            if (item.id() != null && !existing.containsKey(item.id())) {
+                error = "Sensor with id " + item.id() + " not found";
+            } else if (item.userId() != null && !users.containsKey(item.userId())) {
+                error = "User with id " + item.userId() + " not found";
+            }
+            if (error != null) {
+                log.warn("Сенсор #{} пакета отклонён: {}", i, error);
+                results.set(i, new SensorBulkItemResultDto(i, false, null, error));
+                continue;
+            }
+
+            Sensor sensor = item.id() != null ? existing.get(item.id()) : new Sensor();
+            if (sensor.getId() != null) {
+                before[i] = SensorMapper.sensorToSensorDto(sensor);
+            }
+            sensor.setModel(item.model());
+            sensor.setLocation(item.location());
+            sensor.setLocationPath(LocationPath.normalize(item.locationPath()));
+            sensor.setAssignedTo(item.userId() != null ? users.get(item.userId()) : null);
+            sensor.setRegistryVersion(version);
+            sensorOfItem[i] = sensor;
+            if (sensor.getId() == null) {
+                toSave.add(sensor);
+            }
+        }
+
+        // Новые получают id из пула последовательности, обновления существующих сбрасываются при flush
+        sensorRepository.saveAll(toSave);
+
+        int saved = 0;
+        for (int i = 0; i < size; i++) {
+            if (results.get(i) == null) {
+                SensorResponseDto after = SensorMapper.sensorToSensorDto(sensorOfItem[i]);
+                results.set(i, new SensorBulkItemResultDto(i, true, after, null));
+                eventPublisher.publishEvent(new SensorChangedEvent(after.id(), before[i], after));
+                saved++;
+            }
+        }
+        log.info("Пакет сенсоров обработан: сохранено {}, отклонено {}", saved, size - saved);
+        return new SensorBulkResponseDto(size, saved, size - saved, results);
+    }
+
+    // userId = null снимает назначение
+    @Caching(evict = {
+            @CacheEvict(value = "sensor", allEntries = true),
+            @CacheEvict(value = "sensors", allEntries = true)
+    })
+    @Transactional
+    public SensorBulkResponseDto assignSensors(List<SensorAssignmentDto> assignments) {
+        log.info("Пакетное назначение {} сенсоров", assignments.size());
+
+        long version = nextRegistryVersion();
+
+        Set<Long> sensorIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (SensorAssignmentDto assignment : assignments) {
+            if (assignment.sensorId() != null) {
+                sensorIds.add(assignment.sensorId());
+            }
+            if (assignment.userId() != null) {
+                userIds.add(assignment.userId());
+            }
+        }
+        Map<Long, Sensor> sensors = sensorRepository.findAllById(sensorIds).stream()
+                .collect(Collectors.toMap(Sensor::getId, Function.identity()));
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        int size = assignments.size();
+        List<SensorBulkItemResultDto> results = new ArrayList<>(size);
+        int saved = 0;
+        for (int i = 0; i < size; i++) {
+            SensorAssignmentDto assignment = assignments.get(i);
+            Sensor sensor = assignment.sensorId() != null ? sensors.get(assignment.sensorId()) : null;
+            if (sensor == null) {
+                results.add(new SensorBulkItemResultDto(i, false, null,
+                        "Sensor with id " + assignment.sensorId() + " not found"));
+                continue;
+            }
+            if (assignment.userId() != null && !users.containsKey(assignment.userId())) {
+                results.add(new SensorBulkItemResultDto(i, false, null,
+                        "User with id " + assignment.userId() + " not found"));
+                continue;
+            }
+            SensorResponseDto before = SensorMapper.sensorToSensorDto(sensor);
+            // Управляемые сущности: UPDATE уходят батчами при flush в конце транзакции
+            sensor.setAssignedTo(assignment.userId() != null ? users.get(assignment.userId()) : null);
+            sensor.setRegistryVersion(version);
+            SensorResponseDto after = SensorMapper.sensorToSensorDto(sensor);
+            results.add(new SensorBulkItemResultDto(i, true, after, null));
+            eventPublisher.publishEvent(new SensorChangedEvent(sensor.getId(), before, after));
+            saved++;
+        }
+        log.info("Пакетное назначение обработано: изменено {}, отклонено {}", saved, size - saved);
+        return new SensorBulkResponseDto(size, saved, size - saved, results);
+    }
+
+    @Override
+    public boolean reloads(String cacheName) {
+        return cacheName.equals("sensors") || cacheName.equals("sensor");
+    }
+
+    // Вызовы через this идут мимо кэширующего прокси и читают базу
+    @Override
+    public Object reload(String cacheName, Object key) {
+        if (cacheName.equals("sensor")) {
+            return getSensorById((Long) key);
+        }
+        return key.toString().equals("all") ? getAllSensors() : null;
+    }
+
+    // Вызывать первым запросом транзакции записи: до её конца другие записи реестра ждут
+    private long nextRegistryVersion() {
+        sensorRepository.lockRegistry();
+        return sensorRepository.currentRegistryVersion() + 1;
     }
 }
\ No newline at end of file
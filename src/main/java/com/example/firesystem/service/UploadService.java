@@ -89,6 +89,7 @@ public class UploadService {
                         SensorRequestDto request = new SensorRequestDto(
                                 record.get("model"),
                                 record.get("location"),
+                                record.isSet("locationPath") ? record.get("locationPath") : null,
                                 record.isSet("userId") && !record.get("userId").isEmpty()
                                         ? Long.parseLong(record.get("userId"))
                                         : null);
@@ -1,10 +1,12 @@
 package com.example.firesystem.service;
 
 import java.util.List;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.example.firesystem.exception.ResourceNotFoundException;
 import com.example.firesystem.dto.UserDto;
+import com.example.firesystem.event.UserChangedEvent;
 import com.example.firesystem.mapper.UserMapper;
 import com.example.firesystem.model.User;
 import com.example.firesystem.repository.UserRepository;
@@ -19,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<UserDto> getUsers() {
         log.info("Получение списка всех пользователей");
@@ -56,6 +59,7 @@ public class UserService {
         log.info("Сохранение пользователя: {}", user.getUsername());
         User savedUser = userRepository.save(user);
         log.debug("Пользователь сохранен с ID: {}", savedUser.getId());
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
         return savedUser;
     }
 
@@ -66,5 +70,6 @@ public class UserService {
 
         user.setTelegramChatId(telegramChatId);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 }
\ No newline at end of file
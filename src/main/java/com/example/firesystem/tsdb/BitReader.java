@@ -0,0 +1,50 @@
+package com.example.firesystem.tsdb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Чтение битового потока, записанного BitWriter: из массива открытого блока
+ * или прямо из отображённого в память сегмента, без копирования.
+ */
+final class BitReader {
+
+    private final long[] words;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private int position;
+
+    BitReader(long[] words) {
+        this.words = words;
+        this.buffer = null;
+        this.offset = 0;
+    }
+
+    BitReader(ByteBuffer buffer, int offset) {
+        this.words = null;
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    // Читает n бит, 1 <= n <= 64
+    long read(int n) {
+        int index = position >>> 6;
+        int free = 64 - (position & 63);
+        long result;
+        if (n <= free) {
+            result = word(index) >>> (free - n);
+        } else {
+            int rest = n - free;
+            result = (word(index) << rest) | (word(index + 1) >>> (64 - rest));
+        }
+        position += n;
+        return n == 64 ? result : result & ((1L << n) - 1);
+    }
+
+    boolean readBit() {
+        return read(1) != 0;
+    }
+
+    private long word(int index) {
+        return words != null ? words[index] : buffer.getLong(offset + (index << 3));
+    }
+}
\ No newline at end of file
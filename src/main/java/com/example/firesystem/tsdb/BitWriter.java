@@ -0,0 +1,59 @@
+package com.example.firesystem.tsdb;
+
+import java.util.Arrays;
+
+/**
+ * Битовый поток поверх long[], биты идут от старших к младшим.
+ * Пишет один поток, читатели видят массив через volatile-ссылку: уже записанные биты
+ * никогда не меняются, а при росте копируются в новый массив до его публикации.
+ */
+final class BitWriter {
+
+    private volatile long[] words;
+    private int bitLength;
+
+    BitWriter(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int bitLength() {
+        return bitLength;
+    }
+
+    int wordCount() {
+        return (bitLength + 63) >>> 6;
+    }
+
+    // Пишет младшие n бит значения, 1 <= n <= 64
+    void write(long bits, int n) {
+        long[] target = ensureCapacity(bitLength + n);
+        if (n < 64) {
+            bits &= (1L << n) - 1;
+        }
+        int index = bitLength >>> 6;
+        int free = 64 - (bitLength & 63);
+        if (n <= free) {
+            target[index] |= bits << (free - n);
+        } else {
+            int rest = n - free;
+            target[index] |= bits >>> rest;
+            target[index + 1] |= bits << (64 - rest);
+        }
+        bitLength += n;
+    }
+
+    private long[] ensureCapacity(int bits) {
+        long[] current = words;
+        int needed = (bits + 63) >>> 6;
+        if (needed <= current.length) {
+            return current;
+        }
+        long[] grown = Arrays.copyOf(current, Math.max(needed, current.length * 2));
+        words = grown;
+        return grown;
+    }
+}
\ No newline at end of file
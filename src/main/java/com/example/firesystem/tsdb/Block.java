@@ -0,0 +1,168 @@
+package com.example.firesystem.tsdb;
+
+import java.util.Arrays;
+
+/**
+ * Открытый блок ряда за одно окно времени в кодировке Gorilla:
+ * время - delta-of-delta с префиксными классами, значения - XOR с предыдущим и переиспользованием
+ * окна значащих бит. Для каждого чанка окна копится сводка (count/sum/min/max), чтобы запросы
+ * с крупным шагом читали сводки закрытых блоков вместо декодирования.
+ * Пишет только поток шарда; читатели декодируют первые count точек, count публикуется последним.
+ */
+final class Block {
+
+    final long window;
+    final long windowStart;
+    final long chunkMillis;
+
+    private final BitWriter bits = new BitWriter(64);
+    private volatile int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeading = -1;
+    private int lastTrailing;
+
+    final int[] chunkCounts;
+    final double[] chunkSums;
+    final double[] chunkMins;
+    final double[] chunkMaxs;
+
+    Block(long window, long windowMillis, long chunkMillis) {
+        this.window = window;
+        this.windowStart = window * windowMillis;
+        this.chunkMillis = chunkMillis;
+        int chunks = (int) (windowMillis / chunkMillis);
+        this.chunkCounts = new int[chunks];
+        this.chunkSums = new double[chunks];
+        this.chunkMins = new double[chunks];
+        this.chunkMaxs = new double[chunks];
+        Arrays.fill(chunkMins, Double.POSITIVE_INFINITY);
+        Arrays.fill(chunkMaxs, Double.NEGATIVE_INFINITY);
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    BitWriter bits() {
+        return bits;
+    }
+
+    void append(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        int written = count;
+        if (written == 0) {
+            bits.write(timestamp, 64);
+            bits.write(valueBits, 64);
+            firstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - lastTimestamp;
+            long deltaOfDelta = delta - lastDelta;
+            if (deltaOfDelta == 0) {
+                bits.write(0, 1);
+            } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+                bits.write(0b10, 2);
+                bits.write(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+                bits.write(0b110, 3);
+                bits.write(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+                bits.write(0b1110, 4);
+                bits.write(deltaOfDelta, 12);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(deltaOfDelta, 64);
+            }
+            lastDelta = delta;
+
+            long xor = valueBits ^ lastValueBits;
+            if (xor == 0) {
+                bits.write(0, 1);
+            } else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                    bits.write(0b10, 2);
+                    bits.write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    bits.write(0b11, 2);
+                    bits.write(leading, 5);
+                    bits.write(significant - 1, 6);
+                    bits.write(xor >>> trailing, significant);
+                    lastLeading = leading;
+                    lastTrailing = trailing;
+                }
+            }
+        }
+        lastTimestamp = timestamp;
+        lastValueBits = valueBits;
+
+        int chunk = (int) ((timestamp - windowStart) / chunkMillis);
+        chunkCounts[chunk]++;
+        chunkSums[chunk] += value;
+        chunkMins[chunk] = Math.min(chunkMins[chunk], value);
+        chunkMaxs[chunk] = Math.max(chunkMaxs[chunk], value);
+
+        count = written + 1;
+    }
+
+    void decode(PointConsumer consumer) {
+        int published = count;
+        decode(new BitReader(bits.words()), published, consumer);
+    }
+
+    static void decode(BitReader reader, int count, PointConsumer consumer) {
+        if (count == 0) {
+            return;
+        }
+        long timestamp = reader.read(64);
+        long valueBits = reader.read(64);
+        consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            long deltaOfDelta;
+            if (!reader.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signed(reader.read(7), 7);
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signed(reader.read(9), 9);
+            } else if (!reader.readBit()) {
+                deltaOfDelta = signed(reader.read(12), 12);
+            } else {
+                deltaOfDelta = reader.read(64);
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                valueBits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+        }
+    }
+
+    // Значения в диапазоне [-2^(n-1)+1, 2^(n-1)] записаны дополнительным кодом в n бит
+    private static long signed(long value, int bits) {
+        return value > (1L << (bits - 1)) ? value - (1L << bits) : value;
+    }
+}
\ No newline at end of file
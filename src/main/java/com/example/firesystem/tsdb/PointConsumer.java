@@ -0,0 +1,10 @@
+package com.example.firesystem.tsdb;
+
+/**
+ * Получатель декодированных точек ряда: время в миллисекундах эпохи и значение, без упаковки в объекты.
+ */
+@FunctionalInterface
+public interface PointConsumer {
+
+    void accept(long timestamp, double value);
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.example.firesystem.tsdb;
+
+import java.util.Arrays;
+
+/**
+ * Приёмник точек запроса [from, to): либо сырые точки (step = 0, не больше limit),
+ * либо агрегаты count/sum/min/max по интервалам step. Сводка чанка закрытого блока
+ * принимается целиком, если чанк лежит внутри одного интервала, - тогда блок не декодируется.
+ */
+public final class ReadingAggregator implements PointConsumer {
+
+    private final long from;
+    private final long to;
+    private final long step;
+    private final int limit;
+
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+    private boolean truncated;
+
+    private final int[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    private ReadingAggregator(long from, long to, long step, int limit) {
+        this.from = from;
+        this.to = to;
+        this.step = step;
+        this.limit = limit;
+        if (step > 0) {
+            int buckets = (int) ((to - from + step - 1) / step);
+            this.counts = new int[buckets];
+            this.sums = new double[buckets];
+            this.mins = new double[buckets];
+            this.maxs = new double[buckets];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        } else {
+            this.timestamps = new long[Math.min(limit, 1024)];
+            this.values = new double[timestamps.length];
+            this.counts = null;
+            this.sums = null;
+            this.mins = null;
+            this.maxs = null;
+        }
+    }
+
+    public static ReadingAggregator raw(long from, long to, int limit) {
+        return new ReadingAggregator(from, to, 0, limit);
+    }
+
+    public static ReadingAggregator bucketed(long from, long to, long step) {
+        return new ReadingAggregator(from, to, step, 0);
+    }
+
+    public long from() {
+        return from;
+    }
+
+    public long to() {
+        return to;
+    }
+
+    public long step() {
+        return step;
+    }
+
+    @Override
+    public void accept(long timestamp, double value) {
+        if (timestamp < from || timestamp >= to) {
+            return;
+        }
+        if (step == 0) {
+            if (size == limit) {
+                truncated = true;
+                return;
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, Math.min(limit, size * 2));
+                values = Arrays.copyOf(values, timestamps.length);
+            }
+            timestamps[size] = timestamp;
+            values[size++] = value;
+            return;
+        }
+        int bucket = (int) ((timestamp - from) / step);
+        counts[bucket]++;
+        sums[bucket] += value;
+        mins[bucket] = Math.min(mins[bucket], value);
+        maxs[bucket] = Math.max(maxs[bucket], value);
+    }
+
+    boolean accepts(long chunkStart, long chunkEnd) {
+        return step > 0 && chunkStart >= from && chunkEnd <= to
+                && (chunkStart - from) / step == (chunkEnd - 1 - from) / step;
+    }
+
+    void acceptSummary(long chunkStart, int count, double sum, double min, double max) {
+        int bucket = (int) ((chunkStart - from) / step);
+        counts[bucket] += count;
+        sums[bucket] += sum;
+        mins[bucket] = Math.min(mins[bucket], min);
+        maxs[bucket] = Math.max(maxs[bucket], max);
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Обходит результат: для сырых точек min = max = value и count = 1, пустые интервалы пропускаются.
+     */
+    public void forEach(ResultConsumer consumer) {
+        if (step == 0) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(timestamps[i], values[i], values[i], values[i], 1);
+            }
+            return;
+        }
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] > 0) {
+                consumer.accept(from + bucket * step, sums[bucket] / counts[bucket], mins[bucket], maxs[bucket],
+                        counts[bucket]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResultConsumer {
+
+        void accept(long timestamp, double average, double min, double max, int count);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,489 @@
+package com.example.firesystem.tsdb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.util.LongObjectMap;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Встроенное хранилище временных рядов показаний сенсоров.
+ * Ряды разбиты по шардам по id сенсора; у каждого шарда один поток-писатель, свои файлы сегментов
+ * и неблокирующая очередь на вход, так что писатели разных шардов не пересекаются, а внутри шарда
+ * кодировщикам не нужны блокировки. Точки копятся в открытом блоке окна (Gorilla), по концу окна
+ * блок дописывается в отображённый в память сегмент. Точки старше открытого окна отбрасываются.
+ * Запрос читает только блоки пересекающихся окон и по возможности обходится сводками чанков.
+ *
+ * Открытые блоки раз в checkpoint-interval переписываются в файл open-blocks.dat шарда (записи в формате
+ * сегмента, файл подменяется целиком), и восстановление открывает их заново. Падение процесса теряет
+ * только точки после последней такой записи и ещё не разобранные очереди, а не всё открытое окно.
+ */
+@Slf4j
+@Component
+public class ReadingStore {
+
+    // Запас после конца окна, в течение которого ещё ждём запоздавшие точки
+    private static final long SEAL_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long SEAL_CHECK_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final String OPEN_BLOCKS = "open-blocks.dat";
+
+    private final Path dataDir;
+    private final int segmentBytes;
+    private final long windowMillis;
+    private final long chunkMillis;
+    private final long checkpointMillis;
+    private final int queueCapacity;
+    private final Shard[] shards;
+    private final ConcurrentHashMap<Long, Series> series = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ReadingStore(
+            MeterRegistry meterRegistry,
+            @Value("${readings.store.data-dir:data/readings}") Path dataDir,
+            @Value("${readings.store.shards:4}") int shards,
+            @Value("${readings.store.segment-size:256MB}") DataSize segmentSize,
+            @Value("${readings.store.block-window:2h}") Duration blockWindow,
+            @Value("${readings.store.chunk:15m}") Duration chunk,
+            @Value("${readings.store.checkpoint-interval:1m}") Duration checkpointInterval,
+            @Value("${readings.store.queue-capacity:65536}") int queueCapacity) {
+        this.dataDir = dataDir;
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+        this.windowMillis = blockWindow.toMillis();
+        this.chunkMillis = chunk.toMillis();
+        if (windowMillis % chunkMillis != 0) {
+            throw new IllegalArgumentException("readings.store.block-window must be a multiple of readings.store.chunk");
+        }
+        this.checkpointMillis = checkpointInterval.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        Gauge.builder("readings.store.series", series, ConcurrentHashMap::size)
+                .description("Ряды показаний в хранилище")
+                .register(meterRegistry);
+        Gauge.builder("readings.store.dropped", dropped, AtomicLong::get)
+                .description("Отброшенные точки: вне порядка или старше открытого окна")
+                .register(meterRegistry);
+        Gauge.builder("readings.store.pending", this, store -> Arrays.stream(store.shards)
+                        .mapToInt(shard -> shard.pending.get()).sum())
+                .description("Пакеты показаний в очередях шардов")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        for (Shard shard : shards) {
+            shard.recover();
+        }
+        log.info("Хранилище показаний открыто: {} рядов, {} шардов, каталог {}", series.size(), shards.length,
+                dataDir.toAbsolutePath());
+        for (Shard shard : shards) {
+            shard.start();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    public boolean hasSeries(long sensorId) {
+        for (ReadingType type : ReadingType.values()) {
+            if (series.containsKey(Series.key(sensorId, type))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ставит пакет точек в очередь шарда сенсора. Точки должны быть упорядочены по времени.
+     * Возвращает false, если очередь шарда переполнена.
+     */
+    public boolean append(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+        return shardOf(sensorId).offer(new Append(sensorId, type, timestamps, values));
+    }
+
+    public void query(long sensorId, ReadingType type, ReadingAggregator aggregator) {
+        Series target = series.get(Series.key(sensorId, type));
+        if (target == null) {
+            return;
+        }
+        Shard shard = shardOf(sensorId);
+        // Сначала открытый блок, потом индекс: если блок уже закрыт, его адрес в индексе будет виден
+        Block open = target.open();
+        long first = Math.max(Math.floorDiv(aggregator.from(), windowMillis), target.firstWindow());
+        long last = Math.min(Math.floorDiv(aggregator.to() - 1, windowMillis),
+                Math.max(target.lastWindow(), open != null ? open.window : Long.MIN_VALUE));
+        for (long window = first; window <= last; window++) {
+            long location = target.location(window);
+            if (location != 0) {
+                scanSealed(shard.segment((int) (location >>> 32) - 1), (int) location, window, aggregator);
+            } else if (open != null && open.window == window) {
+                open.decode(aggregator);
+            }
+        }
+    }
+
+    private void scanSealed(Segment segment, int offset, long window, ReadingAggregator aggregator) {
+        MappedByteBuffer buffer = segment.buffer;
+        long minTs = buffer.getLong(offset + Segment.MIN_TS);
+        long maxTs = buffer.getLong(offset + Segment.MAX_TS);
+        if (maxTs < aggregator.from() || minTs >= aggregator.to()) {
+            return;
+        }
+        int chunks = buffer.getInt(offset + Segment.CHUNKS);
+        long windowStart = window * windowMillis;
+        int summaries = offset + Segment.HEADER_BYTES;
+        boolean summarized = true;
+        for (int i = 0; i < chunks && summarized; i++) {
+            long chunkStart = windowStart + i * chunkMillis;
+            long chunkEnd = chunkStart + chunkMillis;
+            boolean outside = chunkEnd <= aggregator.from() || chunkStart >= aggregator.to();
+            if (buffer.getInt(summaries + i * Segment.CHUNK_BYTES) > 0 && !outside
+                    && !aggregator.accepts(chunkStart, chunkEnd)) {
+                summarized = false;
+            }
+        }
+        if (!summarized) {
+            Block.decode(new BitReader(buffer, Segment.payloadOffset(buffer, offset)),
+                    buffer.getInt(offset + Segment.COUNT), aggregator);
+            return;
+        }
+        for (int i = 0; i < chunks; i++) {
+            int at = summaries + i * Segment.CHUNK_BYTES;
+            int count = buffer.getInt(at);
+            long chunkStart = windowStart + i * chunkMillis;
+            if (count > 0 && chunkStart >= aggregator.from() && chunkStart + chunkMillis <= aggregator.to()) {
+                aggregator.acceptSummary(chunkStart, count, buffer.getDouble(at + 4), buffer.getDouble(at + 12),
+                        buffer.getDouble(at + 20));
+            }
+        }
+    }
+
+    private Shard shardOf(long sensorId) {
+        long h = sensorId * 0x9E3779B97F4A7C15L;
+        return shards[Math.floorMod((int) (h ^ (h >>> 32)), shards.length)];
+    }
+
+    private record Append(long sensorId, ReadingType type, long[] timestamps, double[] values) {
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int number;
+        private final Path directory;
+        private final ConcurrentLinkedQueue<Append> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final LongObjectMap<Series> local = new LongObjectMap<>();
+        private volatile Segment[] segments = new Segment[0];
+        private volatile boolean running = true;
+        private Segment active;
+        private Thread thread;
+        private long nextSealCheck;
+        private long nextCheckpoint;
+        // Открытые блоки менялись после последней записи open-blocks.dat
+        private boolean dirty;
+
+        Shard(int number) {
+            this.number = number;
+            this.directory = dataDir.resolve(String.format("shard-%02d", number));
+        }
+
+        Segment segment(int index) {
+            return segments[index];
+        }
+
+        boolean offer(Append append) {
+            if (pending.incrementAndGet() > queueCapacity) {
+                pending.decrementAndGet();
+                return false;
+            }
+            queue.offer(append);
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        void recover() throws IOException {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().matches("segment-\\d{6}\\.dat"))
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : files) {
+                Segment segment = openSegment(file);
+                MappedByteBuffer buffer = segment.buffer;
+                int position = 0;
+                while (position + Segment.HEADER_BYTES <= buffer.capacity()
+                        && buffer.getInt(position) == Segment.MAGIC) {
+                    long sensorId = buffer.getLong(position + Segment.SENSOR_ID);
+                    ReadingType type = ReadingType.values()[buffer.getInt(position + Segment.TYPE)];
+                    long window = buffer.getLong(position + Segment.WINDOW);
+                    seriesFor(sensorId, type).sealed(window, location(segment, position));
+                    position += Segment.recordBytes(buffer.getInt(position + Segment.CHUNKS),
+                            buffer.getInt(position + Segment.WORDS));
+                }
+                segment.position(position);
+                active = segment;
+            }
+            recoverOpenBlocks();
+        }
+
+        // Блоки, закрытые уже после записи файла, в сегментах новее и здесь пропускаются
+        private void recoverOpenBlocks() throws IOException {
+            Path file = directory.resolve(OPEN_BLOCKS);
+            if (!Files.exists(file)) {
+                return;
+            }
+            int recovered = 0;
+            try (Segment checkpoint = Segment.open(file, -1, (int) Files.size(file))) {
+                MappedByteBuffer buffer = checkpoint.buffer;
+                int position = 0;
+                while (position + Segment.HEADER_BYTES <= buffer.capacity()
+                        && buffer.getInt(position) == Segment.MAGIC) {
+                    long sensorId = buffer.getLong(position + Segment.SENSOR_ID);
+                    ReadingType type = ReadingType.values()[buffer.getInt(position + Segment.TYPE)];
+                    long window = buffer.getLong(position + Segment.WINDOW);
+                    Series target = seriesFor(sensorId, type);
+                    if (window > target.lastSealedWindow()) {
+                        // Кодировка детерминирована: повторная запись точек восстанавливает и состояние кодировщика
+                        Block block = new Block(window, windowMillis, chunkMillis);
+                        Block.decode(new BitReader(buffer, Segment.payloadOffset(buffer, position)),
+                                buffer.getInt(position + Segment.COUNT), block::append);
+                        target.open(block);
+                        recovered++;
+                    }
+                    position += Segment.recordBytes(buffer.getInt(position + Segment.CHUNKS),
+                            buffer.getInt(position + Segment.WORDS));
+                }
+            }
+            log.info("Шард {}: восстановлено {} открытых блоков", number, recovered);
+        }
+
+        void start() {
+            thread = new Thread(this, "readings-shard-" + number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (Segment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.warn("Не удалось закрыть сегмент {} шарда {}", segment.number, number, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Append append = queue.poll();
+                    if (append == null) {
+                        sealExpired(false);
+                        checkpoint();
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        continue;
+                    }
+                    pending.decrementAndGet();
+                    apply(append);
+                    sealExpired(false);
+                    checkpoint();
+                } catch (RuntimeException e) {
+                    log.error("Ошибка записи показаний в шард {}", number, e);
+                }
+            }
+            // Остановка: открытые блоки дописываются, чтобы не потерять окно при рестарте
+            sealExpired(true);
+            try {
+                Files.deleteIfExists(directory.resolve(OPEN_BLOCKS));
+            } catch (IOException e) {
+                log.warn("Не удалось удалить {} шарда {}", OPEN_BLOCKS, number, e);
+            }
+        }
+
+        private void apply(Append append) {
+            dirty = true;
+            Series target = seriesFor(append.sensorId(), append.type());
+            long[] timestamps = append.timestamps();
+            double[] values = append.values();
+            for (int i = 0; i < timestamps.length; i++) {
+                long timestamp = timestamps[i];
+                long window = Math.floorDiv(timestamp, windowMillis);
+                Block open = target.open();
+                if (open != null && window > open.window) {
+                    seal(target, open);
+                    open = null;
+                }
+                if (open == null) {
+                    if (window <= target.lastSealedWindow()) {
+                        dropped.incrementAndGet();
+                        continue;
+                    }
+                    open = new Block(window, windowMillis, chunkMillis);
+                    target.open(open);
+                } else if (window < open.window || (open.count() > 0 && timestamp < open.lastTimestamp())) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                open.append(timestamp, values[i]);
+            }
+        }
+
+        private void sealExpired(boolean all) {
+            long now = System.currentTimeMillis();
+            if (!all && now < nextSealCheck) {
+                return;
+            }
+            nextSealCheck = now + SEAL_CHECK_MILLIS;
+            local.forEachValue(target -> {
+                Block open = target.open();
+                if (open != null && (all || (open.window + 1) * windowMillis + SEAL_GRACE_MILLIS < now)) {
+                    seal(target, open);
+                }
+            });
+        }
+
+        /**
+         * Переписывает все открытые блоки шарда во временный файл и подменяет им open-blocks.dat,
+         * так что на диске всегда целый снимок: прежний или новый.
+         */
+        private void checkpoint() {
+            long now = System.currentTimeMillis();
+            if (!dirty || now < nextCheckpoint) {
+                return;
+            }
+            nextCheckpoint = now + checkpointMillis;
+            dirty = false;
+            List<Series> open = new ArrayList<>();
+            local.forEachValue(target -> {
+                Block block = target.open();
+                if (block != null && block.count() > 0) {
+                    open.add(target);
+                }
+            });
+            long bytes = 0;
+            for (Series target : open) {
+                bytes += Segment.recordBytes(target.open().chunkCounts.length, target.open().bits().wordCount());
+            }
+            Path file = directory.resolve(OPEN_BLOCKS);
+            Path temp = directory.resolve(OPEN_BLOCKS + ".tmp");
+            try {
+                if (open.isEmpty()) {
+                    Files.deleteIfExists(file);
+                    return;
+                }
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("открытые блоки занимают " + bytes + " байт");
+                }
+                // Хвост прежнего файла большего размера остался бы за записями и читался бы при восстановлении
+                Files.deleteIfExists(temp);
+                try (Segment checkpoint = Segment.open(temp, -1, (int) bytes)) {
+                    for (Series target : open) {
+                        checkpoint.append(target.open(), target.sensorId, target.type.ordinal());
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                dirty = true;
+                log.warn("Не удалось сохранить открытые блоки шарда {}", number, e);
+            }
+        }
+
+        private void seal(Series target, Block block) {
+            if (block.count() == 0) {
+                return;
+            }
+            int bytes = Segment.recordBytes(block.chunkCounts.length, block.bits().wordCount());
+            if (bytes > segmentBytes) {
+                log.error("Блок ряда {}/{} ({} байт) не помещается в сегмент, отброшен", target.sensorId,
+                        target.type, bytes);
+                dropped.addAndGet(block.count());
+                target.sealed(block.window, 0);
+                return;
+            }
+            if (active == null || active.remaining() < bytes) {
+                roll();
+            }
+            int offset = active.append(block, target.sensorId, target.type.ordinal());
+            target.sealed(block.window, location(active, offset));
+        }
+
+        private void roll() {
+            if (active != null) {
+                active.force();
+            }
+            Path file = directory.resolve(String.format("segment-%06d.dat", segments.length));
+            try {
+                active = openSegment(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось создать сегмент " + file, e);
+            }
+        }
+
+        private Segment openSegment(Path file) throws IOException {
+            Segment segment = Segment.open(file, segments.length, segmentBytes);
+            Segment[] grown = Arrays.copyOf(segments, segments.length + 1);
+            grown[segment.number] = segment;
+            segments = grown;
+            return segment;
+        }
+
+        private Series seriesFor(long sensorId, ReadingType type) {
+            long key = Series.key(sensorId, type);
+            Series target = local.get(key);
+            if (target == null) {
+                target = new Series(sensorId, type);
+                local.put(key, target);
+                series.put(key, target);
+            }
+            return target;
+        }
+
+        private long location(Segment segment, int offset) {
+            return ((long) (segment.number + 1) << 32) | offset;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.example.firesystem.tsdb;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Файл сегмента, отображённый в память целиком. Блоки только дописываются в конец;
+ * поток шарда пишет, читатели читают абсолютными get без общей позиции буфера.
+ *
+ * Запись блока:
+ * magic(int) words(int) sensorId(long) type(int) count(int) window(long) minTs(long) maxTs(long) chunks(int),
+ * затем chunks сводок count(int) sum(double) min(double) max(double) и words слов битового потока.
+ * magic пишется последним, поэтому недописанная при сбое запись при восстановлении просто не видна.
+ * В том же формате шард сохраняет снимок открытых блоков (open-blocks.dat, см. ReadingStore).
+ */
+final class Segment implements AutoCloseable {
+
+    static final int MAGIC = 0x54534231;
+    static final int HEADER_BYTES = 52;
+    static final int CHUNK_BYTES = 28;
+
+    static final int WORDS = 4;
+    static final int SENSOR_ID = 8;
+    static final int TYPE = 16;
+    static final int COUNT = 20;
+    static final int WINDOW = 24;
+    static final int MIN_TS = 32;
+    static final int MAX_TS = 40;
+    static final int CHUNKS = 48;
+
+    final int number;
+    final MappedByteBuffer buffer;
+    private final FileChannel channel;
+    private int position;
+
+    private Segment(int number, FileChannel channel, MappedByteBuffer buffer) {
+        this.number = number;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Segment open(Path path, int number, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new Segment(number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+    }
+
+    static int recordBytes(int chunks, int words) {
+        return HEADER_BYTES + chunks * CHUNK_BYTES + words * 8;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void position(int position) {
+        this.position = position;
+    }
+
+    int remaining() {
+        return buffer.capacity() - position;
+    }
+
+    // Возвращает смещение записи в сегменте
+    int append(Block block, long sensorId, int type) {
+        int offset = position;
+        int chunks = block.chunkCounts.length;
+        BitWriter bits = block.bits();
+        int words = bits.wordCount();
+
+        buffer.putInt(offset + WORDS, words);
+        buffer.putLong(offset + SENSOR_ID, sensorId);
+        buffer.putInt(offset + TYPE, type);
+        buffer.putInt(offset + COUNT, block.count());
+        buffer.putLong(offset + WINDOW, block.window);
+        buffer.putLong(offset + MIN_TS, block.firstTimestamp());
+        buffer.putLong(offset + MAX_TS, block.lastTimestamp());
+        buffer.putInt(offset + CHUNKS, chunks);
+        int at = offset + HEADER_BYTES;
+        for (int i = 0; i < chunks; i++, at += CHUNK_BYTES) {
+            buffer.putInt(at, block.chunkCounts[i]);
+            buffer.putDouble(at + 4, block.chunkSums[i]);
+            buffer.putDouble(at + 12, block.chunkMins[i]);
+            buffer.putDouble(at + 20, block.chunkMaxs[i]);
+        }
+        long[] payload = bits.words();
+        for (int i = 0; i < words; i++, at += 8) {
+            buffer.putLong(at, payload[i]);
+        }
+        buffer.putInt(offset, MAGIC);
+        position = at;
+        return offset;
+    }
+
+    static int payloadOffset(MappedByteBuffer buffer, int offset) {
+        return offset + HEADER_BYTES + buffer.getInt(offset + CHUNKS) * CHUNK_BYTES;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.example.firesystem.tsdb;
+
+import java.util.Arrays;
+
+import com.example.firesystem.enums.ReadingType;
+
+/**
+ * Один ряд показаний (сенсор, тип). Окна времени выровнены, поэтому индекс закрытых блоков -
+ * плотный массив упакованных адресов от первого окна ряда: номер сегмента + 1 в старших 32 битах,
+ * смещение в младших, 0 - блока нет. Пишет только поток шарда, читатели идут по volatile-ссылкам.
+ */
+final class Series {
+
+    final long sensorId;
+    final ReadingType type;
+
+    private volatile Block open;
+    private volatile long[] locations = new long[0];
+    private volatile long firstWindow;
+    private long lastSealedWindow = Long.MIN_VALUE;
+    private volatile long lastWindow = Long.MIN_VALUE;
+
+    Series(long sensorId, ReadingType type) {
+        this.sensorId = sensorId;
+        this.type = type;
+    }
+
+    Block open() {
+        return open;
+    }
+
+    void open(Block block) {
+        this.open = block;
+        this.lastWindow = Math.max(lastWindow, block.window);
+    }
+
+    long lastSealedWindow() {
+        return lastSealedWindow;
+    }
+
+    void sealed(long window, long location) {
+        long[] current = locations;
+        if (current.length == 0) {
+            firstWindow = window;
+        }
+        int index = (int) (window - firstWindow);
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        }
+        current[index] = location;
+        locations = current;
+        lastSealedWindow = window;
+        lastWindow = Math.max(lastWindow, window);
+        if (open != null && open.window == window) {
+            open = null;
+        }
+    }
+
+    long location(long window) {
+        long[] current = locations;
+        if (current.length == 0) {
+            return 0;
+        }
+        long index = window - firstWindow;
+        return index >= 0 && index < current.length ? current[(int) index] : 0;
+    }
+
+    // Диапазон окон, в которых у ряда могут быть данные
+    long firstWindow() {
+        Block current = open;
+        long[] sealed = locations;
+        if (sealed.length > 0) {
+            return firstWindow;
+        }
+        return current != null ? current.window : Long.MAX_VALUE;
+    }
+
+    long lastWindow() {
+        return lastWindow;
+    }
+
+    static long key(long sensorId, ReadingType type) {
+        return (sensorId << 3) | type.ordinal();
+    }
+}
\ No newline at end of file
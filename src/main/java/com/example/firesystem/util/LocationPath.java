@@ -0,0 +1,32 @@
+package com.example.firesystem.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Путь местоположения сенсора: сегменты от общего к частному через '/',
+ * например "campus-1/building-2/floor-3/101". Пробелы по краям сегментов и пустые сегменты отбрасываются.
+ */
+public final class LocationPath {
+
+    public static final char SEPARATOR = '/';
+
+    private LocationPath() {
+    }
+
+    // null, если в пути нет ни одного сегмента
+    public static String normalize(String path) {
+        List<String> segments = segments(path);
+        return segments.isEmpty() ? null : String.join(String.valueOf(SEPARATOR), segments);
+    }
+
+    public static List<String> segments(String path) {
+        if (path == null) {
+            return List.of();
+        }
+        return Arrays.stream(path.split(String.valueOf(SEPARATOR)))
+                .map(String::trim)
+                .filter(segment -> !segment.isEmpty())
+                .toList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.example.firesystem.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.AlertChangeType;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.AlertView;
+
+class ActiveAlertStoreTest {
+
+	private AlertRepository alertRepository;
+
+	private ActiveAlertStore store;
+
+	@BeforeEach
+	void setUp() {
+		alertRepository = mock(AlertRepository.class);
+		store = new ActiveAlertStore(alertRepository, mock(PlatformTransactionManager.class));
+	}
+
+	@Test
+	void changesDuringLoadAreAppliedAfterIt() {
+		AlertView loaded = view(1L, 10L, StatusType.new_status);
+		when(alertRepository.streamOpenViews()).thenReturn(Stream.of(loaded));
+
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.CREATED, null, alert(2L, 10L, StatusType.new_status)));
+		assertThat(store.isReady()).isFalse();
+		assertThat(store.size()).isZero();
+
+		store.rebuild();
+
+		assertThat(store.isReady()).isTrue();
+		assertThat(store.getByStatus(StatusType.new_status)).extracting(AlertDto::id).containsExactly(1L, 2L);
+		assertThat(store.getBySensor(10L)).extracting(AlertDto::id).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void pendingResolutionRemovesLoadedAlert() {
+		AlertView loaded = view(1L, 10L, StatusType.in_progress);
+		when(alertRepository.streamOpenViews()).thenReturn(Stream.of(loaded));
+
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.STATUS_CHANGED,
+				alert(1L, 10L, StatusType.in_progress), alert(1L, 10L, StatusType.resolved)));
+		store.rebuild();
+
+		assertThat(store.size()).isZero();
+		assertThat(store.getBySensor(10L)).isEmpty();
+	}
+
+	@Test
+	void statusChangeMovesAlertBetweenIndexes() {
+		when(alertRepository.streamOpenViews()).thenReturn(Stream.empty());
+		store.rebuild();
+
+		AlertDto created = alert(5L, 20L, StatusType.new_status);
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.CREATED, null, created));
+		List<AlertDto> newAlerts = store.getByStatus(StatusType.new_status);
+		assertThat(newAlerts).containsExactly(created);
+		// Без изменений повторное чтение отдаёт тот же экземпляр списка
+		assertThat(store.getByStatus(StatusType.new_status)).isSameAs(newAlerts);
+
+		AlertDto taken = alert(5L, 20L, StatusType.in_progress);
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.STATUS_CHANGED, created, taken));
+		assertThat(store.getByStatus(StatusType.new_status)).isEmpty();
+		assertThat(store.getByStatus(StatusType.in_progress)).containsExactly(taken);
+		assertThat(store.get(5L)).isEqualTo(taken);
+
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.STATUS_CHANGED, taken,
+				alert(5L, 20L, StatusType.resolved)));
+		assertThat(store.get(5L)).isNull();
+		assertThat(store.getByStatus(StatusType.resolved)).isEmpty();
+		assertThat(store.getBySensor(20L)).isEmpty();
+	}
+
+	@Test
+	void deletionRemovesAlert() {
+		AlertView loaded = view(7L, 30L, StatusType.new_status);
+		when(alertRepository.streamOpenViews()).thenReturn(Stream.of(loaded));
+		store.rebuild();
+
+		store.onAlertChanged(AlertChangedEvent.of(AlertChangeType.DELETED, alert(7L, 30L, StatusType.new_status), null));
+
+		assertThat(store.size()).isZero();
+		assertThat(store.getByStatus(StatusType.new_status)).isEmpty();
+	}
+
+	@Test
+	void repeatedRebuildReplacesContents() {
+		AlertView first = view(1L, 10L, StatusType.new_status);
+		AlertView second = view(2L, 11L, StatusType.in_progress);
+		when(alertRepository.streamOpenViews()).thenReturn(Stream.of(first), Stream.of(second));
+		store.rebuild();
+
+		// Решение оповещения 1 на другом узле потеряно вместе с уведомлением
+		store.rebuild();
+
+		assertThat(store.get(1L)).isNull();
+		assertThat(store.getBySensor(10L)).isEmpty();
+		assertThat(store.getByStatus(StatusType.in_progress)).extracting(AlertDto::id).containsExactly(2L);
+	}
+
+	private static AlertDto alert(long id, long sensorId, StatusType status) {
+		return new AlertDto(id, sensorId, EventType.smoke, LocalDateTime.of(2024, 1, 1, 12, 0), "тест", status, null,
+				1, null);
+	}
+
+	private static AlertView view(long id, long sensorId, StatusType status) {
+		AlertView view = mock(AlertView.class);
+		when(view.getId()).thenReturn(id);
+		when(view.getSensorId()).thenReturn(sensorId);
+		when(view.getType()).thenReturn(EventType.smoke);
+		when(view.getTimestamp()).thenReturn(LocalDateTime.of(2024, 1, 1, 12, 0));
+		when(view.getStatus()).thenReturn(status);
+		when(view.getOccurrences()).thenReturn(1);
+		return view;
+	}
+}
@@ -0,0 +1,150 @@
+package com.example.firesystem.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.firesystem.config.CacheConfig;
+
+@SpringJUnitConfig(CacheSingleFlightTest.Config.class)
+class CacheSingleFlightTest {
+
+	private static final int CALLERS = 32;
+
+	@Autowired
+	private SlowSensorQuery query;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@BeforeEach
+	void setUp() {
+		cacheManager.getCache("sensors").invalidate();
+		query.executions.set(0);
+		query.release = new CountDownLatch(0);
+		query.rows = List.of("v1");
+	}
+
+	@Test
+	void concurrentMissesRunOneQuery() throws Exception {
+		query.release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<List<String>>> results = new ArrayList<>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(callers.submit(() -> {
+					start.await();
+					return query.getAll();
+				}));
+			}
+			start.countDown();
+			awaitExecutions(1);
+			// Остальные вызовы успевают встать в ожидание той же загрузки
+			Thread.sleep(200);
+			query.release.countDown();
+
+			for (Future<List<String>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("v1");
+			}
+			assertThat(query.executions.get()).isEqualTo(1);
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void clearServesStaleValueWhileRevalidating() throws Exception {
+		assertThat(query.getAll()).containsExactly("v1");
+
+		query.rows = List.of("v2");
+		query.release = new CountDownLatch(1);
+		cacheManager.getCache("sensors").clear();
+		awaitExecutions(2);
+
+		// Перечитывание висит на защёлке, читатель получает прежнее значение без запроса
+		assertThat(query.getAll()).containsExactly("v1");
+		assertThat(query.executions.get()).isEqualTo(2);
+
+		query.release.countDown();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!query.getAll().equals(List.of("v2")) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(query.getAll()).containsExactly("v2");
+		assertThat(query.executions.get()).isEqualTo(2);
+	}
+
+	private void awaitExecutions(int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (query.executions.get() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(query.executions.get()).isEqualTo(expected);
+	}
+
+	@Configuration
+	@Import(CacheConfig.class)
+	static class Config {
+
+		@Bean
+		SlowSensorQuery slowSensorQuery() {
+			return new SlowSensorQuery();
+		}
+
+		@Bean
+		CacheReloader sensorsReloader(SlowSensorQuery query) {
+			return new CacheReloader() {
+				@Override
+				public boolean reloads(String cacheName) {
+					return cacheName.equals("sensors");
+				}
+
+				@Override
+				public Object reload(String cacheName, Object key) {
+					return query.load();
+				}
+			};
+		}
+	}
+
+	// Стоит вместо запроса к базе: считает выполнения и держит загрузку, пока не отпустят защёлку
+	static class SlowSensorQuery {
+
+		final AtomicInteger executions = new AtomicInteger();
+		volatile CountDownLatch release = new CountDownLatch(0);
+		volatile List<String> rows = List.of("v1");
+
+		@Cacheable(value = "sensors", key = "'all'", sync = true)
+		public List<String> getAll() {
+			return load();
+		}
+
+		List<String> load() {
+			executions.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return rows;
+		}
+	}
+}
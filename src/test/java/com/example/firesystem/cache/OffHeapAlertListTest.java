@@ -0,0 +1,75 @@
+package com.example.firesystem.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+
+class OffHeapAlertListTest {
+
+	private static final LocalDateTime SEEN = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 500);
+
+	@Test
+	void sortedPatchKeepsUntouchedRecordsAndTrimsToLimit() {
+		OffHeapAlertList list = OffHeapAlertList.of(List.of(alert(10), alert(20), alert(30), alert(40)));
+		Map<Long, AlertDto> changes = new LinkedHashMap<>();
+		changes.put(20L, null);
+		changes.put(30L, alert(30).repeated(2, SEEN.plusMinutes(1)));
+		changes.put(35L, alert(35));
+		changes.put(5L, alert(5));
+
+		OffHeapAlertList patched = list.patch(changes, true, 4);
+
+		assertThat(patched.toHeap()).containsExactly(alert(5), alert(10), alert(30).repeated(2, SEEN.plusMinutes(1)),
+				alert(35));
+		assertThat(patched.indexOfId(35)).isEqualTo(3);
+		assertThat(patched.indexOfId(40)).isEqualTo(-1);
+		assertThat(list.toHeap()).containsExactly(alert(10), alert(20), alert(30), alert(40));
+	}
+
+	@Test
+	void unsortedPatchAppendsNewAlerts() {
+		OffHeapAlertList list = OffHeapAlertList.of(List.of(alert(30), alert(10)));
+		Map<Long, AlertDto> changes = new LinkedHashMap<>();
+		changes.put(20L, alert(20));
+		changes.put(10L, null);
+
+		assertThat(list.patch(changes, false, Integer.MAX_VALUE).toHeap()).containsExactly(alert(30), alert(20));
+	}
+
+	@Test
+	void patchWithoutEffectReturnsSameList() {
+		OffHeapAlertList list = OffHeapAlertList.of(List.of(alert(10)));
+		Map<Long, AlertDto> changes = new LinkedHashMap<>();
+		changes.put(99L, null);
+
+		assertThat(list.patch(changes, true, 10)).isSameAs(list);
+	}
+
+	@Test
+	void releasedListFreesBufferAndRejectsReads() {
+		OffHeapAlertList list = OffHeapAlertList.of(List.of(alert(10), alert(20)));
+		long allocated = OffHeapAlertList.allocatedBytes();
+
+		list.release();
+
+		// Сборщик мог за это время освободить и другие списки, поэтому не равенство
+		assertThat(OffHeapAlertList.allocatedBytes()).isLessThanOrEqualTo(allocated - list.byteSize());
+		assertThat(list.toHeap()).isNull();
+		assertThatThrownBy(() -> list.get(0)).isInstanceOf(IllegalStateException.class);
+	}
+
+	private static AlertDto alert(long id) {
+		return new AlertDto(id, 7L, EventType.smoke, SEEN, id % 2 == 0 ? "Задымление" : null, StatusType.new_status,
+				id % 2 == 0 ? List.of("/photos/" + id + ".jpg") : null, 1, SEEN);
+	}
+}
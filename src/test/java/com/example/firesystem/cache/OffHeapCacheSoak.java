@@ -0,0 +1,209 @@
+package com.example.firesystem.cache;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.AlertChangeType;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.event.AlertChangedEvent;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Нагрузочный прогон кэша alertsBySensor в куче и вне её: читатели берут списки сенсоров,
+ * писатель применяет изменения оповещений через AlertCacheMaintainer, как после коммита в AlertService.
+ * Кэши собраны так же, как в CacheConfig. В конце печатаются паузы сборщика, занятая куча
+ * и память direct-буферов; два запуска с одинаковым -Xmx показывают разницу. После mvn test-compile:
+ *
+ * mvn dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+ * java -Xmx1g -cp target/classes:target/test-classes:$(cat target/test.classpath) com.example.firesystem.cache.OffHeapCacheSoak mode=heap
+ * java -Xmx1g -cp target/classes:target/test-classes:$(cat target/test.classpath) com.example.firesystem.cache.OffHeapCacheSoak mode=off-heap
+ *
+ * Параметры: sensors=2000, alerts=200 (оповещений на сенсор), readers=4, seconds=60.
+ */
+public final class OffHeapCacheSoak {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final boolean offHeap;
+    private final int sensors;
+    private final int alertsPerSensor;
+    private final int readers;
+    private final int seconds;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong pauses = new AtomicLong();
+    private final AtomicLong pauseMillis = new AtomicLong();
+    private final AtomicLong maxPauseMillis = new AtomicLong();
+    private volatile boolean running = true;
+
+    private OffHeapCacheSoak(Map<String, String> options) {
+        this.offHeap = options.getOrDefault("mode", "off-heap").equals("off-heap");
+        this.sensors = Integer.parseInt(options.getOrDefault("sensors", "2000"));
+        this.alertsPerSensor = Integer.parseInt(options.getOrDefault("alerts", "200"));
+        this.readers = Integer.parseInt(options.getOrDefault("readers", "4"));
+        this.seconds = Integer.parseInt(options.getOrDefault("seconds", "60"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new OffHeapCacheSoak(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        Cache cache = offHeap ? offHeapCache() : heapCache();
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(cache));
+        cacheManager.afterPropertiesSet();
+        AlertCacheMaintainer maintainer = new AlertCacheMaintainer(cacheManager);
+
+        List<List<AlertDto>> lists = new ArrayList<>(sensors);
+        for (long sensor = 0; sensor < sensors; sensor++) {
+            List<AlertDto> alerts = new ArrayList<>(alertsPerSensor);
+            for (int i = 0; i < alertsPerSensor; i++) {
+                alerts.add(alert(sensor * alertsPerSensor + i, sensor, 1));
+            }
+            cache.put(sensor, List.copyOf(alerts));
+            lists.add(alerts);
+        }
+        watchPauses();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> read(cache), "soak-reader-" + r));
+        }
+        threads.add(new Thread(() -> write(maintainer, lists), "soak-writer"));
+        threads.forEach(Thread::start);
+
+        long previousReads = 0;
+        long previousWrites = 0;
+        for (int second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            long totalReads = reads.get();
+            long totalWrites = writes.get();
+            System.out.printf("%3d s  %,10d reads/s  %,8d writes/s  heap %,6d MB  direct %,6d MB%n", second,
+                    totalReads - previousReads, totalWrites - previousWrites, heapUsed() >> 20, directUsed() >> 20);
+            previousReads = totalReads;
+            previousWrites = totalWrites;
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        System.out.printf("%s: %,d reads, %,d writes in %d s%n", offHeap ? "off-heap" : "heap",
+                reads.get(), writes.get(), seconds);
+        System.out.printf("gc: %,d collections, %,d ms total; pauses: %,d, %,d ms total, max %,d ms%n",
+                gcCount, gcMillis, pauses.get(), pauseMillis.get(), maxPauseMillis.get());
+        System.out.printf("heap used %,d MB, direct %,d MB (lists %,d MB)%n", heapUsed() >> 20,
+                directUsed() >> 20, OffHeapAlertList.allocatedBytes() >> 20);
+    }
+
+    private void read(Cache cache) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            List<?> alerts = cache.get((long) random.nextInt(sensors), List.class);
+            if (alerts != null && !alerts.isEmpty()) {
+                reads.incrementAndGet();
+            }
+        }
+    }
+
+    // Повтор случайного оповещения: одно изменение на событие, как при повторе в AlertService
+    private void write(AlertCacheMaintainer maintainer, List<List<AlertDto>> lists) {
+        SplittableRandom random = new SplittableRandom(42);
+        while (running) {
+            int sensor = random.nextInt(sensors);
+            List<AlertDto> alerts = lists.get(sensor);
+            int index = random.nextInt(alertsPerSensor);
+            AlertDto before = alerts.get(index);
+            AlertDto after = before.repeated(1, before.lastSeen().plusSeconds(1));
+            alerts.set(index, after);
+            maintainer.onAlertChanged(AlertChangedEvent.of(AlertChangeType.REPEATED, before, after));
+            writes.incrementAndGet();
+        }
+    }
+
+    private static AlertDto alert(long id, long sensorId, int occurrences) {
+        LocalDateTime timestamp = START.plusSeconds(id);
+        return new AlertDto(id, sensorId, EventType.values()[(int) (id % EventType.values().length)], timestamp,
+                "Превышение температуры в помещении " + sensorId, StatusType.new_status,
+                List.of("/photos/" + id + "/front.jpg", "/photos/" + id + "/side.jpg"), occurrences, timestamp);
+    }
+
+    // Бюджеты как в CacheConfig по умолчанию: 500000 DTO в куче, 256 МБ вне кучи
+    private static Cache heapCache() {
+        return new CaffeineCache("alertsBySensor", Caffeine.newBuilder()
+                .maximumWeight(500_000)
+                .weigher((Object key, Object value) -> Math.max(1, ((List<?>) value).size()))
+                .build(), true);
+    }
+
+    private static Cache offHeapCache() {
+        return new OffHeapAlertCache("alertsBySensor", Caffeine.newBuilder()
+                .maximumWeight(256L << 20)
+                .weigher(OffHeapAlertCache::weigh)
+                .removalListener((Object key, Object value, RemovalCause cause) ->
+                        OffHeapAlertCache.release(value))
+                .build(), true, false);
+    }
+
+    private void watchPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData());
+                // Циклы конкурентных сборщиков идут параллельно приложению и паузой не считаются
+                if (info.getGcAction().contains("end of major") || info.getGcAction().contains("end of minor")) {
+                    long duration = info.getGcInfo().getDuration();
+                    pauses.incrementAndGet();
+                    pauseMillis.addAndGet(duration);
+                    maxPauseMillis.accumulateAndGet(duration, Math::max);
+                }
+            }, null, null);
+        }
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.firesystem.ingest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор нагрузки для сравнения двоичного приёма шлюзов с REST. Лежит в тестах, чтобы не попадать
+ * в собранное приложение; запускается отдельно от него после mvn test-compile:
+ *
+ * java -cp target/classes:target/test-classes com.example.firesystem.ingest.GatewayLoadGenerator mode=tcp host=localhost port=7070 psk=...
+ * java -cp target/classes:target/test-classes com.example.firesystem.ingest.GatewayLoadGenerator mode=rest url=http://localhost:8080 user=... password=...
+ *
+ * Общие параметры: sensors=1-100 (диапазон id), connections=4, batch=100 (показаний в кадре или запросе),
+ * seconds=30. Каждую секунду печатает число показаний в секунду, в конце - среднее.
+ */
+public final class GatewayLoadGenerator {
+
+    private final Map<String, String> options;
+    private final long firstSensor;
+    private final long lastSensor;
+    private final int batch;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running = true;
+
+    private GatewayLoadGenerator(Map<String, String> options) {
+        this.options = options;
+        String[] sensors = options.getOrDefault("sensors", "1-100").split("-");
+        this.firstSensor = Long.parseLong(sensors[0]);
+        this.lastSensor = Long.parseLong(sensors[sensors.length - 1]);
+        this.batch = Integer.parseInt(options.getOrDefault("batch", "100"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new GatewayLoadGenerator(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        String mode = options.getOrDefault("mode", "tcp");
+        int connections = Integer.parseInt(options.getOrDefault("connections", "4"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            int worker = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    if (mode.equals("rest")) {
+                        runRest(worker, connections);
+                    } else {
+                        runTcp(worker, connections);
+                    }
+                } catch (Exception e) {
+                    System.err.println("worker " + worker + " stopped: " + e);
+                }
+            }, "load-" + i);
+            thread.start();
+            workers.add(thread);
+        }
+
+        long previous = 0;
+        for (int second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            long total = sent.get();
+            System.out.printf("%3d s  %,12d readings/s  (failed requests: %d)%n", second, total - previous, failed.get());
+            previous = total;
+        }
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+        System.out.printf("%s: %,d readings in %d s, average %,d readings/s with batch %d over %d connections%n",
+                mode, sent.get(), seconds, sent.get() / seconds, batch, connections);
+    }
+
+    private void runTcp(int worker, int workers) throws IOException {
+        String host = options.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(options.getOrDefault("port", "7070"));
+        byte[] psk = options.getOrDefault("psk", "").getBytes(StandardCharsets.UTF_8);
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            ByteBuffer in = ByteBuffer.allocate(64);
+            readFully(channel, in, GatewayProtocol.HEADER_BYTES + 1 + GatewayProtocol.NONCE_BYTES);
+            if (in.get(GatewayProtocol.HEADER_BYTES) != GatewayProtocol.HELLO) {
+                throw new IOException("expected HELLO");
+            }
+            byte[] nonce = new byte[GatewayProtocol.NONCE_BYTES];
+            in.get(GatewayProtocol.HEADER_BYTES + 1, nonce);
+
+            ByteBuffer auth = ByteBuffer.allocate(GatewayProtocol.HEADER_BYTES + 1 + GatewayProtocol.MAC_BYTES);
+            auth.putInt(1 + GatewayProtocol.MAC_BYTES).put(GatewayProtocol.AUTH).put(GatewayProtocol.sign(psk, nonce));
+            writeFully(channel, auth.flip());
+            readFully(channel, in.clear(), GatewayProtocol.HEADER_BYTES + 1);
+            if (in.get(GatewayProtocol.HEADER_BYTES) != GatewayProtocol.AUTH_OK) {
+                throw new IOException("authentication rejected");
+            }
+
+            ByteBuffer frame = ByteBuffer.allocateDirect(GatewayProtocol.HEADER_BYTES + 12 + batch * 16);
+            long sensor = firstSensor + worker;
+            while (running) {
+                long now = System.currentTimeMillis();
+                frame.clear();
+                frame.putInt(1 + 11 + batch * 16).put(GatewayProtocol.READINGS)
+                        .putLong(sensor).put((byte) 0).putShort((short) batch);
+                for (int i = 0; i < batch; i++) {
+                    frame.putLong(now - batch + i).putDouble(20 + (i % 10) * 0.1);
+                }
+                writeFully(channel, frame.flip());
+                sent.addAndGet(batch);
+                sensor = next(sensor, workers);
+            }
+        }
+    }
+
+    private void runRest(int worker, int workers) throws IOException, InterruptedException {
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        HttpClient client = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+        String login = "{\"username\":\"" + options.getOrDefault("user", "admin") + "\",\"password\":\""
+                + options.getOrDefault("password", "admin") + "\"}";
+        HttpResponse<Void> loggedIn = client.send(HttpRequest.newBuilder(URI.create(url + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(login))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (loggedIn.statusCode() != 200) {
+            throw new IOException("login failed: " + loggedIn.statusCode());
+        }
+
+        long sensor = firstSensor + worker;
+        StringBuilder body = new StringBuilder();
+        while (running) {
+            long now = System.currentTimeMillis();
+            body.setLength(0);
+            body.append('[');
+            for (int i = 0; i < batch; i++) {
+                LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(now - batch + i),
+                        ZoneId.systemDefault());
+                body.append(i > 0 ? "," : "").append("{\"type\":\"temperature\",\"timestamp\":\"").append(timestamp)
+                        .append("\",\"value\":").append(20 + (i % 10) * 0.1).append('}');
+            }
+            body.append(']');
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create(url + "/api/sensors/" + sensor + "/readings"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 202) {
+                sent.addAndGet(batch);
+            } else {
+                failed.incrementAndGet();
+            }
+            sensor = next(sensor, workers);
+        }
+    }
+
+    private long next(long sensor, int workers) {
+        long next = sensor + workers;
+        return next > lastSensor ? firstSensor + (next - firstSensor) % workers : next;
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("connection closed");
+            }
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.example.firesystem.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.RuleKind;
+import com.example.firesystem.model.AlertRule;
+
+class CompiledRuleTest {
+
+	private static final long SENSOR = 1;
+	private static final int NO_LOCATION = -1;
+
+	@Test
+	void thresholdFiresOncePerRisingEdge() {
+		CompiledRule rule = compile(definition(RuleKind.threshold, 50), 0);
+
+		assertThat(rule.test(SENSOR, NO_LOCATION, 0, 60)).isTrue();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 1_000, 70)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 2_000, 40)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 3_000, 60)).isTrue();
+	}
+
+	@Test
+	void cooldownSuppressesEdgesUntilItPasses() {
+		CompiledRule rule = compile(definition(RuleKind.threshold, 50), 60_000);
+
+		assertThat(rule.test(SENSOR, NO_LOCATION, 0, 60)).isTrue();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 1_000, 40)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 2_000, 60)).isFalse();
+		// Подавленный фронт всё равно взводит защёлку: пока условие держится, повторов нет
+		assertThat(rule.test(SENSOR, NO_LOCATION, 61_000, 60)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 62_000, 40)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 63_000, 60)).isTrue();
+	}
+
+	@Test
+	void latchAndCooldownArePerSensor() {
+		CompiledRule rule = compile(definition(RuleKind.threshold, 50), 60_000);
+
+		assertThat(rule.test(SENSOR, NO_LOCATION, 0, 60)).isTrue();
+		assertThat(rule.test(SENSOR + 1, NO_LOCATION, 1_000, 60)).isTrue();
+	}
+
+	@Test
+	void nOfMFiresOnNthHitWithinWindow() {
+		AlertRule definition = definition(RuleKind.n_of_m, 50);
+		definition.setN(3);
+		definition.setM(4);
+		CompiledRule rule = compile(definition, 0);
+
+		assertThat(fired(rule, 60, 60, 40)).containsExactly(false, false, false);
+		assertThat(rule.test(SENSOR, NO_LOCATION, 3_000, 60)).isTrue();
+	}
+
+	@Test
+	void nOfMHitsShiftOutOfWindow() {
+		AlertRule definition = definition(RuleKind.n_of_m, 50);
+		definition.setN(2);
+		definition.setM(3);
+		CompiledRule rule = compile(definition, 0);
+
+		// Первое превышение уходит из окна из трёх показаний раньше, чем приходит второе
+		assertThat(fired(rule, 60, 40, 40, 60)).containsOnly(false);
+		assertThat(rule.test(SENSOR, NO_LOCATION, 4_000, 60)).isTrue();
+	}
+
+	@Test
+	void nOfMUsesWholeLongForSixtyFour() {
+		AlertRule definition = definition(RuleKind.n_of_m, 50);
+		definition.setN(64);
+		definition.setM(64);
+		CompiledRule rule = compile(definition, 0);
+
+		double[] hits = new double[63];
+		Arrays.fill(hits, 60);
+		assertThat(fired(rule, hits)).containsOnly(false);
+		assertThat(rule.test(SENSOR, NO_LOCATION, 63_000, 60)).isTrue();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 64_000, 40)).isFalse();
+		assertThat(rule.test(SENSOR, NO_LOCATION, 65_000, 60)).isFalse();
+	}
+
+	@Test
+	void rateOfRiseWaitsForHalfWindow() {
+		CompiledRule rule = compile(rateOfRise(10, 60), 0);
+
+		// 60 единиц в минуту, но до половины окна производная не считается
+		for (int second = 0; second < 30; second++) {
+			assertThat(rule.test(SENSOR, NO_LOCATION, second * 1_000L, 20 + second)).isFalse();
+		}
+		assertThat(rule.test(SENSOR, NO_LOCATION, 30_000, 50)).isTrue();
+	}
+
+	@Test
+	void rateOfRiseIgnoresSlowRise() {
+		CompiledRule rule = compile(rateOfRise(10, 60), 0);
+
+		for (int second = 0; second < 180; second++) {
+			assertThat(rule.test(SENSOR, NO_LOCATION, second * 1_000L, 20 + second * 0.1)).isFalse();
+		}
+	}
+
+	@Test
+	void rateOfRiseForgetsSamplesOlderThanWindow() {
+		CompiledRule rule = compile(rateOfRise(10, 60), 0);
+
+		List<Long> firedAt = new ArrayList<>();
+		for (int second = 0; second <= 240; second++) {
+			// Скачок на первой секунде, плато, затем новый рост после 180 с
+			double value = second == 0 ? 20 : second <= 180 ? 100 : 100 + (second - 180);
+			long timestamp = second * 1_000L;
+			if (rule.test(SENSOR, NO_LOCATION, timestamp, value)) {
+				firedAt.add(timestamp);
+			}
+		}
+
+		// Скачок перестаёт влиять, как только точка 0 с выходит из окна, и защёлка снимается
+		assertThat(firedAt).hasSize(2);
+		assertThat(firedAt.get(0)).isEqualTo(30_000L);
+		assertThat(firedAt.get(1)).isGreaterThan(180_000L);
+	}
+
+	private static List<Boolean> fired(CompiledRule rule, double... values) {
+		List<Boolean> fired = new ArrayList<>(values.length);
+		for (int i = 0; i < values.length; i++) {
+			fired.add(rule.test(SENSOR, NO_LOCATION, i * 1_000L, values[i]));
+		}
+		return fired;
+	}
+
+	private static CompiledRule compile(AlertRule definition, long cooldownMillis) {
+		return CompiledRule.compile(definition, NO_LOCATION, cooldownMillis);
+	}
+
+	private static AlertRule rateOfRise(double perMinute, int windowSeconds) {
+		AlertRule definition = definition(RuleKind.rate_of_rise, perMinute);
+		definition.setWindowSeconds(windowSeconds);
+		return definition;
+	}
+
+	private static AlertRule definition(RuleKind kind, double threshold) {
+		AlertRule definition = new AlertRule();
+		definition.setId(1L);
+		definition.setName(kind.name());
+		definition.setKind(kind);
+		definition.setReadingType(ReadingType.temperature);
+		definition.setEventType(EventType.high_temperature);
+		definition.setThreshold(threshold);
+		definition.setEnabled(true);
+		return definition;
+	}
+}
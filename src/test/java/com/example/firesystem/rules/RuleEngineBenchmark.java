@@ -0,0 +1,118 @@
+package com.example.firesystem.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.ReadingType;
+import com.example.firesystem.enums.RuleKind;
+import com.example.firesystem.model.AlertRule;
+
+/**
+ * Пропускная способность вычислителя правил: проверок (показание x правило) в секунду на одно ядро.
+ * Повторяет цикл RuleEngine.evaluate над набором из правил всех видов; поток один, как у RuleEngine.
+ * Запуск после mvn test-compile:
+ *
+ * mvn dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+ * java -cp target/classes:target/test-classes:$(cat target/test.classpath) com.example.firesystem.rules.RuleEngineBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RuleEngineBenchmark {
+
+	private static final int RULES = 16;
+	private static final int SENSORS = 256;
+	private static final int BATCH = 16;
+	private static final int LOCATIONS = 8;
+	private static final long INTERVAL_MILLIS = 1000;
+
+	private CompiledRule[] candidates;
+	private final int[] locations = new int[SENSORS];
+	private final double[][] values = new double[SENSORS][BATCH];
+	private final long[] timestamps = new long[BATCH];
+	private long clock;
+
+	@Setup
+	public void setUp() {
+		RuleKind[] kinds = RuleKind.values();
+		List<AlertRule> definitions = new ArrayList<>(RULES);
+		for (int i = 0; i < RULES; i++) {
+			AlertRule rule = new AlertRule();
+			rule.setId((long) i);
+			rule.setName("rule-" + i);
+			rule.setKind(kinds[i % kinds.length]);
+			rule.setReadingType(ReadingType.temperature);
+			rule.setEventType(EventType.high_temperature);
+			rule.setThreshold(rule.getKind() == RuleKind.rate_of_rise ? 10 : 60 + i);
+			rule.setWindowSeconds(60);
+			rule.setN(3);
+			rule.setM(8);
+			// Каждое четвёртое правило ограничено местоположением, остальные - на все
+			rule.setLocation(i % 4 == 3 ? "L" + (i % LOCATIONS) : null);
+			rule.setEnabled(true);
+			definitions.add(rule);
+		}
+		RuleSet rules = RuleSet.compile(definitions, RuleSet.EMPTY, name -> Integer.parseInt(name.substring(1)), 60_000);
+		candidates = rules.forType(ReadingType.temperature);
+
+		SplittableRandom random = new SplittableRandom(42);
+		for (int s = 0; s < SENSORS; s++) {
+			locations[s] = s % LOCATIONS;
+			double level = 20 + random.nextDouble(50);
+			for (int i = 0; i < BATCH; i++) {
+				level = Math.max(0, level + random.nextDouble(-4, 4.5));
+				values[s][i] = level;
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SENSORS * BATCH * RULES)
+	public int evaluate() {
+		for (int i = 0; i < BATCH; i++) {
+			timestamps[i] = clock + i * INTERVAL_MILLIS;
+		}
+		clock += BATCH * INTERVAL_MILLIS;
+
+		int fired = 0;
+		for (int s = 0; s < SENSORS; s++) {
+			int location = locations[s];
+			double[] batch = values[s];
+			for (int i = 0; i < BATCH; i++) {
+				for (CompiledRule rule : candidates) {
+					if (rule.matches(location) && rule.test(s, location, timestamps[i], batch[i])) {
+						fired++;
+					}
+				}
+			}
+		}
+		return fired;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(RuleEngineBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.firesystem.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.firesystem.dto.AlertDto;
+import com.example.firesystem.enums.EventType;
+import com.example.firesystem.enums.StatusType;
+import com.example.firesystem.model.Alert;
+import com.example.firesystem.model.Sensor;
+import com.example.firesystem.repository.AlertRepository;
+import com.example.firesystem.repository.SensorRepository;
+
+import jakarta.persistence.EntityManager;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class AlertServiceQueryCountTest {
+
+	private static final int ALERTS = 50;
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private SensorRepository sensorRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	private Sensor sensor;
+
+	@BeforeEach
+	void setUp() {
+		sensor = sensorRepository.save(new Sensor(null, "QC-1", "Аудитория 101", null, null, null, null));
+		List<Alert> alerts = new ArrayList<>();
+		for (int i = 0; i < ALERTS; i++) {
+			Alert alert = new Alert();
+			alert.setSensor(sensor);
+			alert.setType(EventType.accident);
+			alert.setStatus(StatusType.new_status);
+			alert.setTimestamp(LocalDateTime.now());
+			alert.setDescription("query count " + i);
+			alert.setPhotoUrls(new ArrayList<>(List.of("a" + i + ".jpg", "b" + i + ".jpg")));
+			alerts.add(alert);
+		}
+		alertRepository.saveAll(alerts);
+		entityManager.flush();
+		entityManager.clear();
+
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void alertsBySensorRunSingleStatement() {
+		List<AlertDto> alerts = alertService.getAlertsBySensor(sensor.getId());
+
+		assertThat(alerts).hasSize(ALERTS);
+		assertThat(alerts).allSatisfy(alert -> assertThat(alert.photoUrls()).hasSize(2));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	// Без интервала открытые статусы отдаёт ActiveAlertStore, а вставки через репозиторий событий не публикуют
+	@Test
+	void alertsByStatusRunSingleStatement() {
+		List<AlertDto> alerts = alertService.getAlertsByStatus(StatusType.new_status, null, null);
+
+		assertThat(alerts).hasSizeGreaterThanOrEqualTo(ALERTS);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void alertsPageRunsSingleStatement() {
+		alertService.getAlertsPage(0L, 1000);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+}
@@ -0,0 +1,200 @@
+package com.example.firesystem.tsdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlockCodecTest {
+
+	// Одно окно на десятилетия вперёд: у блока один чанк, в который попадает любое время теста
+	private static final long WIDE_WINDOW = 1L << 42;
+	private static final long START = 1_700_000_000_000L;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void bitStreamRoundTripsAcrossWordBoundaries() {
+		SplittableRandom random = new SplittableRandom(7);
+		int[] widths = new int[2_000];
+		long[] values = new long[widths.length];
+		BitWriter writer = new BitWriter(1);
+		for (int i = 0; i < widths.length; i++) {
+			widths[i] = 1 + random.nextInt(64);
+			values[i] = random.nextLong();
+			writer.write(values[i], widths[i]);
+		}
+
+		BitReader reader = new BitReader(writer.words());
+		for (int i = 0; i < widths.length; i++) {
+			long expected = widths[i] == 64 ? values[i] : values[i] & ((1L << widths[i]) - 1);
+			assertThat(reader.read(widths[i])).as("поле %d из %d бит", i, widths[i]).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void deltaOfDeltaRangeBoundariesRoundTrip() {
+		// Границы классов 7, 9 и 12 бит с обеих сторон и выход в 64 бита
+		long[] deltasOfDeltas = { 0, 1, -1, 64, -63, 65, -64, 256, -255, 257, -256, 2048, -2047, 2049, -2048,
+				1L << 40, -(1L << 40), 0 };
+		long[] timestamps = new long[deltasOfDeltas.length + 2];
+		timestamps[0] = START;
+		timestamps[1] = START + 1_000;
+		long delta = 1_000;
+		for (int i = 0; i < deltasOfDeltas.length; i++) {
+			delta += deltasOfDeltas[i];
+			timestamps[i + 2] = timestamps[i + 1] + delta;
+		}
+		double[] values = new double[timestamps.length];
+
+		assertRoundTrip(timestamps, values);
+	}
+
+	@Test
+	void xorLeadingAndTrailingZeroCasesRoundTrip() {
+		double base = 20.0;
+		double[] values = {
+				base,
+				base, // xor = 0
+				20.5, // новое окно значащих бит
+				20.75, // окно переиспользуется
+				Math.nextUp(20.75), // только младший бит: ведущих нулей больше 31
+				Math.nextUp(Math.nextUp(20.75)),
+				-20.75, // знаковый бит: ведущих нулей нет
+				0.0,
+				Double.longBitsToDouble(0x8000_0000_0000_0001L), // все 64 бита значащие
+				1e300,
+				1e-300,
+				base };
+		assertRoundTrip(evenTimestamps(values.length), values);
+	}
+
+	@Test
+	void specialValuesKeepTheirBits() {
+		double[] values = { 0.0, -0.0, 0.0, Double.NaN, Double.longBitsToDouble(0x7ff8_0000_0000_0001L),
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE,
+				Double.MAX_VALUE, -0.0, Double.NaN };
+		assertRoundTrip(evenTimestamps(values.length), values);
+	}
+
+	@Test
+	void earlierSnapshotSurvivesBitStreamGrowth() {
+		SplittableRandom random = new SplittableRandom(11);
+		int total = 20_000;
+		long[] timestamps = new long[total];
+		double[] values = new double[total];
+		long timestamp = START;
+		double value = 20;
+		for (int i = 0; i < total; i++) {
+			timestamp += 1_000 + random.nextInt(-50, 50);
+			value += random.nextDouble(-0.5, 0.5);
+			timestamps[i] = timestamp;
+			values[i] = Math.round(value * 10) / 10.0;
+		}
+
+		Block block = new Block(0, WIDE_WINDOW, WIDE_WINDOW);
+		int early = 100;
+		for (int i = 0; i < early; i++) {
+			block.append(timestamps[i], values[i]);
+		}
+		long[] earlyWords = block.bits().words();
+		for (int i = early; i < total; i++) {
+			block.append(timestamps[i], values[i]);
+		}
+
+		// Читатель, взявший массив до роста, продолжает видеть согласованные первые точки
+		assertThat(block.bits().words()).isNotSameAs(earlyWords);
+		assertDecoded(new BitReader(earlyWords), early, timestamps, values);
+		assertDecoded(new BitReader(block.bits().words()), total, timestamps, values);
+	}
+
+	@Test
+	void chunkSummariesFollowWindowOffsets() {
+		long windowMillis = 3_600_000;
+		long chunkMillis = 900_000;
+		Block block = new Block(5, windowMillis, chunkMillis);
+		long start = 5 * windowMillis;
+		block.append(start, 10);
+		block.append(start + 60_000, 30);
+		block.append(start + 2 * chunkMillis, -5);
+		block.append(start + windowMillis - 1, 7);
+
+		assertThat(block.chunkCounts).containsExactly(2, 0, 1, 1);
+		assertThat(block.chunkSums).containsExactly(40, 0, -5, 7);
+		assertThat(block.chunkMins[0]).isEqualTo(10);
+		assertThat(block.chunkMaxs[0]).isEqualTo(30);
+		assertThat(block.firstTimestamp()).isEqualTo(start);
+		assertThat(block.lastTimestamp()).isEqualTo(start + windowMillis - 1);
+	}
+
+	@Test
+	void sealedBlocksDecodeFromMappedSegment() throws Exception {
+		long windowMillis = 3_600_000;
+		long chunkMillis = 900_000;
+		long[] firstTimes = { windowMillis, windowMillis + 1_000, windowMillis + 2_000 };
+		double[] firstValues = { 1.5, 1.5, Double.NaN };
+		long[] secondTimes = { 2 * windowMillis + 10, 2 * windowMillis + 90_000, 3 * windowMillis - 1 };
+		double[] secondValues = { -0.0, 42, 43.25 };
+		Block first = filled(new Block(1, windowMillis, chunkMillis), firstTimes, firstValues);
+		Block second = filled(new Block(2, windowMillis, chunkMillis), secondTimes, secondValues);
+
+		try (Segment segment = Segment.open(directory.resolve("segment-000000.dat"), 0, 1 << 16)) {
+			int firstOffset = segment.append(first, 17, 1);
+			int secondOffset = segment.append(second, 17, 1);
+
+			assertThat(secondOffset).isEqualTo(Segment.recordBytes(4, first.bits().wordCount()));
+			assertThat(segment.buffer.getInt(secondOffset)).isEqualTo(Segment.MAGIC);
+			assertThat(segment.buffer.getLong(secondOffset + Segment.WINDOW)).isEqualTo(2);
+			assertThat(segment.buffer.getLong(secondOffset + Segment.MIN_TS)).isEqualTo(secondTimes[0]);
+			assertThat(segment.buffer.getLong(secondOffset + Segment.MAX_TS)).isEqualTo(secondTimes[2]);
+			assertDecoded(new BitReader(segment.buffer, Segment.payloadOffset(segment.buffer, firstOffset)),
+					first.count(), firstTimes, firstValues);
+			assertDecoded(new BitReader(segment.buffer, Segment.payloadOffset(segment.buffer, secondOffset)),
+					second.count(), secondTimes, secondValues);
+		}
+	}
+
+	private static Block filled(Block block, long[] timestamps, double[] values) {
+		for (int i = 0; i < timestamps.length; i++) {
+			block.append(timestamps[i], values[i]);
+		}
+		return block;
+	}
+
+	private static long[] evenTimestamps(int count) {
+		long[] timestamps = new long[count];
+		for (int i = 0; i < count; i++) {
+			timestamps[i] = START + i * 1_000L;
+		}
+		return timestamps;
+	}
+
+	private static void assertRoundTrip(long[] timestamps, double[] values) {
+		Block block = filled(new Block(0, WIDE_WINDOW, WIDE_WINDOW), timestamps, values);
+		assertThat(block.count()).isEqualTo(timestamps.length);
+		assertDecoded(new BitReader(block.bits().words()), block.count(), timestamps, values);
+	}
+
+	// Значения сравниваются по сырым битам: NaN с полезной нагрузкой и -0.0 должны вернуться как есть
+	private static void assertDecoded(BitReader reader, int count, long[] timestamps, double[] values) {
+		long[] decodedTimes = new long[count];
+		long[] decodedBits = new long[count];
+		int[] index = { 0 };
+		Block.decode(reader, count, (timestamp, value) -> {
+			decodedTimes[index[0]] = timestamp;
+			decodedBits[index[0]] = Double.doubleToRawLongBits(value);
+			index[0]++;
+		});
+
+		assertThat(index[0]).isEqualTo(count);
+		for (int i = 0; i < count; i++) {
+			assertThat(decodedTimes[i]).as("время точки %d", i).isEqualTo(timestamps[i]);
+			assertThat(decodedBits[i]).as("биты значения точки %d", i)
+					.isEqualTo(Double.doubleToRawLongBits(values[i]));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.firesystem.tsdb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.firesystem.enums.ReadingType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReadingStoreRecoveryTest {
+
+	private static final long SENSOR = 42;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void openBlockSurvivesCrashThroughCheckpoint() throws Exception {
+		long now = System.currentTimeMillis();
+		long[] timestamps = { now - 3_000, now - 2_000, now - 1_000 };
+		double[] values = { 20.5, 21, 21.5 };
+
+		ReadingStore crashed = store();
+		crashed.open();
+		assertThat(crashed.append(SENSOR, ReadingType.temperature, timestamps.clone(), values.clone())).isTrue();
+		Path checkpoint = directory.resolve("shard-00").resolve("open-blocks.dat");
+		awaitPoints(crashed, now, timestamps.length);
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!Files.exists(checkpoint) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(checkpoint).exists();
+
+		// Первое хранилище не закрывается: второе видит диск таким, каким его оставило бы падение
+		ReadingStore recovered = store();
+		recovered.open();
+		try {
+			assertThat(points(recovered, now)).containsExactly(timestamps[0], timestamps[1], timestamps[2]);
+			assertThat(recovered.hasSeries(SENSOR)).isTrue();
+		} finally {
+			recovered.close();
+			crashed.close();
+		}
+	}
+
+	private ReadingStore store() {
+		return new ReadingStore(new SimpleMeterRegistry(), directory, 1, DataSize.ofMegabytes(1), Duration.ofHours(2),
+				Duration.ofMinutes(15), Duration.ofMillis(10), 1024);
+	}
+
+	private static void awaitPoints(ReadingStore store, long now, int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (points(store, now).size() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static List<Long> points(ReadingStore store, long now) {
+		ReadingAggregator aggregator = ReadingAggregator.raw(now - 60_000, now + 60_000, 1_000);
+		store.query(SENSOR, ReadingType.temperature, aggregator);
+		List<Long> timestamps = new ArrayList<>();
+		aggregator.forEach((timestamp, average, min, max, count) -> timestamps.add(timestamp));
+		return timestamps;
+	}
+}